@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder.benchmark;
+
+import io.fares.design.builder.CompiledCatalog;
+import org.apache.xml.resolver.CatalogManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the small fixtures the benchmarks run against. Everything is generated into a temporary directory so the
+ * benchmarks do not need network access or anything from the local repository. Schema graphs come from the
+ * {@link io.fares.maven.plugins.design.builder.corpus.CorpusGenerator}.
+ */
+public final class Fixtures {
+
+  public static final String TYPES_NAMESPACE = "urn:bench:types";
+
+  private static final String CATALOG_NS = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+  private Fixtures() {
+  }
+
+  /**
+   * @param index the number of the schema
+   * @return the file name of a generated schema
+   */
+  public static String schemaName(int index) {
+    return "Type" + index + ".xsd";
+  }
+
+  /**
+   * Write flat schemas without any imports.
+   *
+   * @param dir   the directory to write to
+   * @param count the number of schemas
+   * @return the schema files in order
+   * @throws IOException if a schema cannot be written
+   */
+  public static List<Path> writeSchemas(Path dir, int count) throws IOException {
+    Files.createDirectories(dir);
+    List<Path> schemas = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Path schema = dir.resolve(schemaName(i));
+      try (Writer w = Files.newBufferedWriter(schema, StandardCharsets.UTF_8)) {
+        w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        w.write("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"" + TYPES_NAMESPACE + ':' + i + "\">\n");
+        w.write("  <xsd:simpleType name=\"Type" + i + "\">\n");
+        w.write("    <xsd:restriction base=\"xsd:string\"/>\n");
+        w.write("  </xsd:simpleType>\n");
+        w.write("</xsd:schema>\n");
+      }
+      schemas.add(schema);
+    }
+    return schemas;
+  }
+
+  /**
+   * Write a catalog mapping <code>systemIdPrefix + schemaName(i)</code> to <code>uriPrefix + schemaName(i)</code>.
+   *
+   * @param catalogFile    the catalog file to write
+   * @param systemIdPrefix the prefix of every systemId
+   * @param uriPrefix      the prefix of every uri
+   * @param count          the number of entries
+   * @return the catalog file
+   * @throws IOException if the catalog cannot be written
+   */
+  public static Path writeSystemCatalog(Path catalogFile, String systemIdPrefix, String uriPrefix, int count) throws IOException {
+    Files.createDirectories(catalogFile.toAbsolutePath().getParent());
+    try (Writer w = Files.newBufferedWriter(catalogFile, StandardCharsets.UTF_8)) {
+      w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      w.write("<catalog xmlns=\"" + CATALOG_NS + "\" prefer=\"system\">\n");
+      for (int i = 0; i < count; i++) {
+        w.write("  <system systemId=\"" + systemIdPrefix + schemaName(i) + "\" uri=\"" + uriPrefix + schemaName(i) + "\"/>\n");
+      }
+      w.write("</catalog>\n");
+    }
+    return catalogFile;
+  }
+
+  /**
+   * Pack a directory into a jar file.
+   *
+   * @param dir the directory to pack
+   * @param jar the jar file to write
+   * @return the jar file
+   * @throws IOException if the jar cannot be written
+   */
+  public static Path writeJar(Path dir, Path jar) throws IOException {
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(dir)) {
+      files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    try (OutputStream os = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(os)) {
+      for (Path file : files) {
+        out.putNextEntry(new JarEntry(dir.relativize(file).toString().replace('\\', '/')));
+        Files.copy(file, out);
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  /**
+   * @param catalogs the catalogs to load
+   * @return a catalog manager set up the way the plugin sets up its own
+   */
+  public static CatalogManager catalogManager(URL... catalogs) {
+    CatalogManager catalogManager = new CatalogManager();
+    catalogManager.setIgnoreMissingProperties(true);
+    catalogManager.setUseStaticCatalog(false);
+    catalogManager.setCatalogClassName(CompiledCatalog.class.getName());
+    StringBuilder files = new StringBuilder();
+    for (URL catalog : catalogs) {
+      if (files.length() > 0) {
+        files.append(';');
+      }
+      files.append(catalog.toExternalForm());
+    }
+    catalogManager.setCatalogFiles(files.toString());
+    return catalogManager;
+  }
+
+  public static Path createTempDirectory(String prefix) throws IOException {
+    return Files.createTempDirectory("design-builder-" + prefix + '-');
+  }
+
+  public static void deleteRecursively(Path dir) throws IOException {
+    if (dir == null || !Files.exists(dir)) {
+      return;
+    }
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+        Files.delete(d);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder.benchmark;
+
+import io.fares.design.builder.ImportGraph;
+import io.fares.design.builder.JarFileCache;
+import io.fares.design.builder.JlibsResolverBridge;
+import io.fares.design.builder.StreamingCrawler;
+import io.fares.maven.plugins.design.builder.catalog.CatalogFormat;
+import io.fares.maven.plugins.design.builder.corpus.Corpus;
+import io.fares.maven.plugins.design.builder.corpus.CorpusGenerator;
+import io.fares.maven.plugins.design.builder.flattener.FlattenEngine;
+import io.fares.maven.plugins.design.builder.flattener.FlattenMode;
+import io.fares.maven.plugins.design.builder.flattener.OutputNameRegistry;
+import io.fares.maven.plugins.design.builder.flattener.SimpleNameCrawlerListener;
+import jlibs.xml.sax.crawl.XMLCrawler;
+import org.apache.xml.resolver.tools.CatalogResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattens the services of a generated corpus end to end the way the flatten mojo does: crawl from every service
+ * WSDL, resolve every import through the catalogs of the corpus artifacts and write every document into the output
+ * directory.
+ * <p>
+ * In <code>root</code> mode every service is crawled on its own with the given engine, in <code>graph</code> mode all
+ * services share one import graph. The graph always streams, so both engines measure the same in <code>graph</code>
+ * mode. Everything runs on one thread to compare the work done rather than the parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FlattenBenchmark {
+
+  @Param({"10", "100"})
+  private int width;
+
+  @Param({"5", "20"})
+  private int depth;
+
+  @Param({"3"})
+  private int fanOut;
+
+  @Param({"false", "true"})
+  private boolean serviceUrls;
+
+  @Param({"stax", "jlibs"})
+  private String engine;
+
+  @Param({"root", "graph"})
+  private String mode;
+
+  private FlattenEngine flattenEngine;
+
+  private FlattenMode flattenMode;
+
+  private Path dir;
+
+  private Corpus corpus;
+
+  private List<URL> catalogs;
+
+  private Path outputDirectory;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Fixtures.createTempDirectory("flatten");
+    corpus = new CorpusGenerator()
+      .withServices(4)
+      .withWidth(width)
+      .withDepth(depth)
+      .withFanOut(fanOut)
+      .withChameleons(5)
+      .withServiceUrls(serviceUrls)
+      .withArtifacts(4)
+      .generate(dir);
+    catalogs = corpus.getCatalogs(CatalogFormat.SYSTEM);
+    flattenEngine = FlattenEngine.fromValue(engine);
+    flattenMode = FlattenMode.fromValue(mode);
+  }
+
+  @Setup(Level.Iteration)
+  public void createOutputDirectory() throws Exception {
+    outputDirectory = Fixtures.createTempDirectory("flatten-out");
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteOutputDirectory() throws Exception {
+    Fixtures.deleteRecursively(outputDirectory);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Fixtures.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public int flatten() throws Exception {
+    JlibsResolverBridge bridge = new JlibsResolverBridge(
+      new CatalogResolver(Fixtures.catalogManager(catalogs.toArray(new URL[0]))));
+    OutputNameRegistry registry = new OutputNameRegistry(outputDirectory.toFile(), true);
+    try (JarFileCache jarFileCache = new JarFileCache()) {
+      if (flattenMode == FlattenMode.GRAPH) {
+        return flattenGraph(bridge, registry, jarFileCache);
+      }
+      int crawled = 0;
+      StreamingCrawler streamingCrawler = new StreamingCrawler();
+      streamingCrawler.setResolver(bridge);
+      streamingCrawler.setJarFileCache(jarFileCache);
+      for (Path service : corpus.getServiceFiles()) {
+        SimpleNameCrawlerListener listener = new SimpleNameCrawlerListener(outputDirectory.toFile(), registry);
+        if (flattenEngine == FlattenEngine.STAX) {
+          streamingCrawler.crawl(service.toUri().toURL(), listener);
+        } else {
+          XMLCrawler crawler = new XMLCrawler();
+          crawler.setResolver(bridge);
+          crawler.crawl(new InputSource(service.toUri().toString()), listener, null);
+        }
+        crawled += listener.getCrawled().size();
+      }
+      return crawled;
+    }
+  }
+
+  private int flattenGraph(JlibsResolverBridge bridge, OutputNameRegistry registry, JarFileCache jarFileCache)
+    throws Exception {
+    ImportGraph graph = new ImportGraph(bridge, new SimpleNameCrawlerListener(outputDirectory.toFile(), registry));
+    graph.setJarFileCache(jarFileCache);
+    for (Path service : corpus.getServiceFiles()) {
+      graph.addRoot(service.toUri().toURL());
+    }
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      graph.flatten(executor);
+    } finally {
+      executor.shutdownNow();
+    }
+    return graph.getNodes().size();
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder.benchmark;
+
+import io.fares.maven.plugins.design.builder.MavenCatalogResolver;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves systemIds that the catalog maps to <code>maven:</code> and <code>classpath:</code> URIs through
+ * {@link MavenCatalogResolver#getResolvedEntity(String, String)}. The artifact is served from a generated jar, so
+ * the numbers show the cost of the resolver itself and not of the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenCatalogResolverBenchmark {
+
+  private static final String SYSTEM_ID_PREFIX = "http://bench.internal/types/";
+
+  private static final String MAVEN_PREFIX = "maven:io.fares.bench:bench-types:jar::1.0!/schemas/";
+
+  private static final String CLASSPATH_PREFIX = "classpath:schemas/";
+
+  @Param({"maven", "classpath"})
+  private String scheme;
+
+  @Param({"100", "1000"})
+  private int catalogSize;
+
+  private Path dir;
+
+  private URLClassLoader classLoader;
+
+  private MavenCatalogResolver resolver;
+
+  private String[] systemIds;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+
+    dir = Fixtures.createTempDirectory("maven-resolver");
+    Fixtures.writeSchemas(dir.resolve("content/schemas"), catalogSize);
+    Path jar = Fixtures.writeJar(dir.resolve("content"), dir.resolve("bench-types-1.0.jar"));
+
+    String uriPrefix = "maven".equals(scheme) ? MAVEN_PREFIX : CLASSPATH_PREFIX;
+    Path catalog = Fixtures.writeSystemCatalog(dir.resolve("catalog.xml"), SYSTEM_ID_PREFIX, uriPrefix, catalogSize);
+
+    classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null);
+    resolver = new MavenCatalogResolver(Fixtures.catalogManager(catalog.toUri().toURL()),
+      new DefaultRepositorySystemSession(), new JarArtifactResolver(jar.toFile()), classLoader);
+
+    Random random = new Random(42);
+    systemIds = new String[1024];
+    for (int i = 0; i < systemIds.length; i++) {
+      systemIds[i] = SYSTEM_ID_PREFIX + Fixtures.schemaName(random.nextInt(catalogSize));
+    }
+
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    classLoader.close();
+    Fixtures.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public String getResolvedEntity() {
+    return resolver.getResolvedEntity(null, systemIds[next++ & (systemIds.length - 1)]);
+  }
+
+  /**
+   * Resolves every artifact to the same jar file.
+   */
+  private static class JarArtifactResolver implements ArtifactResolver {
+
+    private final File jar;
+
+    JarArtifactResolver(File jar) {
+      this.jar = jar;
+    }
+
+    @Override
+    public ArtifactResult resolveArtifact(RepositorySystemSession session, ArtifactRequest request) {
+      ArtifactResult result = new ArtifactResult(request);
+      result.setArtifact(request.getArtifact().setFile(jar));
+      return result;
+    }
+
+    @Override
+    public List<ArtifactResult> resolveArtifacts(RepositorySystemSession session, Collection<? extends ArtifactRequest> requests) {
+      List<ArtifactResult> results = new ArrayList<>(requests.size());
+      for (ArtifactRequest request : requests) {
+        results.add(resolveArtifact(session, request));
+      }
+      return results;
+    }
+
+  }
+
+}
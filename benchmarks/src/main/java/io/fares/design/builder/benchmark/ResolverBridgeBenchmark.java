@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder.benchmark;
+
+import io.fares.design.builder.JlibsResolverBridge;
+import org.apache.xml.resolver.tools.CatalogResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves systemIds through {@link JlibsResolverBridge} against catalogs of growing size, with and without the
+ * reference cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolverBridgeBenchmark {
+
+  private static final String SYSTEM_ID_PREFIX = "http://bench.internal/types/";
+
+  @Param({"100", "1000", "10000"})
+  private int catalogSize;
+
+  /**
+   * 0 disables the cache of the bridge
+   */
+  @Param({"0", "10000"})
+  private int cacheSize;
+
+  private Path dir;
+
+  private JlibsResolverBridge bridge;
+
+  private String[] locations;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Fixtures.createTempDirectory("resolver-bridge");
+    Path catalog = Fixtures.writeSystemCatalog(dir.resolve("catalog.xml"), SYSTEM_ID_PREFIX, "schemas/", catalogSize);
+    bridge = new JlibsResolverBridge(new CatalogResolver(Fixtures.catalogManager(catalog.toUri().toURL())), cacheSize);
+    Random random = new Random(42);
+    locations = new String[1024];
+    for (int i = 0; i < locations.length; i++) {
+      locations[i] = SYSTEM_ID_PREFIX + Fixtures.schemaName(random.nextInt(catalogSize));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Fixtures.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  public String resolve() {
+    return bridge.resolve(null, null, locations[next++ & (locations.length - 1)]);
+  }
+
+}
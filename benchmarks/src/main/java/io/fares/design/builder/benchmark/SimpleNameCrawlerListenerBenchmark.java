@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder.benchmark;
+
+import io.fares.maven.plugins.design.builder.flattener.OutputNameRegistry;
+import io.fares.maven.plugins.design.builder.flattener.SimpleNameCrawlerListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocates output names for {@value #URLS} crawled documents through {@link SimpleNameCrawlerListener#toFile(URL,
+ * String)}. Few distinct names means many documents compete for the same file name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimpleNameCrawlerListenerBenchmark {
+
+  static final int URLS = 10000;
+
+  @Param({"10", "1000", "10000"})
+  private int distinctNames;
+
+  private File outputDirectory;
+
+  private URL[] urls;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    // never created, the registry is told to override existing files so the directory is not consulted
+    outputDirectory = new File(System.getProperty("java.io.tmpdir"), "design-builder-listener-bench");
+    urls = new URL[URLS];
+    for (int i = 0; i < URLS; i++) {
+      urls[i] = new URL("http://bench.internal/service" + i + "/" + Fixtures.schemaName(i % distinctNames));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(URLS)
+  public void toFile(Blackhole bh) {
+    SimpleNameCrawlerListener listener = new SimpleNameCrawlerListener(outputDirectory,
+      new OutputNameRegistry(outputDirectory, true));
+    for (URL url : urls) {
+      bh.consume(listener.toFile(url, "xsd"));
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.catalog;
+
+import io.fares.design.builder.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the publicId of {@value #SCHEMAS} schema files through {@link AbstractCatalogWriter#constructEntityId}.
+ * <code>cold</code> reads every schema, <code>warm</code> answers from the schema metadata read by an earlier
+ * writer of the same catalog. Lives in the catalog package since the writer API is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructEntityIdBenchmark {
+
+  static final int SCHEMAS = 500;
+
+  @Param({"false", "true"})
+  private boolean appendSchemaFile;
+
+  private Path dir;
+
+  private File[] schemaFiles;
+
+  private PublicOption option;
+
+  private PublicCatalogWriter warmWriter;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Fixtures.createTempDirectory("entity-id");
+    List<Path> schemas = Fixtures.writeSchemas(dir, SCHEMAS);
+    schemaFiles = new File[schemas.size()];
+    for (int i = 0; i < schemaFiles.length; i++) {
+      schemaFiles[i] = schemas.get(i).toFile();
+    }
+    option = new PublicOption();
+    option.setAppendSchemaFile(appendSchemaFile);
+    warmWriter = new PublicCatalogWriter(option, dir.toUri());
+    for (File schemaFile : schemaFiles) {
+      warmWriter.constructEntityId(option, schemaFile);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Fixtures.deleteRecursively(dir);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SCHEMAS)
+  public void cold(Blackhole bh) throws Exception {
+    PublicCatalogWriter writer = new PublicCatalogWriter(option, dir.toUri());
+    for (File schemaFile : schemaFiles) {
+      bh.consume(writer.constructEntityId(option, schemaFile));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SCHEMAS)
+  public void warm(Blackhole bh) throws Exception {
+    for (File schemaFile : schemaFiles) {
+      bh.consume(warmWriter.constructEntityId(option, schemaFile));
+    }
+  }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and timers collected while a build runs. All methods can be called concurrently by the flatten
+ * workers.
+ * <p>
+ * Components that are not handed an instance record into {@link #DISABLED}, which ignores everything, so the
+ * instrumented code never has to check for null.
+ */
+public final class BuildMetrics {
+
+  /**
+   * metrics that record nothing
+   */
+  public static final BuildMetrics DISABLED = new BuildMetrics(false);
+
+  private final boolean enabled;
+
+  private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * wall time of every flattened root
+   */
+  private final ConcurrentMap<String, Long> roots = new ConcurrentHashMap<>();
+
+  public BuildMetrics() {
+    this(true);
+  }
+
+  private BuildMetrics(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void increment(String counter) {
+    add(counter, 1);
+  }
+
+  public void add(String counter, long delta) {
+    if (enabled) {
+      counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+  }
+
+  /**
+   * @return a start mark to be handed back to {@link #stop(String, long)}
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Record the time passed since a mark obtained from {@link #start()}.
+   */
+  public void stop(String timer, long start) {
+    if (enabled) {
+      record(timer, System.nanoTime() - start);
+    }
+  }
+
+  public void record(String timer, long nanos) {
+    if (enabled) {
+      timers.computeIfAbsent(timer, k -> new Timer()).record(nanos);
+    }
+  }
+
+  /**
+   * Record the wall time it took to flatten a single root resource.
+   */
+  public void recordRoot(String root, long nanos) {
+    if (enabled) {
+      roots.merge(root, nanos, Long::sum);
+    }
+  }
+
+  public long getCount(String counter) {
+    LongAdder adder = counters.get(counter);
+    return adder != null ? adder.sum() : 0L;
+  }
+
+  /**
+   * @return the number of times the timer was recorded
+   */
+  public long getTimerCount(String timer) {
+    Timer t = timers.get(timer);
+    return t != null ? t.count.sum() : 0L;
+  }
+
+  /**
+   * @return the total time recorded by the timer in nanoseconds
+   */
+  public long getTimerTotal(String timer) {
+    Timer t = timers.get(timer);
+    return t != null ? t.total.sum() : 0L;
+  }
+
+  /**
+   * @return the lines of a table listing every counter and timer, sorted by name
+   */
+  public List<String> summary() {
+
+    List<String> lines = new ArrayList<>();
+
+    int width = 10;
+    for (String name : counters.keySet())
+      width = Math.max(width, name.length());
+    for (String name : timers.keySet())
+      width = Math.max(width, name.length());
+
+    String counterRow = "%-" + width + "s %12s";
+    String timerRow = "%-" + width + "s %12s %12s %12s";
+
+    if (!counters.isEmpty()) {
+      lines.add(String.format(Locale.ROOT, counterRow, "counter", "value"));
+      for (Map.Entry<String, Long> counter : counterValues().entrySet()) {
+        lines.add(String.format(Locale.ROOT, counterRow, counter.getKey(), counter.getValue()));
+      }
+    }
+
+    if (!timers.isEmpty()) {
+      lines.add(String.format(Locale.ROOT, timerRow, "timer", "count", "total ms", "max ms"));
+      for (Map.Entry<String, Timer> timer : new TreeMap<>(timers).entrySet()) {
+        Timer t = timer.getValue();
+        lines.add(String.format(Locale.ROOT, timerRow, timer.getKey(), t.count.sum(),
+          millis(t.total.sum()), millis(t.max.get())));
+      }
+    }
+
+    if (!roots.isEmpty()) {
+      lines.add(String.format(Locale.ROOT, counterRow, "slowest root", "ms"));
+      List<Map.Entry<String, Long>> slowest = new ArrayList<>(roots.entrySet());
+      slowest.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+      for (Map.Entry<String, Long> root : slowest.subList(0, Math.min(5, slowest.size()))) {
+        lines.add(String.format(Locale.ROOT, counterRow, root.getKey(), millis(root.getValue())));
+      }
+    }
+
+    return lines;
+
+  }
+
+  /**
+   * @return every counter, timer and root time as a JSON document, times are reported in milliseconds
+   */
+  public String toJson() {
+
+    StringBuilder json = new StringBuilder();
+    json.append("{\n  \"counters\": {");
+
+    String sep = "\n";
+    for (Map.Entry<String, Long> counter : counterValues().entrySet()) {
+      json.append(sep).append("    ").append(quote(counter.getKey())).append(": ").append(counter.getValue());
+      sep = ",\n";
+    }
+
+    json.append(counters.isEmpty() ? "" : "\n  ").append("},\n  \"timers\": {");
+
+    sep = "\n";
+    for (Map.Entry<String, Timer> timer : new TreeMap<>(timers).entrySet()) {
+      Timer t = timer.getValue();
+      json.append(sep).append("    ").append(quote(timer.getKey()))
+        .append(": { \"count\": ").append(t.count.sum())
+        .append(", \"totalMillis\": ").append(millis(t.total.sum()))
+        .append(", \"maxMillis\": ").append(millis(t.max.get()))
+        .append(" }");
+      sep = ",\n";
+    }
+
+    json.append(timers.isEmpty() ? "" : "\n  ").append("},\n  \"roots\": {");
+
+    sep = "\n";
+    for (Map.Entry<String, Long> root : new TreeMap<>(roots).entrySet()) {
+      json.append(sep).append("    ").append(quote(root.getKey())).append(": ").append(millis(root.getValue()));
+      sep = ",\n";
+    }
+
+    json.append(roots.isEmpty() ? "" : "\n  ").append("}\n}\n");
+
+    return json.toString();
+
+  }
+
+  /**
+   * Write the {@link #toJson() JSON report} to a file, missing parent directories are created.
+   */
+  public void writeJson(File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      Files.createDirectories(parent.toPath());
+    }
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(toJson());
+    }
+  }
+
+  private Map<String, Long> counterValues() {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+      values.put(counter.getKey(), counter.getValue().sum());
+    }
+    return values;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          quoted.append("\\\"");
+          break;
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        case '\n':
+          quoted.append("\\n");
+          break;
+        case '\r':
+          quoted.append("\\r");
+          break;
+        case '\t':
+          quoted.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static final class Timer {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    void record(long nanos) {
+      count.increment();
+      total.add(nanos);
+      max.accumulate(nanos);
+    }
+
+  }
+
+}
@@ -0,0 +1,518 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+
+import org.apache.xml.resolver.Catalog;
+import org.apache.xml.resolver.CatalogEntry;
+import org.apache.xml.resolver.CatalogException;
+import org.apache.xml.resolver.CatalogManager;
+import org.apache.xml.resolver.helpers.PublicId;
+import org.apache.xml.resolver.readers.CatalogReader;
+
+/**
+ * A {@link Catalog} that compiles its entries into lookup structures instead of walking the entry list for every
+ * request. <code>system</code>, <code>uri</code> and <code>public</code> entries are kept in hash maps,
+ * <code>rewriteSystem</code>, <code>rewriteURI</code>, <code>systemSuffix</code> and <code>uriSuffix</code> entries in
+ * tries that find the longest match in a single walk over the key.
+ * <p>
+ * The subordinate catalogs (the further catalogs handed to the {@link CatalogManager} and any
+ * <code>nextCatalog</code>) are compiled into one combined structure that remembers which catalog every entry came
+ * from, so a lookup costs the same no matter how many catalogs are aggregated while the first catalog with a match
+ * still wins, exactly as with the plain {@link Catalog}.
+ * <p>
+ * Catalogs with delegate entries or entry types only found in TR9401 catalogs are left to the plain {@link Catalog}
+ * implementation, as is any lookup on Windows where system identifiers are compared ignoring case.
+ * <p>
+ * To use it set the catalog class name of the catalog manager:
+ * <pre>
+ *   catalogManager.setCatalogClassName(CompiledCatalog.class.getName());
+ * </pre>
+ * With a {@link JarFileCatalogManager} catalog files inside jars are read from its shared {@link JarFileCache}.
+ */
+public class CompiledCatalog extends Catalog {
+
+  private static final Logger log = LoggerFactory.getLogger(CompiledCatalog.class);
+
+  private static final boolean WINDOWS = System.getProperty("os.name", "").contains("Windows");
+
+  /**
+   * the entries of this catalog, null if they cannot be compiled
+   */
+  private Index local;
+
+  private int localSize = -1;
+
+  /**
+   * the entries of all subordinate catalogs, null if they cannot be compiled
+   */
+  private Index subordinates;
+
+  private int subordinatesSize = -1;
+
+  /**
+   * the catalog files parsed into this catalog
+   */
+  private final List<String> files = new ArrayList<>();
+
+  public CompiledCatalog() {
+  }
+
+  public CompiledCatalog(CatalogManager manager) {
+    super(manager);
+  }
+
+  @Override
+  protected String resolveLocalSystem(String systemId) throws MalformedURLException, IOException {
+    Index index = localIndex();
+    if (index == null) {
+      return super.resolveLocalSystem(systemId);
+    }
+    return Match.valueOf(index.system(systemId));
+  }
+
+  @Override
+  protected String resolveLocalURI(String uri) throws MalformedURLException, IOException {
+    Index index = localIndex();
+    if (index == null) {
+      return super.resolveLocalURI(uri);
+    }
+    return Match.valueOf(index.uri(uri));
+  }
+
+  @Override
+  protected synchronized String resolveLocalPublic(int entityType, String entityName, String publicId, String systemId)
+    throws MalformedURLException, IOException {
+    Index index = localIndex();
+    if (index == null) {
+      return super.resolveLocalPublic(entityType, entityName, publicId, systemId);
+    }
+    return Match.valueOf(index.publicId(PublicId.normalize(publicId), systemId));
+  }
+
+  @Override
+  protected synchronized String resolveSubordinateCatalogs(int entityType, String entityName, String publicId, String systemId)
+    throws MalformedURLException, IOException {
+
+    if (entityType == SYSTEM || entityType == URI || (entityType == PUBLIC && publicId != null)) {
+      Index index = subordinateIndex();
+      if (index != null) {
+        if (entityType == SYSTEM) {
+          return Match.valueOf(index.system(systemId));
+        } else if (entityType == URI) {
+          return Match.valueOf(index.uri(systemId));
+        } else {
+          return Match.valueOf(index.publicId(PublicId.normalize(publicId), systemId));
+        }
+      }
+    }
+
+    return super.resolveSubordinateCatalogs(entityType, entityName, publicId, systemId);
+
+  }
+
+  @Override
+  protected synchronized void parseCatalogFile(String fileName) throws MalformedURLException, IOException, CatalogException {
+
+    files.add(fileName);
+
+    JarFileCache jarFiles = catalogManager instanceof JarFileCatalogManager
+      ? ((JarFileCatalogManager) catalogManager).getJarFileCache()
+      : null;
+
+    // a catalog shared beyond the life of the cache reads its remaining catalog files the plain way
+    if (jarFiles == null || jarFiles.isClosed() || !fileName.startsWith("jar:file:")) {
+      super.parseCatalogFile(fileName);
+      return;
+    }
+
+    // same as the plain catalog, relative entries resolve against the location of the catalog file
+    catalogCwd = new URL("file:" + fixSlashes(System.getProperty("user.dir")) + "/basename");
+    base = new URL(fileName);
+
+    catalogManager.debug.message(2, "Loading catalog", fileName);
+    catalogManager.debug.message(4, "Default BASE", base.toString());
+
+    for (int i = 0; i < readerArr.size(); i++) {
+      CatalogReader reader = (CatalogReader) readerArr.get(i);
+      InputStream in;
+      try {
+        in = jarFiles.openStream(base);
+      } catch (FileNotFoundException e) {
+        catalogManager.debug.message(3, "Catalog does not exist", fileName);
+        return;
+      } catch (IOException e) {
+        if (!jarFiles.isClosed()) {
+          throw e;
+        }
+        // closed while this catalog was loading
+        super.parseCatalogFile(fileName);
+        return;
+      }
+      try (InputStream stream = in) {
+        reader.readCatalog(this, stream);
+        return;
+      } catch (CatalogException e) {
+        if (e.getExceptionType() == CatalogException.PARSE_FAILED) {
+          break;
+        }
+      }
+    }
+
+    catalogManager.debug.message(1, "Failed to parse catalog", fileName);
+
+  }
+
+  /**
+   * Collect the target of every mapping entry of this catalog and its subordinate catalogs without resolving a single
+   * reference. Subordinate catalogs are loaded on the way, the same as the first lookup would.
+   *
+   * @return the distinct targets in lookup order, catalogs that are not compiled catalogs are not included
+   */
+  public synchronized List<String> getEntryTargets() {
+
+    List<CompiledCatalog> order = new ArrayList<>();
+    order.add(this);
+    collect(this, order);
+
+    Set<String> targets = new LinkedHashSet<>();
+    for (CompiledCatalog catalog : order) {
+      for (int i = 0; i < catalog.catalogEntries.size(); i++) {
+        CatalogEntry e = (CatalogEntry) catalog.catalogEntries.elementAt(i);
+        int type = e.getEntryType();
+        if (type == PUBLIC || type == SYSTEM || type == URI || type == REWRITE_SYSTEM || type == REWRITE_URI
+          || type == SYSTEM_SUFFIX || type == URI_SUFFIX) {
+          targets.add(e.getEntryArg(1));
+        }
+      }
+    }
+
+    return new ArrayList<>(targets);
+
+  }
+
+  /**
+   * Collect every catalog file this catalog and its subordinate catalogs were read from. Subordinate catalogs are
+   * loaded on the way, the same as the first lookup would.
+   *
+   * @return the distinct catalog files in lookup order, catalogs that are not compiled catalogs are not included
+   */
+  public synchronized List<String> getCatalogFiles() {
+
+    List<CompiledCatalog> order = new ArrayList<>();
+    order.add(this);
+    collect(this, order);
+
+    Set<String> catalogFiles = new LinkedHashSet<>();
+    for (CompiledCatalog catalog : order) {
+      catalogFiles.addAll(catalog.files);
+    }
+
+    return new ArrayList<>(catalogFiles);
+
+  }
+
+  private synchronized Index localIndex() {
+    if (WINDOWS) {
+      return null;
+    }
+    if (localSize != catalogEntries.size()) {
+      local = Index.of(Collections.singletonList(this));
+      localSize = catalogEntries.size();
+    }
+    return local;
+  }
+
+  private synchronized Index subordinateIndex() {
+    if (WINDOWS) {
+      return null;
+    }
+    if (subordinatesSize != catalogs.size()) {
+      List<CompiledCatalog> order = new ArrayList<>();
+      subordinates = collect(this, order) ? Index.of(order) : null;
+      subordinatesSize = catalogs.size();
+      if (log.isDebugEnabled()) {
+        log.debug("compiled {} subordinate catalogs: {}", order.size(), subordinates != null ? "ok" : "not supported");
+      }
+    }
+    return subordinates;
+  }
+
+  /**
+   * Load the subordinate catalogs of a catalog in the order the plain {@link Catalog} would visit them: each
+   * subordinate followed by its own subordinates.
+   *
+   * @return false if a subordinate is not a compiled catalog
+   */
+  private static boolean collect(CompiledCatalog parent, List<CompiledCatalog> order) {
+
+    for (int i = 0; i < parent.catalogs.size(); i++) {
+
+      Object element = parent.catalogs.elementAt(i);
+
+      Catalog c;
+      if (element instanceof Catalog) {
+        c = (Catalog) element;
+      } else {
+        String catfile = (String) element;
+        c = parent.newCatalog();
+        try {
+          c.parseCatalog(catfile);
+        } catch (IOException e) {
+          // same as the plain catalog, a catalog that cannot be loaded simply has no entries
+          log.debug("Failed to load catalog " + catfile, e);
+        }
+        parent.catalogs.setElementAt(c, i);
+      }
+
+      if (!(c instanceof CompiledCatalog)) {
+        return false;
+      }
+
+      CompiledCatalog compiled = (CompiledCatalog) c;
+      order.add(compiled);
+      if (!collect(compiled, order)) {
+        return false;
+      }
+
+    }
+
+    return true;
+
+  }
+
+  /**
+   * The compiled entries of one or more catalogs. Every match remembers the position of the catalog it came from,
+   * the match of the earliest catalog wins.
+   */
+  static final class Index {
+
+    private final Map<String, Match> system = new HashMap<>();
+
+    private final Map<String, Match> uri = new HashMap<>();
+
+    /**
+     * the first public entry for an identifier
+     */
+    private final Map<String, Match> publicIds = new HashMap<>();
+
+    /**
+     * the first public entry for an identifier that may override a system identifier
+     */
+    private final Map<String, Match> publicOverrides = new HashMap<>();
+
+    private final Trie rewriteSystem = new Trie(false);
+
+    private final Trie rewriteUri = new Trie(false);
+
+    private final Trie systemSuffix = new Trie(true);
+
+    private final Trie uriSuffix = new Trie(true);
+
+    /**
+     * @param catalogs the catalogs in lookup order
+     * @return the compiled entries or null if a catalog has entries that are not supported
+     */
+    static Index of(List<CompiledCatalog> catalogs) {
+
+      Index index = new Index();
+
+      for (int ordinal = 0; ordinal < catalogs.size(); ordinal++) {
+
+        CompiledCatalog catalog = catalogs.get(ordinal);
+        boolean over = catalog.default_override;
+
+        for (int i = 0; i < catalog.catalogEntries.size(); i++) {
+
+          CatalogEntry e = (CatalogEntry) catalog.catalogEntries.elementAt(i);
+          int type = e.getEntryType();
+          String key = e.getEntryArg(0);
+
+          if (type == OVERRIDE) {
+            over = key.equalsIgnoreCase("YES");
+          } else if (type == PUBLIC) {
+            Match match = new Match(ordinal, e.getEntryArg(1), key.length());
+            index.publicIds.putIfAbsent(key, match);
+            if (over) {
+              index.publicOverrides.putIfAbsent(key, match);
+            }
+          } else if (type == SYSTEM) {
+            index.system.putIfAbsent(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else if (type == URI) {
+            index.uri.putIfAbsent(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else if (type == REWRITE_SYSTEM) {
+            index.rewriteSystem.put(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else if (type == REWRITE_URI) {
+            index.rewriteUri.put(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else if (type == SYSTEM_SUFFIX) {
+            index.systemSuffix.put(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else if (type == URI_SUFFIX) {
+            index.uriSuffix.put(key, new Match(ordinal, e.getEntryArg(1), key.length()));
+          } else {
+            // delegates and TR9401 entries are left to the plain catalog
+            return null;
+          }
+
+        }
+
+      }
+
+      return index;
+
+    }
+
+    Match system(String systemId) {
+      if (systemId == null) {
+        return null;
+      }
+      return first(
+        system.get(systemId),
+        rewrite(rewriteSystem.longest(systemId), systemId),
+        systemSuffix.longest(systemId));
+    }
+
+    Match uri(String uriRef) {
+      if (uriRef == null) {
+        return null;
+      }
+      return first(
+        uri.get(uriRef),
+        rewrite(rewriteUri.longest(uriRef), uriRef),
+        uriSuffix.longest(uriRef));
+    }
+
+    Match publicId(String publicId, String systemId) {
+      Match publicMatch = (systemId == null ? publicIds : publicOverrides).get(publicId);
+      return first(system(systemId), publicMatch);
+    }
+
+    private static Match rewrite(Match prefix, String key) {
+      if (prefix == null) {
+        return null;
+      }
+      return new Match(prefix.ordinal, prefix.value + key.substring(prefix.length), key.length());
+    }
+
+    /**
+     * @return the match of the earliest catalog, on a tie the match listed first
+     */
+    private static Match first(Match... matches) {
+      Match first = null;
+      for (Match match : matches) {
+        if (match != null && (first == null || match.ordinal < first.ordinal)) {
+          first = match;
+        }
+      }
+      return first;
+    }
+
+  }
+
+  /**
+   * A character trie over entry prefixes (or suffixes) finding the longest entry that matches a key.
+   */
+  static final class Trie {
+
+    private final boolean suffix;
+
+    private final Node root = new Node();
+
+    Trie(boolean suffix) {
+      this.suffix = suffix;
+    }
+
+    void put(String key, Match match) {
+      Node node = root;
+      int length = key.length();
+      for (int i = 0; i < length; i++) {
+        char c = key.charAt(suffix ? length - 1 - i : i);
+        node = node.children.computeIfAbsent(c, k -> new Node());
+      }
+      // like the plain catalog, the first of two equal entries wins
+      if (node.match == null) {
+        node.match = match;
+      }
+    }
+
+    /**
+     * @return the longest entry of the earliest catalog matching the key
+     */
+    Match longest(String key) {
+      Match best = root.match;
+      Node node = root;
+      int length = key.length();
+      for (int i = 0; i < length; i++) {
+        node = node.children.get(key.charAt(suffix ? length - 1 - i : i));
+        if (node == null) {
+          break;
+        }
+        if (node.match != null && (best == null || node.match.ordinal <= best.ordinal)) {
+          best = node.match;
+        }
+      }
+      return best;
+    }
+
+    private static final class Node {
+
+      private final Map<Character, Node> children = new HashMap<>(4);
+
+      private Match match;
+
+    }
+
+  }
+
+  static final class Match {
+
+    private final int ordinal;
+
+    private final String value;
+
+    private final int length;
+
+    Match(int ordinal, String value, int length) {
+      this.ordinal = ordinal;
+      this.value = value;
+      this.length = length;
+    }
+
+    static String valueOf(Match match) {
+      return match != null ? match.value : null;
+    }
+
+  }
+
+}
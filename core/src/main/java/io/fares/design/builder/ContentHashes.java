@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the content hash of every local document a crawl reads, while the crawl reads it. Whoever records the
+ * inputs of a build afterwards does not have to open the documents a second time.
+ * <p>
+ * Only documents on the local file system, directly or inside an archive, are hashed. Anything else is fetched from
+ * somewhere that can change without notice and is never trusted to be unchanged.
+ */
+public class ContentHashes {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+  /**
+   * @param url the external form of the document URL
+   * @return the hex encoded content hash of the document or null if it has not been read in full
+   */
+  public String get(String url) {
+    return hashes.get(url);
+  }
+
+  /**
+   * Hash a document unless it has been hashed already. Local documents are remembered, so everyone asking for the
+   * same document reads it once.
+   *
+   * @param url          the document
+   * @param jarFileCache the archives to read entries of jars from, may be null
+   * @return the hex encoded content hash of the document
+   * @throws IOException if the document cannot be read
+   */
+  public String hash(URL url, JarFileCache jarFileCache) throws IOException {
+    String hash = hashes.get(url.toExternalForm());
+    if (hash != null) {
+      return hash;
+    }
+    try (InputStream in = jarFileCache != null ? jarFileCache.openStream(url) : url.openStream()) {
+      hash = hash(in);
+    }
+    if (isLocal(url)) {
+      hashes.put(url.toExternalForm(), hash);
+    }
+    return hash;
+  }
+
+  /**
+   * @return the number of documents hashed so far
+   */
+  public int size() {
+    return hashes.size();
+  }
+
+  /**
+   * Hash a document while it is read. The document is read to its end when the stream is closed, the hash is only
+   * kept once all of it has been seen.
+   *
+   * @param url the document
+   * @param in  the stream of the document
+   * @return a stream that hashes what is read or the stream itself if the document is not local
+   */
+  InputStream watch(URL url, InputStream in) {
+    if (!isLocal(url)) {
+      return in;
+    }
+    return new HashingInputStream(in, url.toExternalForm());
+  }
+
+  /**
+   * Keep the hash of a document that was read in full by someone else.
+   */
+  void put(URL url, MessageDigest digest) {
+    hashes.put(url.toExternalForm(), toHex(digest.digest()));
+  }
+
+  /**
+   * @param url the document
+   * @return true if the document is a file or an entry of an archive on the local file system
+   */
+  public static boolean isLocal(URL url) {
+    String protocol = url.getProtocol();
+    return "file".equals(protocol) || "jar".equals(protocol) && url.toExternalForm().startsWith("jar:file:");
+  }
+
+  /**
+   * Hash the content of a stream.
+   *
+   * @param in the content, the stream is read to the end but not closed
+   * @return the hex encoded content hash
+   * @throws IOException if the stream cannot be read
+   */
+  public static String hash(InputStream in) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      digest.update(buffer, 0, read);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Hash a list of values.
+   *
+   * @param values the values to hash, in order
+   * @return the hex encoded hash
+   */
+  public static String hash(List<String> values) {
+    MessageDigest digest = newDigest();
+    for (String value : values) {
+      digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    return toHex(digest.digest());
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Hashes what passes through, parsers may stop before the end of a document so the rest is read on close.
+   */
+  private final class HashingInputStream extends DigestInputStream {
+
+    private final String url;
+
+    private boolean closed;
+
+    HashingInputStream(InputStream in, String url) {
+      super(in, newDigest());
+      this.url = url;
+    }
+
+    @Override
+    public boolean markSupported() {
+      // a reset would hash the same bytes twice
+      return false;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes still have to be hashed
+      byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(n, 0))];
+      int read = buffer.length > 0 ? read(buffer, 0, buffer.length) : 0;
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (read(buffer, 0, buffer.length) != -1) {
+          // hash the part the parser did not need
+        }
+        hashes.put(url, toHex(getMessageDigest().digest()));
+      } finally {
+        super.close();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Copies documents that cannot contain a reference to another document byte for byte instead of parsing and writing
+ * them again. Leaf type libraries without imports or includes are common and gain nothing from being flattened.
+ * <p>
+ * The check is a single scan over the raw bytes for an element named <code>import</code>, <code>include</code> or
+ * <code>redefine</code> with any prefix. It errs on the safe side: a name found in a comment or a document that is
+ * not in an ASCII compatible encoding is left to the parser.
+ */
+public final class CopyThrough {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private CopyThrough() {
+  }
+
+  /**
+   * Copy a document to its output file if it does not reference other documents. Local files are transferred by the
+   * file system, archive entries are copied while they are scanned. Any other document is not read at all.
+   *
+   * @param url          the document to copy
+   * @param file         the output file
+   * @param jarFileCache the archives entries are read from, may be null
+   * @return true if the document was copied, false if it has to be flattened, the output file may then hold part of
+   * the document
+   * @throws IOException if the document cannot be read or the output file cannot be written
+   */
+  public static boolean copyIfReferenceFree(URL url, File file, JarFileCache jarFileCache) throws IOException {
+    return copyIfReferenceFree(url, file, jarFileCache, null);
+  }
+
+  /**
+   * Copy a document like {@link #copyIfReferenceFree(URL, File, JarFileCache)} and hash it while it is scanned.
+   *
+   * @param url          the document to copy
+   * @param file         the output file
+   * @param jarFileCache the archives entries are read from, may be null
+   * @param hashes       collects the hash of a copied document, may be null
+   * @return true if the document was copied, false if it has to be flattened, the output file may then hold part of
+   * the document
+   * @throws IOException if the document cannot be read or the output file cannot be written
+   */
+  public static boolean copyIfReferenceFree(URL url, File file, JarFileCache jarFileCache, ContentHashes hashes)
+    throws IOException {
+    MessageDigest digest = hashes != null ? ContentHashes.newDigest() : null;
+    boolean copied = false;
+    if ("file".equals(url.getProtocol())) {
+      File source = toFile(url);
+      copied = source != null && transferIfReferenceFree(source, file, digest);
+    } else if ("jar".equals(url.getProtocol()) && url.toExternalForm().startsWith("jar:file:")) {
+      try (InputStream in = jarFileCache != null ? jarFileCache.openStream(url) : url.openStream()) {
+        copied = copyIfReferenceFree(in, file, digest);
+      }
+    }
+    if (copied && digest != null) {
+      hashes.put(url, digest);
+    }
+    return copied;
+  }
+
+  private static boolean transferIfReferenceFree(File source, File file, MessageDigest digest) throws IOException {
+
+    try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+
+      Scanner scanner = new Scanner();
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (in.read(buffer) > 0) {
+        buffer.flip();
+        if (scanner.mayReference(buffer.array(), 0, buffer.limit())) {
+          return false;
+        }
+        if (digest != null) {
+          digest.update(buffer.array(), 0, buffer.limit());
+        }
+        buffer.clear();
+      }
+
+      try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+        long size = in.size();
+        long position = 0;
+        while (position < size) {
+          position += in.transferTo(position, size - position, out);
+        }
+      }
+
+    }
+
+    return true;
+
+  }
+
+  private static boolean copyIfReferenceFree(InputStream in, File file, MessageDigest digest) throws IOException {
+    Scanner scanner = new Scanner();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (OutputStream out = Files.newOutputStream(file.toPath())) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        if (scanner.mayReference(buffer, 0, read)) {
+          return false;
+        }
+        out.write(buffer, 0, read);
+        if (digest != null) {
+          digest.update(buffer, 0, read);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param content a complete document
+   * @return true if the document may reference another document
+   */
+  static boolean mayReference(byte[] content) {
+    return new Scanner().mayReference(content, 0, content.length);
+  }
+
+  private static File toFile(URL url) {
+    try {
+      return new File(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Looks at the name following every <code>&lt;</code>, the state is kept across the chunks of a document.
+   */
+  private static final class Scanner {
+
+    private static final int MAX_NAME = 64;
+
+    private final byte[] name = new byte[MAX_NAME];
+
+    private boolean started;
+
+    private boolean inName;
+
+    private int length;
+
+    private int local;
+
+    boolean mayReference(byte[] bytes, int offset, int count) {
+
+      int end = offset + count;
+      int i = offset;
+
+      if (!started && count > 0) {
+        started = true;
+        int b = bytes[offset] & 0xFF;
+        // UTF-16, UTF-32 and anything else that does not start like ASCII needs the parser to decode it
+        if (b != '<' && b != 0xEF && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+          return true;
+        }
+      }
+
+      for (; i < end; i++) {
+        byte b = bytes[i];
+        if (inName) {
+          if (isNameByte(b) && length < MAX_NAME) {
+            name[length++] = b;
+            if (b == ':') {
+              local = length;
+            }
+            continue;
+          }
+          inName = false;
+          if (isReference()) {
+            return true;
+          }
+        }
+        if (b == '<') {
+          inName = true;
+          length = 0;
+          local = 0;
+        }
+      }
+
+      // a name that ends with the document
+      return inName && isReference();
+
+    }
+
+    private boolean isReference() {
+      return matches("import") || matches("include") || matches("redefine");
+    }
+
+    private boolean matches(String localName) {
+      if (length - local != localName.length()) {
+        return false;
+      }
+      for (int i = 0; i < localName.length(); i++) {
+        if (name[local + i] != localName.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isNameByte(byte b) {
+      return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+        || b == ':' || b == '_' || b == '-' || b == '.' || b < 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Counts the bytes read from a document and adds them to a metrics counter once the stream is closed.
+ */
+final class CountingInputStream extends FilterInputStream {
+
+  private final BuildMetrics metrics;
+
+  private final String counter;
+
+  private long count;
+
+  CountingInputStream(InputStream in, BuildMetrics metrics, String counter) {
+    super(in);
+    this.metrics = metrics;
+    this.counter = counter;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      count++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    if (read > 0) {
+      count += read;
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    count += skipped;
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    // a reset would count the same bytes twice
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      metrics.add(counter, count);
+      count = 0;
+    }
+  }
+
+  /**
+   * @return the stream of a document, counted into <code>bytes.read</code> if metrics are enabled and hashed if
+   * hashes are collected
+   */
+  static InputStream open(URL url, JarFileCache jarFileCache, BuildMetrics metrics, ContentHashes hashes)
+    throws IOException {
+    InputStream in = jarFileCache != null ? jarFileCache.openStream(url) : url.openStream();
+    if (hashes != null) {
+      in = hashes.watch(url, in);
+    }
+    return metrics.isEnabled() ? new CountingInputStream(in, metrics, "bytes.read") : in;
+  }
+
+}
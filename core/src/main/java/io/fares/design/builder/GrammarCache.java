@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.xerces.xni.grammars.Grammar;
+
+/**
+ * Compiled schema grammars keyed by the resolved location of the schema document they were compiled from. A cache is
+ * meant to live as long as the build, so a schema imported by any number of documents is only compiled once.
+ * <p>
+ * Grammars are keyed by location rather than by target namespace, so different schemas without a namespace or
+ * sharing a namespace never replace each other.
+ */
+public final class GrammarCache {
+
+  private final ConcurrentMap<String, Grammar> grammars = new ConcurrentHashMap<>();
+
+  /**
+   * @param location the resolved location of a schema document
+   * @return the grammar compiled from the location or null if it has not been compiled yet
+   */
+  public Grammar get(String location) {
+    String key = key(location);
+    return key != null ? grammars.get(key) : null;
+  }
+
+  /**
+   * Remember a compiled grammar, a grammar already compiled from the same location is kept.
+   *
+   * @param location the resolved location the grammar was compiled from
+   * @param grammar  the compiled grammar
+   */
+  public void put(String location, Grammar grammar) {
+    String key = key(location);
+    if (key != null && grammar != null) {
+      grammars.putIfAbsent(key, grammar);
+    }
+  }
+
+  public boolean contains(String location) {
+    return get(location) != null;
+  }
+
+  public int size() {
+    return grammars.size();
+  }
+
+  /**
+   * The resolver hands out plain file paths as well as <code>file:</code> URLs in their various spellings, all of them
+   * map to the same key.
+   *
+   * @return the normalised location or null if there is none
+   */
+  static String key(String location) {
+    if (location == null || location.isEmpty()) {
+      return null;
+    }
+    try {
+      URI uri = new URI(location);
+      if (uri.getScheme() == null) {
+        return new File(location).getAbsoluteFile().toURI().normalize().toString();
+      }
+      if ("file".equals(uri.getScheme()) && uri.isAbsolute() && !uri.isOpaque()) {
+        return new File(uri).toURI().normalize().toString();
+      }
+      return uri.normalize().toString();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      // a file path with characters that are not allowed in a URI
+      return new File(location).getAbsoluteFile().toURI().normalize().toString();
+    }
+  }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.xerces.impl.Constants;
+import org.apache.xerces.impl.xs.XMLSchemaLoader;
+import org.apache.xerces.impl.xs.XSDDescription;
+import org.apache.xerces.xni.XMLResourceIdentifier;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.parser.XMLEntityResolver;
+import org.apache.xerces.xni.parser.XMLErrorHandler;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xni.parser.XMLParseException;
+
+/**
+ * Compiles schema documents into Xerces grammars to prove they are valid. References between schemas are resolved
+ * through the same {@link JlibsResolverBridge} the crawler uses, and the resolved location of every imported schema
+ * is looked up in a shared {@link GrammarCache} first. A schema imported by many documents is therefore compiled once
+ * per cache instead of once per importing document.
+ * <p>
+ * A compiler holds a Xerces schema loader and must not be used by more than one thread at a time, keep one per worker
+ * or hand them out through a {@link ParserPool}. The cache can be shared by any number of compilers.
+ */
+public class GrammarCompiler {
+
+  private static final Logger log = LoggerFactory.getLogger(GrammarCompiler.class);
+
+  private final JlibsResolverBridge resolver;
+
+  private final GrammarCache cache;
+
+  private final XMLSchemaLoader loader;
+
+  /**
+   * the errors reported while compiling the current document
+   */
+  private final List<XMLParseException> errors = new ArrayList<>();
+
+  private JarFileCache jarFileCache;
+
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
+  /**
+   * @param resolver the resolver of schema references
+   * @param cache    the grammars shared with other compilers
+   */
+  public GrammarCompiler(JlibsResolverBridge resolver, GrammarCache cache) {
+    this.resolver = Objects.requireNonNull(resolver, "The resolver must not be null.");
+    this.cache = Objects.requireNonNull(cache, "The grammar cache must not be null.");
+    this.loader = new XMLSchemaLoader();
+    this.loader.setProperty(Constants.XERCES_PROPERTY_PREFIX + Constants.XMLGRAMMAR_POOL_PROPERTY, new Pool());
+    this.loader.setEntityResolver(new Resolver());
+    this.loader.setErrorHandler(new Errors());
+  }
+
+  public GrammarCompiler withJarFileCache(JarFileCache jarFileCache) {
+    this.jarFileCache = jarFileCache;
+    return this;
+  }
+
+  public GrammarCompiler withMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
+    return this;
+  }
+
+  /**
+   * Compile a schema document unless a grammar for its location is already cached.
+   *
+   * @param schema the location of the schema document
+   * @return false if the grammar was already cached
+   * @throws IOException if the document cannot be read or is not a valid schema
+   */
+  public boolean compile(URL schema) throws IOException {
+
+    String location = schema.toExternalForm();
+
+    if (cache.contains(location)) {
+      metrics.increment("grammar.cache.hits");
+      return false;
+    }
+
+    metrics.increment("grammar.cache.misses");
+    long start = metrics.start();
+
+    errors.clear();
+    try {
+      loader.loadGrammar(open(null, location, null));
+    } catch (XNIException e) {
+      Exception cause = e.getException();
+      throw new IOException("Failed to compile schema " + location + ": " + e.getMessage(), cause != null ? cause : e);
+    } finally {
+      metrics.stop("grammar.compile", start);
+    }
+
+    if (!errors.isEmpty()) {
+      XMLParseException first = errors.get(0);
+      IOException failure = new IOException("Schema " + location + " is not valid, " + errors.size() + " error(s): "
+        + describe(first), first);
+      errors.clear();
+      throw failure;
+    }
+
+    return true;
+
+  }
+
+  private XMLInputSource open(String publicId, String location, String base) throws IOException {
+    XMLInputSource source = new XMLInputSource(publicId, location, base);
+    if (jarFileCache != null && location.startsWith("jar:file:")) {
+      source.setByteStream(jarFileCache.openStream(new URL(location)));
+    }
+    return source;
+  }
+
+  /**
+   * @return the resolved location of a referenced schema, null if the reference has no location
+   */
+  private String resolve(XMLResourceIdentifier id) {
+
+    String literal = id.getLiteralSystemId();
+    if (literal == null) {
+      return null;
+    }
+
+    if (id.getBaseSystemId() == null) {
+      return id.getExpandedSystemId() != null ? id.getExpandedSystemId() : literal;
+    }
+
+    // the crawler only hands the namespace of imports to the resolver, includes and redefines share it with the parent
+    String namespace = id instanceof XSDDescription && ((XSDDescription) id).getContextType() == XSDDescription.CONTEXT_IMPORT
+      ? id.getNamespace()
+      : null;
+
+    String resolved = resolver.resolve(namespace, id.getBaseSystemId(), literal);
+    if (resolved == null) {
+      return id.getExpandedSystemId();
+    }
+    return GrammarCache.key(resolved);
+
+  }
+
+  private static String describe(XMLParseException e) {
+    return e.getExpandedSystemId() + ":" + e.getLineNumber() + ":" + e.getColumnNumber() + ": " + e.getMessage();
+  }
+
+  /**
+   * Looks imported schemas up in the shared cache and adds every grammar compiled without errors.
+   */
+  private class Pool implements XMLGrammarPool {
+
+    @Override
+    public Grammar[] retrieveInitialGrammarSet(String grammarType) {
+      // grammars are handed out on request only, the loader keys its own grammars by namespace
+      return new Grammar[0];
+    }
+
+    @Override
+    public void cacheGrammars(String grammarType, Grammar[] grammars) {
+      if (!XMLGrammarDescription.XML_SCHEMA.equals(grammarType) || !errors.isEmpty()) {
+        return;
+      }
+      for (Grammar grammar : grammars) {
+        String location = resolve(grammar.getGrammarDescription());
+        if (location != null) {
+          cache.put(location, grammar);
+        }
+      }
+    }
+
+    @Override
+    public Grammar retrieveGrammar(XMLGrammarDescription description) {
+      if (!XMLGrammarDescription.XML_SCHEMA.equals(description.getGrammarType())) {
+        return null;
+      }
+      String location = resolve(description);
+      Grammar grammar = location != null ? cache.get(location) : null;
+      if (grammar != null) {
+        metrics.increment("grammar.cache.hits");
+        if (log.isDebugEnabled()) {
+          log.debug("reuse grammar of {}", location);
+        }
+      }
+      return grammar;
+    }
+
+    @Override
+    public void lockPool() {
+    }
+
+    @Override
+    public void unlockPool() {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+  }
+
+  private class Resolver implements XMLEntityResolver {
+
+    @Override
+    public XMLInputSource resolveEntity(XMLResourceIdentifier id) throws XNIException, IOException {
+      String location = resolve(id);
+      if (location == null || location.equals(id.getExpandedSystemId()) && id.getBaseSystemId() == null) {
+        return null;
+      }
+      return open(id.getPublicId(), location, id.getBaseSystemId());
+    }
+
+  }
+
+  private class Errors implements XMLErrorHandler {
+
+    @Override
+    public void warning(String domain, String key, XMLParseException exception) throws XNIException {
+      if (log.isWarnEnabled()) {
+        log.warn(describe(exception));
+      }
+    }
+
+    @Override
+    public void error(String domain, String key, XMLParseException exception) throws XNIException {
+      errors.add(exception);
+    }
+
+    @Override
+    public void fatalError(String domain, String key, XMLParseException exception) throws XNIException {
+      errors.add(exception);
+      throw exception;
+    }
+
+  }
+
+}
@@ -0,0 +1,980 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import jlibs.xml.sax.crawl.CrawlerListener;
+import jlibs.xml.sax.crawl.XMLCrawler;
+
+/**
+ * A crawl-once import graph shared by any number of flatten roots. Every resolved document becomes exactly one node
+ * which is parsed and written once, no matter how many roots or documents reference it. References to a document
+ * that has already been emitted are simply rewritten to point at the existing output file.
+ * <p>
+ * With {@link #setDedup(boolean) deduplication} enabled, documents resolved from different locations that have the
+ * same content also end up in a single output file, see {@link #setDedup(boolean)}.
+ * <p>
+ * Documents are written to temporary files and only published once the whole graph has been written. Until then the
+ * files handed out by the listener can still be {@link #setRenames(Supplier) renamed}, e.g. to make names that depend
+ * on the order documents were discovered in the same from run to run.
+ * <p>
+ * The graph uses the same extension points as the jlibs {@link XMLCrawler}: a {@link XMLCrawler.Resolver} to resolve
+ * references and a {@link CrawlerListener} to decide what to crawl and where to write it.
+ */
+public class ImportGraph {
+
+  private static final Logger log = LoggerFactory.getLogger(ImportGraph.class);
+
+  static final String NS_XSD = "http://www.w3.org/2001/XMLSchema";
+
+  static final String NS_WSDL = "http://schemas.xmlsoap.org/wsdl/";
+
+  private static final QName SCHEMA_LOCATION = new QName("schemaLocation");
+
+  private static final QName LOCATION = new QName("location");
+
+  private static final QName NAMESPACE = new QName("namespace");
+
+  /**
+   * discards what is written, the canonical form of a document is only hashed
+   */
+  private static final OutputStream NULL_OUTPUT = new OutputStream() {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  };
+
+  private final XMLCrawler.Resolver resolver;
+
+  private final CrawlerListener listener;
+
+  private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+  private final List<Node> roots = Collections.synchronizedList(new ArrayList<>());
+
+  private final List<IOException> errors = Collections.synchronizedList(new ArrayList<>());
+
+  private final XMLInputFactory inputFactory;
+
+  private final XMLOutputFactory outputFactory;
+
+  private final XMLEventFactory eventFactory;
+
+  private JarFileCache jarFileCache;
+
+  private ContentHashes contentHashes;
+
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
+  private boolean copyThrough;
+
+  private boolean dedup;
+
+  private Supplier<Map<File, File>> renames;
+
+  public ImportGraph(XMLCrawler.Resolver resolver, CrawlerListener listener) {
+    this.resolver = Objects.requireNonNull(resolver, "The resolver must not be null.");
+    this.listener = Objects.requireNonNull(listener, "The crawler listener must not be null.");
+    this.inputFactory = ParserProvider.getInputFactory();
+    this.outputFactory = ParserProvider.getOutputFactory();
+    this.eventFactory = ParserProvider.getEventFactory();
+  }
+
+  /**
+   * Add a flatten root to the graph.
+   *
+   * @param url the document to flatten
+   * @return the node of the root document or null if the listener refused to crawl it
+   */
+  public Node addRoot(URL url) {
+    Node node = nodeFor(url, extensionOf(url, "xsd"));
+    if (node != null) {
+      roots.add(node);
+    }
+    return node;
+  }
+
+  /**
+   * Parse and write every node reachable from the roots. Each node is processed by its own task on the executor and
+   * newly discovered documents are scheduled as soon as the first reference to them is seen.
+   *
+   * @param executor the executor running the node tasks
+   * @throws IOException the first error encountered, any further errors are added as suppressed exceptions
+   */
+  public void flatten(Executor executor) throws IOException {
+
+    Outstanding pending = new Outstanding();
+
+    List<Node> scheduled;
+    synchronized (roots) {
+      scheduled = new ArrayList<>(roots);
+    }
+
+    for (Node root : scheduled) {
+      schedule(root, executor, pending);
+    }
+
+    try {
+      pending.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      discardStaged();
+      throw new IOException("Interrupted while flattening the import graph.", e);
+    }
+
+    if (!errors.isEmpty()) {
+      // nothing is merged, the documents written so far are published as they are
+      publishStaged();
+      IOException first = errors.get(0);
+      for (int i = 1; i < errors.size(); i++) {
+        first.addSuppressed(errors.get(i));
+      }
+      throw first;
+    }
+
+    try {
+      rename();
+      if (dedup) {
+        dedup();
+      }
+      relink();
+    } catch (IOException | RuntimeException e) {
+      discardStaged();
+      throw e;
+    }
+
+    publishStaged();
+
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics to record the bytes read into, null stops recording
+   */
+  public void setMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
+  }
+
+  public JarFileCache getJarFileCache() {
+    return jarFileCache;
+  }
+
+  /**
+   * @param jarFileCache the archives documents inside jars are read from, null opens every document by its URL
+   */
+  public void setJarFileCache(JarFileCache jarFileCache) {
+    this.jarFileCache = jarFileCache;
+  }
+
+  public ContentHashes getContentHashes() {
+    return contentHashes;
+  }
+
+  /**
+   * @param contentHashes collects the hash of every local document read, null does not hash anything
+   */
+  public void setContentHashes(ContentHashes contentHashes) {
+    this.contentHashes = contentHashes;
+  }
+
+  public boolean isCopyThrough() {
+    return copyThrough;
+  }
+
+  /**
+   * @param copyThrough true to copy documents that do not reference other documents byte for byte, see
+   *                    {@link CopyThrough}
+   */
+  public void setCopyThrough(boolean copyThrough) {
+    this.copyThrough = copyThrough;
+  }
+
+  public boolean isDedup() {
+    return dedup;
+  }
+
+  /**
+   * Documents with the same content share one output file. The identity of a document is a hash of its content,
+   * leaving out the locations of the documents it references, combined with the identities of those documents. Copies
+   * of the same schema pulled in through different archives or paths therefore match, as long as they reference
+   * matching documents in the same order. Documents that are part of an import cycle are never merged.
+   * <p>
+   * Once the whole graph is written the duplicates are {@link Node#getTarget() pointed} at one of them and the
+   * documents referencing a duplicate are relinked before anything is published, so unchanged outputs keep their
+   * modification time. Roots always keep their own file.
+   *
+   * @param dedup true to merge documents with the same content
+   */
+  public void setDedup(boolean dedup) {
+    this.dedup = dedup;
+  }
+
+  public Supplier<Map<File, File>> getRenames() {
+    return renames;
+  }
+
+  /**
+   * The files the listener hands out while the graph is written can be provisional. Once every document has been
+   * written, and before anything is published, the renames are asked for the final files. Documents referencing a
+   * renamed document are relinked from their temporary files, nothing is read again.
+   *
+   * @param renames called once the graph has been written without errors, hands back the final file of every document
+   *                whose file changes, keyed by the file the listener handed out
+   */
+  public void setRenames(Supplier<Map<File, File>> renames) {
+    this.renames = renames;
+  }
+
+  /**
+   * @return all documents that are part of the graph
+   */
+  public Collection<Node> getNodes() {
+    return Collections.unmodifiableCollection(nodes.values());
+  }
+
+  private void schedule(Node node, Executor executor, Outstanding pending) {
+
+    if (!node.claim()) {
+      return;
+    }
+
+    pending.increment();
+    try {
+      executor.execute(() -> {
+        try {
+          List<Node> references = write(node);
+          node.writtenAt = System.nanoTime();
+          node.setReferences(references);
+          for (Node reference : references) {
+            schedule(reference, executor, pending);
+          }
+        } catch (IOException e) {
+          node.failure = e;
+          errors.add(e);
+        } catch (RuntimeException e) {
+          node.failure = e;
+          errors.add(new IOException("Failed to flatten " + node.getUrl(), e));
+        } finally {
+          pending.decrement();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      errors.add(new IOException("Failed to schedule " + node.getUrl(), e));
+      pending.decrement();
+    }
+
+  }
+
+  /**
+   * Stream a document into its output file, rewriting the location of every import, include and redefine.
+   *
+   * @param node the document to write
+   * @return the documents referenced by this one
+   * @throws IOException if the document cannot be read or written
+   */
+  private List<Node> write(Node node) throws IOException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("flatten {} to {}", node.getUrl(), node.getFile());
+    }
+
+    File file = node.getFile();
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+      throw new IOException("Failed to create directory " + parent);
+    }
+
+    // write next to the target, it is published once the final names and the duplicates are known
+    Path temp = OutputFiles.createTempFile(file.toPath());
+    boolean staged = false;
+    try {
+      List<Node> references = write(node, temp.toFile());
+      node.staged = temp;
+      staged = true;
+      return references;
+    } finally {
+      if (!staged) {
+        Files.deleteIfExists(temp);
+      }
+    }
+
+  }
+
+  private List<Node> write(Node node, File file) throws IOException {
+
+    if (copyThrough && CopyThrough.copyIfReferenceFree(node.getUrl(), file, jarFileCache, contentHashes)) {
+      // a byte for byte copy reads exactly what it writes
+      metrics.add("bytes.read", file.length());
+      if (dedup) {
+        MessageDigest digest = newDigest();
+        digest.update(Files.readAllBytes(file.toPath()));
+        node.digest = digest.digest();
+      }
+      return new ArrayList<>();
+    }
+
+    String systemId = node.getUrl().toExternalForm();
+
+    try (InputStream in = CountingInputStream.open(node.getUrl(), jarFileCache, metrics, contentHashes)) {
+
+      XMLEventReader reader = inputFactory.createXMLEventReader(systemId, in);
+
+      try {
+
+        String encoding = "UTF-8";
+        if (reader.hasNext() && reader.peek().isStartDocument()) {
+          StartDocument startDocument = (StartDocument) reader.peek();
+          if (startDocument.encodingSet()) {
+            encoding = startDocument.getCharacterEncodingScheme();
+          }
+        }
+
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+          XMLEventWriter writer = outputFactory.createXMLEventWriter(out, encoding);
+          // the same document without the locations of the references that were followed
+          MessageDigest digest = dedup ? newDigest() : null;
+          XMLEventWriter canonical = dedup
+            ? outputFactory.createXMLEventWriter(new DigestOutputStream(NULL_OUTPUT, digest), encoding)
+            : null;
+          List<Node> references = new ArrayList<>();
+          while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            XMLEvent canonicalEvent = event;
+            if (event.isStartElement()) {
+              int followed = references.size();
+              event = rewrite(node, event.asStartElement(), references);
+              if (canonical != null && references.size() > followed) {
+                canonicalEvent = withoutLocation(canonicalEvent.asStartElement());
+              }
+            }
+            writer.add(event);
+            if (canonical != null) {
+              canonical.add(canonicalEvent);
+            }
+          }
+          writer.flush();
+          writer.close();
+          if (canonical != null) {
+            canonical.flush();
+            canonical.close();
+            node.digest = digest.digest();
+          }
+          return references;
+        }
+
+      } finally {
+        reader.close();
+      }
+
+    } catch (XMLStreamException e) {
+      throw new IOException("Failed to flatten " + systemId, e);
+    }
+
+  }
+
+  @SuppressWarnings("unchecked")
+  private StartElement rewrite(Node node, StartElement element, List<Node> references) {
+
+    QName locationAttribute = referenceAttribute(element.getName());
+    if (locationAttribute == null) {
+      return element;
+    }
+
+    Attribute location = element.getAttributeByName(locationAttribute);
+    if (location == null) {
+      return element;
+    }
+
+    Attribute namespace = element.getAttributeByName(NAMESPACE);
+    String resolved = resolver.resolve(
+      namespace != null ? namespace.getValue() : null,
+      node.getUrl().toExternalForm(),
+      location.getValue());
+
+    if (resolved == null) {
+      return element;
+    }
+
+    Node reference;
+    try {
+      URL url = toURL(resolved);
+      String defaultExtension = NS_WSDL.equals(element.getName().getNamespaceURI()) ? "wsdl" : "xsd";
+      reference = nodeFor(url, extensionOf(url, defaultExtension));
+    } catch (MalformedURLException e) {
+      log.warn("Cannot follow reference {} from {}", resolved, node.getUrl());
+      return element;
+    }
+
+    if (reference == null) {
+      return element;
+    }
+
+    references.add(reference);
+
+    List<Attribute> attributes = new ArrayList<>();
+    Iterator<Attribute> it = element.getAttributes();
+    while (it.hasNext()) {
+      Attribute attribute = it.next();
+      if (attribute.getName().equals(locationAttribute)) {
+        attribute = eventFactory.createAttribute(locationAttribute,
+          relativeLocation(node.provisional, reference.provisional));
+      }
+      attributes.add(attribute);
+    }
+
+    return eventFactory.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+
+  }
+
+  @SuppressWarnings("unchecked")
+  private StartElement withoutLocation(StartElement element) {
+    QName locationAttribute = referenceAttribute(element.getName());
+    List<Attribute> attributes = new ArrayList<>();
+    Iterator<Attribute> it = element.getAttributes();
+    while (it.hasNext()) {
+      Attribute attribute = it.next();
+      if (!attribute.getName().equals(locationAttribute)) {
+        attributes.add(attribute);
+      }
+    }
+    return eventFactory.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+  }
+
+  /**
+   * Point every duplicate at the document it is merged into.
+   */
+  private void dedup() {
+
+    Set<Node> rootNodes;
+    synchronized (roots) {
+      rootNodes = new HashSet<>(roots);
+    }
+
+    List<Node> sorted = new ArrayList<>(nodes.values());
+    sorted.sort(Comparator.comparing(node -> node.getUrl().toExternalForm()));
+
+    // group by identity, roots first so a root is the one others are merged into
+    Map<String, Node> byIdentity = new HashMap<>();
+    Map<Node, String> identities = new HashMap<>();
+    List<Node> candidates = new ArrayList<>(sorted.size());
+    for (Node node : sorted) {
+      if (rootNodes.contains(node)) {
+        candidates.add(node);
+      }
+    }
+    for (Node node : sorted) {
+      if (!rootNodes.contains(node)) {
+        candidates.add(node);
+      }
+    }
+
+    List<Node> duplicates = new ArrayList<>();
+    for (Node node : candidates) {
+      String identity = identity(node, identities, new HashSet<>());
+      if (identity == null) {
+        continue;
+      }
+      Node first = byIdentity.putIfAbsent(identity, node);
+      if (first != null && !rootNodes.contains(node)) {
+        node.target = first;
+        duplicates.add(node);
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      for (Node duplicate : duplicates) {
+        log.debug("merge {} into {}", duplicate.getUrl(), duplicate.getTarget().getUrl());
+      }
+    }
+
+  }
+
+  /**
+   * Give every document the final file the renames hand out.
+   */
+  private void rename() {
+    if (renames == null) {
+      return;
+    }
+    Map<File, File> renamed = renames.get();
+    if (renamed.isEmpty()) {
+      return;
+    }
+    for (Node node : nodes.values()) {
+      File file = renamed.get(node.provisional);
+      if (file != null) {
+        node.file = file;
+      }
+    }
+  }
+
+  /**
+   * Change the locations written into the documents whose references were renamed or merged into another document.
+   */
+  private void relink() throws IOException {
+    for (Node node : nodes.values()) {
+      if (node.staged == null || node.isDuplicate()) {
+        continue;
+      }
+      Map<String, String> locations = new HashMap<>();
+      for (Node reference : node.getReferences()) {
+        String written = relativeLocation(node.provisional, reference.provisional);
+        String location = relativeLocation(node.getFile(), reference.getTarget().getFile());
+        if (!written.equals(location)) {
+          locations.put(written, location);
+        }
+      }
+      if (!locations.isEmpty()) {
+        if (log.isDebugEnabled()) {
+          log.debug("relink {} to {}", node.getUrl(), locations);
+        }
+        relink(node, locations);
+      }
+    }
+  }
+
+  private void relink(Node node, Map<String, String> locations) throws IOException {
+
+    Path staged = node.staged;
+    Path temp = OutputFiles.createTempFile(node.getFile().toPath());
+    boolean relinked = false;
+
+    try (InputStream in = Files.newInputStream(staged); OutputStream out = Files.newOutputStream(temp)) {
+
+      XMLEventReader reader = inputFactory.createXMLEventReader(staged.toUri().toString(), in);
+      try {
+        String encoding = "UTF-8";
+        if (reader.hasNext() && reader.peek().isStartDocument()) {
+          StartDocument startDocument = (StartDocument) reader.peek();
+          if (startDocument.encodingSet()) {
+            encoding = startDocument.getCharacterEncodingScheme();
+          }
+        }
+        XMLEventWriter writer = outputFactory.createXMLEventWriter(out, encoding);
+        while (reader.hasNext()) {
+          XMLEvent event = reader.nextEvent();
+          if (event.isStartElement()) {
+            event = relink(event.asStartElement(), locations);
+          }
+          writer.add(event);
+        }
+        writer.flush();
+        writer.close();
+      } finally {
+        reader.close();
+      }
+
+      relinked = true;
+
+    } catch (XMLStreamException e) {
+      throw new IOException("Failed to relink " + node.getUrl(), e);
+    } finally {
+      if (relinked) {
+        node.staged = temp;
+        Files.deleteIfExists(staged);
+      } else {
+        Files.deleteIfExists(temp);
+      }
+    }
+
+  }
+
+  @SuppressWarnings("unchecked")
+  private StartElement relink(StartElement element, Map<String, String> locations) {
+
+    QName locationAttribute = referenceAttribute(element.getName());
+    Attribute location = locationAttribute != null ? element.getAttributeByName(locationAttribute) : null;
+    if (location == null || !locations.containsKey(location.getValue())) {
+      return element;
+    }
+
+    List<Attribute> attributes = new ArrayList<>();
+    Iterator<Attribute> it = element.getAttributes();
+    while (it.hasNext()) {
+      Attribute attribute = it.next();
+      if (attribute.getName().equals(locationAttribute)) {
+        attribute = eventFactory.createAttribute(locationAttribute, locations.get(location.getValue()));
+      }
+      attributes.add(attribute);
+    }
+
+    return eventFactory.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+
+  }
+
+  /**
+   * Move the written documents into their files, the files of duplicates are removed.
+   */
+  private void publishStaged() throws IOException {
+    for (Node node : nodes.values()) {
+      Path staged = node.staged;
+      if (staged == null) {
+        continue;
+      }
+      node.staged = null;
+      if (node.isDuplicate()) {
+        Files.delete(staged);
+        Files.deleteIfExists(node.getFile().toPath());
+      } else {
+        node.unchanged = !OutputFiles.replaceIfChanged(staged, node.getFile().toPath());
+      }
+    }
+  }
+
+  private void discardStaged() {
+    for (Node node : nodes.values()) {
+      Path staged = node.staged;
+      node.staged = null;
+      if (staged != null) {
+        try {
+          Files.deleteIfExists(staged);
+        } catch (IOException e) {
+          log.warn("Failed to remove {}", staged);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the hash of the content of the document combined with the identities of the documents it references or
+   * null if the document cannot be merged, because it failed or is part of an import cycle
+   */
+  private static String identity(Node node, Map<Node, String> identities, Set<Node> path) {
+
+    if (identities.containsKey(node)) {
+      return identities.get(node);
+    }
+
+    if (!path.add(node)) {
+      return null;
+    }
+
+    String identity = null;
+    if (node.digest != null && !node.isFailed()) {
+      MessageDigest digest = newDigest();
+      digest.update(node.digest);
+      digest.update(extensionOf(node.getFile()).getBytes(StandardCharsets.UTF_8));
+      boolean mergeable = true;
+      for (Node reference : node.getReferences()) {
+        String referenced = identity(reference, identities, path);
+        if (referenced == null) {
+          mergeable = false;
+          break;
+        }
+        digest.update(referenced.getBytes(StandardCharsets.UTF_8));
+      }
+      identity = mergeable ? toHex(digest.digest()) : null;
+    }
+
+    path.remove(node);
+    identities.put(node, identity);
+    return identity;
+
+  }
+
+  private static String extensionOf(File file) {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    return dot == -1 ? "" : name.substring(dot);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private Node nodeFor(URL url, String extension) {
+
+    String key = url.toExternalForm();
+
+    Node node = nodes.get(key);
+    if (node != null) {
+      return node;
+    }
+
+    if (!listener.doCrawl(url)) {
+      return null;
+    }
+
+    return nodes.computeIfAbsent(key, k -> new Node(url, listener.toFile(url, extension)));
+
+  }
+
+  /**
+   * @param name the name of an element
+   * @return the attribute that holds the location of the referenced document or null if the element is not a reference
+   */
+  static QName referenceAttribute(QName name) {
+    String ns = name.getNamespaceURI();
+    String local = name.getLocalPart();
+    if (NS_XSD.equals(ns) && ("import".equals(local) || "include".equals(local) || "redefine".equals(local))) {
+      return SCHEMA_LOCATION;
+    } else if (NS_WSDL.equals(ns) && "import".equals(local)) {
+      return LOCATION;
+    }
+    return null;
+  }
+
+  /**
+   * The resolver either hands back a URL or, for resources found relative to the referencing document, a plain file
+   * path.
+   */
+  static URL toURL(String resolved) throws MalformedURLException {
+    URI uri = URI.create(resolved.replace(" ", "%20"));
+    if (uri.getScheme() == null || uri.getScheme().length() == 1) {
+      return new File(resolved).toURI().toURL();
+    }
+    return new URL(resolved);
+  }
+
+  static String extensionOf(URL url, String defaultExtension) {
+    String path = url.getPath();
+    if (path.endsWith(".wsdl")) {
+      return "wsdl";
+    } else if (path.endsWith(".xsd")) {
+      return "xsd";
+    }
+    return defaultExtension;
+  }
+
+  static String relativeLocation(File from, File to) {
+    File fromDir = from.getAbsoluteFile().getParentFile();
+    File toDir = to.getAbsoluteFile().getParentFile();
+    if (fromDir != null && fromDir.equals(toDir)) {
+      return to.getName();
+    }
+    URI base = fromDir == null ? null : fromDir.toURI();
+    URI target = to.getAbsoluteFile().toURI();
+    URI relative = base == null ? target : base.relativize(target);
+    return relative.toString();
+  }
+
+  /**
+   * A document of the import graph.
+   */
+  public static class Node {
+
+    private final URL url;
+
+    /**
+     * the file handed out by the listener, the documents are written with references to it
+     */
+    private final File provisional;
+
+    private volatile File file;
+
+    private boolean claimed;
+
+    private volatile Exception failure;
+
+    private volatile boolean unchanged;
+
+    /**
+     * the hash of the written content without the locations of followed references, only kept when deduplicating
+     */
+    private volatile byte[] digest;
+
+    private volatile Node target = this;
+
+    private volatile long writtenAt;
+
+    /**
+     * the written document waiting to be published
+     */
+    private volatile Path staged;
+
+    private volatile List<Node> references = Collections.emptyList();
+
+    Node(URL url, File file) {
+      this.url = url;
+      this.provisional = file;
+      this.file = file;
+    }
+
+    /**
+     * @return the resolved location of the document
+     */
+    public URL getUrl() {
+      return url;
+    }
+
+    /**
+     * @return the file the flattened document is published as, final once the graph has been flattened
+     */
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * @return the documents referenced by this one, empty until the node has been written
+     */
+    public List<Node> getReferences() {
+      return references;
+    }
+
+    /**
+     * @return true if the document could not be read or written
+     */
+    public boolean isFailed() {
+      return failure != null;
+    }
+
+    /**
+     * @return the reason the document could not be read or written, null unless it failed
+     */
+    public Exception getFailure() {
+      return failure;
+    }
+
+    /**
+     * @return the document whose file holds the flattened content of this one, the node itself unless it was merged
+     * into another document by {@link ImportGraph#setDedup(boolean) deduplication}
+     */
+    public Node getTarget() {
+      return target;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the document was first written, 0 if it was not written
+     */
+    public long getWrittenAt() {
+      return writtenAt;
+    }
+
+    /**
+     * @return true if the document was merged into another one and its own {@link #getFile() file} was removed
+     */
+    public boolean isDuplicate() {
+      return target != this;
+    }
+
+    /**
+     * @return true if the file already held the flattened content and was left untouched
+     */
+    public boolean isUnchanged() {
+      return unchanged;
+    }
+
+    void setReferences(List<Node> references) {
+      this.references = Collections.unmodifiableList(references);
+    }
+
+    /**
+     * @return true exactly once, for the caller that gets to write this node
+     */
+    synchronized boolean claim() {
+      if (claimed) {
+        return false;
+      }
+      claimed = true;
+      return true;
+    }
+
+  }
+
+  /**
+   * Counts the node tasks that have been scheduled but not finished yet.
+   */
+  private static class Outstanding {
+
+    private int count;
+
+    synchronized void increment() {
+      count++;
+    }
+
+    synchronized void decrement() {
+      if (--count == 0) {
+        notifyAll();
+      }
+    }
+
+    synchronized void await() throws InterruptedException {
+      while (count > 0) {
+        wait();
+      }
+    }
+
+  }
+
+}
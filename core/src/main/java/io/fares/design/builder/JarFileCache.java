@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Serves the entries of <code>jar:file:</code> URLs straight from a {@link ZipFile} that is opened once per archive
+ * and shared by all readers, instead of going through a {@link java.net.JarURLConnection} for every document. The
+ * archives stay open until the cache is {@link #close() closed}, which should happen when the build step that
+ * created it ends.
+ * <p>
+ * Any other URL, including nested archives, is opened as usual.
+ */
+public class JarFileCache implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(JarFileCache.class);
+
+  private static final String JAR_SEPARATOR = "!/";
+
+  private final ConcurrentMap<File, ZipFile> archives = new ConcurrentHashMap<>();
+
+  private volatile boolean closed;
+
+  /**
+   * Open a resource, archive entries are read from the shared archive.
+   *
+   * @param url the resource to read
+   * @return the content of the resource
+   * @throws FileNotFoundException if the archive does not contain the entry
+   * @throws IOException           if the resource cannot be read or the cache has been closed
+   */
+  public InputStream openStream(URL url) throws IOException {
+
+    String spec = url.toExternalForm();
+    int separator = spec.indexOf(JAR_SEPARATOR);
+
+    if (!"jar".equals(url.getProtocol()) || separator < 0 || !spec.startsWith("jar:file:")) {
+      return url.openStream();
+    }
+
+    File archive = toFile(spec.substring("jar:".length(), separator));
+    String name = toEntryName(spec.substring(separator + JAR_SEPARATOR.length()));
+
+    if (archive == null || name == null) {
+      return url.openStream();
+    }
+
+    ZipFile zip = archive(archive);
+    ZipEntry entry = zip.getEntry(name);
+    if (entry == null) {
+      throw new FileNotFoundException("Entry " + name + " not found in " + archive);
+    }
+    return zip.getInputStream(entry);
+
+  }
+
+  /**
+   * @return true once the cache has been closed
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * @return the number of archives currently held open
+   */
+  public int size() {
+    return archives.size();
+  }
+
+  /**
+   * Close every archive opened by this cache. Archives can no longer be read afterwards.
+   *
+   * @throws IOException the first failure to close an archive, further failures are added as suppressed exceptions
+   */
+  @Override
+  public void close() throws IOException {
+
+    closed = true;
+
+    IOException failure = null;
+    List<ZipFile> open = new ArrayList<>(archives.values());
+    archives.clear();
+
+    for (ZipFile zip : open) {
+      try {
+        zip.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+
+  }
+
+  private ZipFile archive(File archive) throws IOException {
+
+    if (closed) {
+      throw new IOException("The jar file cache has been closed, cannot read " + archive);
+    }
+
+    try {
+      return archives.computeIfAbsent(archive, file -> {
+        if (log.isDebugEnabled()) {
+          log.debug("open shared archive {}", file);
+        }
+        try {
+          return new ZipFile(file);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+  }
+
+  private static File toFile(String url) {
+    try {
+      return new File(new URI(url));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the decoded entry name or null if the entry cannot be served from the archive, e.g. a nested archive
+   */
+  private static String toEntryName(String path) {
+    if (path.contains(JAR_SEPARATOR) || path.indexOf('#') >= 0 || path.indexOf('?') >= 0) {
+      return null;
+    }
+    if (path.indexOf('%') < 0) {
+      return path;
+    }
+    try {
+      return new URI(path).getPath();
+    } catch (URISyntaxException e) {
+      // only partially encoded, the archive decides whether the entry exists
+      return path;
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.util.Objects;
+
+import org.apache.xml.resolver.CatalogManager;
+
+/**
+ * A {@link CatalogManager} whose {@link CompiledCatalog catalogs} read catalog files packaged in jars through a shared
+ * {@link JarFileCache}.
+ */
+public class JarFileCatalogManager extends CatalogManager {
+
+  private final JarFileCache jarFileCache;
+
+  /**
+   * @param jarFileCache the archives catalog files are read from, the caller closes it when done resolving
+   */
+  public JarFileCatalogManager(JarFileCache jarFileCache) {
+    this.jarFileCache = Objects.requireNonNull(jarFileCache, "The jar file cache must not be null.");
+  }
+
+  public JarFileCache getJarFileCache() {
+    return jarFileCache;
+  }
+
+}
@@ -25,7 +25,14 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.xml.resolver.Catalog;
 import org.apache.xml.resolver.tools.CatalogResolver;
@@ -37,23 +44,190 @@ import jlibs.xml.sax.crawl.XMLCrawler;
 
 /**
  * Implements the "non-standard" JLibs resolver interface delegating through to a configured SAX @{@link EntityResolver}.
+ * <p>
+ * A bridge can be shared by concurrent crawlers. The xml-resolver {@link Catalog} loads subordinate catalogs lazily
+ * while resolving, hence lookups against the catalog are serialised. The lock is the catalog itself, so bridges whose
+ * resolvers share a catalog are serialised as well.
+ * <p>
+ * Resolved locations, including failed lookups, are remembered per namespace, base and location so that the same
+ * reference is only ever resolved once. Once the cache is full the least recently used reference is dropped. Cache
+ * hits do not take the catalog lock.
+ * <p>
+ * When given {@link BuildMetrics} the bridge counts cache hits and which strategy answered each lookup.
+ * <p>
+ * An offline bridge never hands out remote locations, neither from the catalog nor by trusting a reference relative
+ * to a remote document. Every reference it cannot resolve to a local resource is collected as {@link #getMissing()
+ * missing}.
  */
 public class JlibsResolverBridge implements XMLCrawler.Resolver {
 
   private static final Logger log = LoggerFactory.getLogger(JlibsResolverBridge.class);
 
+  /**
+   * default number of resolved references kept in the cache
+   */
+  public static final int DEFAULT_CACHE_SIZE = 10000;
+
+  /**
+   * marks references that could not be resolved
+   */
+  private static final String UNRESOLVED = new String("<unresolved>");
+
   private CatalogResolver resolver;
 
+  private final Map<Key, String> cache;
+
+  private final int maxCacheSize;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
+  private volatile boolean offline;
+
+  private final Set<String> missing = new TreeSet<>();
+
   public JlibsResolverBridge(CatalogResolver resolver) {
+    this(resolver, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param resolver     the catalog resolver doing the actual work
+   * @param maxCacheSize the number of resolved references to remember, 0 disables the cache
+   */
+  public JlibsResolverBridge(CatalogResolver resolver, int maxCacheSize) {
     this.resolver = Objects.requireNonNull(resolver);
+    this.maxCacheSize = maxCacheSize;
+    this.cache = Collections.synchronizedMap(new ResolvedCache(maxCacheSize));
   }
 
   @Override
   public String resolve(String namespace, String base, String location) {
 
+    Key key = new Key(namespace, base, location);
+
+    String result = cache.get(key);
+    if (result != null) {
+      hits.incrementAndGet();
+      metrics.increment("resolver.cache.hits");
+      return result == UNRESOLVED ? null : result;
+    }
+
+    misses.incrementAndGet();
+    metrics.increment("resolver.cache.misses");
+    long start = metrics.start();
+    result = lookup(namespace, base, location);
+    metrics.stop("resolver.lookup", start);
+
+    if (maxCacheSize > 0) {
+      cache.put(key, result == null ? UNRESOLVED : result);
+    }
+
+    return result;
+
+  }
+
+  /**
+   * @return the number of references answered from the cache
+   */
+  public long getCacheHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of references that had to be resolved through the catalog
+   */
+  public long getCacheMisses() {
+    return misses.get();
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics to record resolver statistics into, null stops recording
+   */
+  public void setMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
+  }
+
+  public boolean isOffline() {
+    return offline;
+  }
+
+  /**
+   * @param offline true to refuse every remote location, which would have to be fetched from the network
+   */
+  public void setOffline(boolean offline) {
+    this.offline = offline;
+  }
+
+  /**
+   * @return every reference an offline bridge could not resolve to a local resource, sorted by location
+   */
+  public Set<String> getMissing() {
+    synchronized (missing) {
+      return new TreeSet<>(missing);
+    }
+  }
+
+  /**
+   * @param location a resolved location, a URL or a plain file path
+   * @return true if the location has to be fetched from the network
+   */
+  public static boolean isRemote(String location) {
+    if (location == null) {
+      return false;
+    }
+    String spec = location.startsWith("jar:") ? location.substring("jar:".length()) : location;
+    int colon = spec.indexOf(':');
+    // no scheme, a windows drive or a path that happens to contain a colon
+    if (colon <= 1 || spec.lastIndexOf('/', colon) >= 0 || spec.lastIndexOf('\\', colon) >= 0) {
+      return false;
+    }
+    String scheme = spec.substring(0, colon).toLowerCase(Locale.ROOT);
+    return !"file".equals(scheme) && !"maven".equals(scheme) && !"classpath".equals(scheme);
+  }
+
+  private String lookup(String namespace, String base, String location) {
+
+    String result;
+    synchronized (resolver.getCatalog()) {
+      result = lookupLocked(namespace, base, location);
+    }
+
+    if (!offline) {
+      return result;
+    }
+
+    if (result != null && isRemote(result)) {
+      if (log.isWarnEnabled())
+        log.warn("Offline, refuse to fetch {} for systemId={}", result, location);
+      metrics.increment("resolver.strategy.refused");
+      result = null;
+    }
+
+    if (result == null) {
+      synchronized (missing) {
+        missing.add(namespace != null
+          ? location + " (namespace " + namespace + ", referenced from " + base + ")"
+          : location + " (referenced from " + base + ")");
+      }
+    }
+
+    return result;
+
+  }
+
+  private String lookupLocked(String namespace, String base, String location) {
+
     try {
       InputSource source = resolver.resolveEntity(namespace, location);
       if (source != null) {
+        metrics.increment("resolver.strategy.entity");
         return new URL(source.getSystemId()).toExternalForm();
       }
     } catch (Exception ignore) {
@@ -65,6 +239,7 @@ public class JlibsResolverBridge implements XMLCrawler.Resolver {
     try {
       String result = catalog.resolveURI(location);
       if (result != null) {
+        metrics.increment("resolver.strategy.uri");
         return result;
       }
     } catch (Exception ignore) {
@@ -77,6 +252,7 @@ public class JlibsResolverBridge implements XMLCrawler.Resolver {
       String systemId = namespace != null ? location : null;
       String result = catalog.resolvePublic(publicId, systemId);
       if (result != null) {
+        metrics.increment("resolver.strategy.public");
         return result;
       }
     } catch (Exception ignore) {
@@ -95,10 +271,12 @@ public class JlibsResolverBridge implements XMLCrawler.Resolver {
       if ("file".equals(uri.getScheme())) {
         File f = new File(uri);
         if (f.exists() && f.isFile()) {
+          metrics.increment("resolver.strategy.relative");
           return f.getAbsolutePath();
         }
-      } else {
+      } else if (!offline) {
         // blindly trust, could be a related resource on the web, no way to check
+        metrics.increment("resolver.strategy.relative");
         return uri.toString();
       }
     }
@@ -106,6 +284,7 @@ public class JlibsResolverBridge implements XMLCrawler.Resolver {
     if (log.isWarnEnabled())
       log.warn("Unable to resolve publicId={} systemId={}", namespace, location);
 
+    metrics.increment("resolver.strategy.unresolved");
     return null;
 
   }
@@ -114,4 +293,63 @@ public class JlibsResolverBridge implements XMLCrawler.Resolver {
     return resolver;
   }
 
+  /**
+   * Resolved references in the order they were last used, holding no more than the given number.
+   */
+  private static final class ResolvedCache extends LinkedHashMap<Key, String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    ResolvedCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+      return size() > maxSize;
+    }
+
+  }
+
+  private static final class Key {
+
+    private final String namespace;
+
+    private final String base;
+
+    private final String location;
+
+    private final int hash;
+
+    Key(String namespace, String base, String location) {
+      this.namespace = namespace;
+      this.base = base;
+      this.location = location;
+      this.hash = Objects.hash(namespace, base, location);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(namespace, other.namespace)
+        && Objects.equals(base, other.base)
+        && Objects.equals(location, other.location);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+  }
+
 }
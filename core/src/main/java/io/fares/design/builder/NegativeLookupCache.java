@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpRetryException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Remembers remote documents that could not be fetched so that later builds do not wait for the same network timeout
+ * again. An entry expires once it is older than the time to live, the document is then tried again.
+ * <p>
+ * The cache is stored on disk in between builds, entries that expired are dropped when it is loaded.
+ */
+public final class NegativeLookupCache {
+
+  private static final Logger log = LoggerFactory.getLogger(NegativeLookupCache.class);
+
+  private static final String HEADER = "# design-builder negative lookup cache v1";
+
+  private static final String HTTP_ERROR = "Server returned HTTP response code";
+
+  private final File file;
+
+  private final long ttl;
+
+  /**
+   * every unavailable document mapped to the time it was found to be unavailable
+   */
+  private final Map<String, Long> entries = new LinkedHashMap<>();
+
+  private boolean modified;
+
+  private NegativeLookupCache(File file, long ttl) {
+    this.file = file;
+    this.ttl = ttl;
+  }
+
+  /**
+   * @param file the file the cache is stored in
+   * @param ttl  how long a document is remembered as unavailable
+   * @param unit the unit of the time to live
+   * @return the cache holding every entry of the file that has not yet expired
+   */
+  public static NegativeLookupCache load(File file, long ttl, TimeUnit unit) {
+
+    NegativeLookupCache cache = new NegativeLookupCache(file, unit.toMillis(ttl));
+
+    if (!file.isFile()) {
+      return cache;
+    }
+
+    long now = System.currentTimeMillis();
+
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+
+      if (!HEADER.equals(reader.readLine())) {
+        return cache;
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int tab = line.lastIndexOf('\t');
+        if (tab < 1) {
+          log.warn("Ignore corrupt negative lookup cache {}", file);
+          return new NegativeLookupCache(file, cache.ttl);
+        }
+        long recorded = Long.parseLong(line.substring(tab + 1));
+        if (now - recorded < cache.ttl) {
+          cache.entries.put(line.substring(0, tab), recorded);
+        } else {
+          cache.modified = true;
+        }
+      }
+
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Failed to read negative lookup cache " + file, e);
+      return new NegativeLookupCache(file, cache.ttl);
+    }
+
+    return cache;
+
+  }
+
+  /**
+   * @param location the document to look up
+   * @return true if the document was found to be unavailable within the time to live
+   */
+  public synchronized boolean contains(String location) {
+    Long recorded = entries.get(location);
+    return recorded != null && System.currentTimeMillis() - recorded < ttl;
+  }
+
+  /**
+   * @param location the document to look up
+   * @return the time the document was found to be unavailable or 0 if it is not in the cache
+   */
+  public synchronized long getRecorded(String location) {
+    Long recorded = entries.get(location);
+    return recorded != null ? recorded : 0L;
+  }
+
+  /**
+   * @param location a document that could not be fetched
+   */
+  public synchronized void record(String location) {
+    if (!OutputFiles.isSingleLine(location)) {
+      return;
+    }
+    entries.put(location, System.currentTimeMillis());
+    modified = true;
+  }
+
+  /**
+   * Tell a failure to fetch a document apart from failures that have nothing to do with the document being out of
+   * reach, e.g. a document that does not parse or an output file that cannot be written. Only fetch failures are
+   * worth remembering.
+   *
+   * @param location the document that failed
+   * @param failure  the failure of reading or flattening the document
+   * @return true if the host is unknown, the connection failed or timed out or the server answered with an error
+   * status
+   */
+  public static boolean isFetchFailure(String location, Throwable failure) {
+
+    Set<Throwable> seen = new HashSet<>();
+    for (Throwable t = failure; t != null && seen.add(t); t = causeOf(t)) {
+      if (t instanceof UnknownHostException || t instanceof SocketException || t instanceof SocketTimeoutException
+        || t instanceof HttpRetryException) {
+        return true;
+      }
+      String message = t.getMessage();
+      // how HttpURLConnection reports an error status: not found carries the location, any other the status code
+      if (t instanceof FileNotFoundException && location.equals(message)
+        || t instanceof IOException && message != null && message.startsWith(HTTP_ERROR)) {
+        return true;
+      }
+    }
+
+    return false;
+
+  }
+
+  private static Throwable causeOf(Throwable t) {
+    if (t instanceof XMLStreamException && ((XMLStreamException) t).getNestedException() != null) {
+      return ((XMLStreamException) t).getNestedException();
+    } else if (t instanceof SAXException && ((SAXException) t).getException() != null) {
+      return ((SAXException) t).getException();
+    }
+    return t.getCause();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Write the cache if it changed, see {@link OutputFiles#write(java.nio.file.Path, OutputFiles.Content)}.
+   */
+  public synchronized void store() {
+
+    if (!modified) {
+      return;
+    }
+
+    try {
+      OutputFiles.write(file.toPath(), writer -> {
+        writer.write(HEADER);
+        writer.newLine();
+        for (Map.Entry<String, Long> e : entries.entrySet()) {
+          writer.write(e.getKey() + '\t' + e.getValue());
+          writer.newLine();
+        }
+      });
+      modified = false;
+    } catch (IOException e) {
+      log.warn("Failed to write negative lookup cache " + file, e);
+    }
+
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Publishes flattened files without touching outputs whose content did not change. A file that keeps its
+ * modification time does not make the code generators reading it downstream, e.g. <code>xjc</code> or
+ * <code>wsimport</code>, generate everything again.
+ */
+public final class OutputFiles {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private OutputFiles() {
+  }
+
+  /**
+   * Move a freshly written file over its target, atomically where the file system supports it. A target that already
+   * holds the same bytes is left alone and the fresh file is removed instead.
+   *
+   * @param source the freshly written file, it is gone once this method returns
+   * @param target the file to publish it as
+   * @return true if the target was written, false if it was already up to date
+   * @throws IOException if the file cannot be moved
+   */
+  public static boolean replaceIfChanged(Path source, Path target) throws IOException {
+
+    if (sameContent(source, target)) {
+      Files.delete(source);
+      return false;
+    }
+
+    replace(source, target);
+
+    return true;
+
+  }
+
+  /**
+   * Write a text file through a temporary file next to it that then replaces the file in one go, so a concurrent
+   * build reading the file never sees half of it.
+   *
+   * @param target  the file to write, its directory is created if needed
+   * @param content writes the content of the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path target, Content content) throws IOException {
+
+    Path dir = target.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+
+    Path tmp = createTempFile(target);
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        content.write(writer);
+      }
+      replace(tmp, target);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+
+  }
+
+  /**
+   * @param value a value of a line based file
+   * @return true if the value fits on one line, a value that does not cannot be told apart when the file is read
+   */
+  public static boolean isSingleLine(String value) {
+    return value.indexOf('\n') == -1 && value.indexOf('\r') == -1;
+  }
+
+  private static void replace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @return a temporary file next to the target that can be published with {@link #replaceIfChanged(Path, Path)}, it
+   * is created with the default permissions rather than the owner only permissions of
+   * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])}
+   */
+  public static Path createTempFile(Path target) throws IOException {
+    Path parent = target.toAbsolutePath().getParent();
+    return File.createTempFile("." + target.getFileName(), ".tmp", parent.toFile()).toPath();
+  }
+
+  /**
+   * @return true if both files exist and hold the same bytes
+   */
+  static boolean sameContent(Path a, Path b) throws IOException {
+
+    if (!Files.isRegularFile(b) || Files.size(a) != Files.size(b)) {
+      return false;
+    }
+
+    byte[] bufferA = new byte[BUFFER_SIZE];
+    byte[] bufferB = new byte[BUFFER_SIZE];
+
+    try (InputStream inA = Files.newInputStream(a); InputStream inB = Files.newInputStream(b)) {
+      while (true) {
+        int readA = readFully(inA, bufferA);
+        int readB = readFully(inB, bufferB);
+        if (readA != readB) {
+          return false;
+        }
+        if (readA <= 0) {
+          return true;
+        }
+        if (readA < BUFFER_SIZE) {
+          return Arrays.equals(Arrays.copyOf(bufferA, readA), Arrays.copyOf(bufferB, readB));
+        }
+        if (!Arrays.equals(bufferA, bufferB)) {
+          return false;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Writes the content of a text file.
+   */
+  public interface Content {
+
+    void write(BufferedWriter writer) throws IOException;
+
+  }
+
+  private static int readFully(InputStream in, byte[] buffer) throws IOException {
+    int total = 0;
+    while (total < buffer.length) {
+      int read = in.read(buffer, total, buffer.length - total);
+      if (read == -1) {
+        break;
+      }
+      total += read;
+    }
+    return total;
+  }
+
+}
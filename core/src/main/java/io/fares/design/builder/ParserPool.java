@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of parser instances that are expensive to set up and can be reused, but must not be used by more
+ * than one thread at a time. An instance is taken with {@link #borrow()} and handed back with {@link #release(Object)}
+ * once the document is done. Instances beyond the capacity of the pool are simply dropped on release.
+ *
+ * @param <T> the type of the pooled parser
+ */
+public class ParserPool<T> {
+
+  private final Supplier<T> factory;
+
+  private final int capacity;
+
+  private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * @param factory  creates a new instance whenever the pool is empty
+   * @param capacity the number of idle instances kept for reuse
+   */
+  public ParserPool(Supplier<T> factory, int capacity) {
+    this.factory = Objects.requireNonNull(factory, "The parser factory must not be null.");
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The pool capacity must be at least 1.");
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return an idle instance or a new one if none is idle
+   */
+  public T borrow() {
+    T instance = idle.poll();
+    if (instance != null) {
+      idleCount.decrementAndGet();
+      return instance;
+    }
+    return factory.get();
+  }
+
+  /**
+   * @param instance the instance to make available again, it must no longer be used by the caller
+   */
+  public void release(T instance) {
+    if (instance != null && idleCount.incrementAndGet() <= capacity) {
+      idle.offer(instance);
+    } else if (instance != null) {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of idle instances
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * Shared, thread-safe access to the XML parser infrastructure. Locating a StAX factory runs a service lookup and
+ * configures the implementation from scratch, so the factories are created once and handed to every reader and
+ * writer of documents in the build. Once created the factories are only used to create readers and writers, which
+ * is safe from any number of threads.
+ * <p>
+ * The factories are shared, callers must not change their properties. Parser instances that can be reused but not
+ * shared between threads are kept in a {@link ParserPool}.
+ */
+public final class ParserProvider {
+
+  private ParserProvider() {
+  }
+
+  /**
+   * @return the shared input factory, external entities are not resolved and CDATA sections are reported as such where
+   * the implementation supports it
+   */
+  public static XMLInputFactory getInputFactory() {
+    return Factories.INPUT;
+  }
+
+  public static XMLOutputFactory getOutputFactory() {
+    return Factories.OUTPUT;
+  }
+
+  public static XMLEventFactory getEventFactory() {
+    return Factories.EVENT;
+  }
+
+  /**
+   * Creates the factories on first use with the class loader of the thread asking for them, which in a build is the
+   * plugin class loader.
+   */
+  private static final class Factories {
+
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private static final XMLInputFactory INPUT = newInputFactory();
+
+    private static final XMLOutputFactory OUTPUT = XMLOutputFactory.newInstance();
+
+    private static final XMLEventFactory EVENT = XMLEventFactory.newInstance();
+
+    private static XMLInputFactory newInputFactory() {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      try {
+        // the JDK parser reports CDATA sections as plain characters unless asked not to
+        factory.setProperty(REPORT_CDATA, true);
+      } catch (IllegalArgumentException ignore) {
+        // not supported by this implementation, CDATA sections are copied as escaped characters
+      }
+      return factory;
+    }
+
+  }
+
+}
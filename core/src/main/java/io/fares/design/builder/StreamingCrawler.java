@@ -0,0 +1,611 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import jlibs.xml.sax.crawl.CrawlerListener;
+import jlibs.xml.sax.crawl.XMLCrawler;
+
+/**
+ * Flattens a document and every document it references, a drop in for the jlibs {@link XMLCrawler} using the same
+ * {@link XMLCrawler.Resolver} and {@link CrawlerListener} extension points.
+ * <p>
+ * Each document is streamed through a StAX cursor from its source straight into its output file. Only the location
+ * of <code>xsd:import</code>, <code>xsd:include</code>, <code>xsd:redefine</code> and <code>wsdl:import</code> is
+ * rewritten, everything else is copied as it is read, so memory use does not depend on the size of a document.
+ * The XML declaration including <code>standalone</code>, the whitespace of the prolog and the form of empty elements
+ * are kept. What a StAX cursor does not report is normalized: whitespace inside tags and after the root element,
+ * attribute quotes and character references.
+ * Referenced documents are crawled once the referencing document has been written, only one document is open at any
+ * time.
+ * <p>
+ * A crawler is not thread-safe but can be reused, e.g. through a {@link ParserPool}.
+ */
+public class StreamingCrawler {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingCrawler.class);
+
+  private static final String SCHEMA_LOCATION = "schemaLocation";
+
+  private static final String LOCATION = "location";
+
+  private static final String NAMESPACE = "namespace";
+
+  private final XMLInputFactory inputFactory = ParserProvider.getInputFactory();
+
+  private final XMLOutputFactory outputFactory = ParserProvider.getOutputFactory();
+
+  private XMLCrawler.Resolver resolver;
+
+  private JarFileCache jarFileCache;
+
+  private ContentHashes contentHashes;
+
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
+  private boolean copyThrough;
+
+  private URL failed;
+
+  public XMLCrawler.Resolver getResolver() {
+    return resolver;
+  }
+
+  /**
+   * @param resolver the resolver of referenced documents, if null references resolve relative to the referencing
+   *                 document
+   */
+  public void setResolver(XMLCrawler.Resolver resolver) {
+    this.resolver = resolver;
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics to record the bytes read into, null stops recording
+   */
+  public void setMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
+  }
+
+  public JarFileCache getJarFileCache() {
+    return jarFileCache;
+  }
+
+  /**
+   * @param jarFileCache the archives documents inside jars are read from, null opens every document by its URL
+   */
+  public void setJarFileCache(JarFileCache jarFileCache) {
+    this.jarFileCache = jarFileCache;
+  }
+
+  public ContentHashes getContentHashes() {
+    return contentHashes;
+  }
+
+  /**
+   * @param contentHashes collects the hash of every local document read, null does not hash anything
+   */
+  public void setContentHashes(ContentHashes contentHashes) {
+    this.contentHashes = contentHashes;
+  }
+
+  public boolean isCopyThrough() {
+    return copyThrough;
+  }
+
+  /**
+   * @param copyThrough true to copy documents that do not reference other documents byte for byte, see
+   *                    {@link CopyThrough}
+   */
+  public void setCopyThrough(boolean copyThrough) {
+    this.copyThrough = copyThrough;
+  }
+
+  /**
+   * @return the document that could not be read or written by the last crawl or null if it succeeded
+   */
+  public URL getFailed() {
+    return failed;
+  }
+
+  /**
+   * Flatten a document and everything it references.
+   *
+   * @param url      the document to flatten
+   * @param listener decides which documents to crawl and which files they are written to
+   * @return the file the document was written to or null if the listener refused to crawl it
+   * @throws IOException if a document cannot be read or written
+   */
+  public File crawl(URL url, CrawlerListener listener) throws IOException {
+
+    failed = null;
+
+    if (!listener.doCrawl(url)) {
+      return null;
+    }
+
+    Crawl crawl = new Crawl(listener);
+    File file = listener.toFile(url, ImportGraph.extensionOf(url, "xsd"));
+    crawl.done.put(url.toExternalForm(), file);
+    crawl.queue.add(url);
+
+    while (!crawl.queue.isEmpty()) {
+      URL next = crawl.queue.poll();
+      try {
+        write(next, crawl.done.get(next.toExternalForm()), crawl);
+      } catch (IOException | RuntimeException e) {
+        failed = next;
+        throw e;
+      }
+    }
+
+    return file;
+
+  }
+
+  private void write(URL url, File file, Crawl crawl) throws IOException {
+
+    if (log.isDebugEnabled()) {
+      log.debug("flatten {} to {}", url, file);
+    }
+
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+      throw new IOException("Failed to create directory " + parent);
+    }
+
+    if (copyThrough && CopyThrough.copyIfReferenceFree(url, file, jarFileCache, contentHashes)) {
+      // a byte for byte copy reads exactly what it writes
+      metrics.add("bytes.read", file.length());
+      return;
+    }
+
+    try (InputStream in = CountingInputStream.open(url, jarFileCache, metrics, contentHashes)) {
+      write(in, url.toExternalForm(), file, crawl);
+    }
+
+  }
+
+  /**
+   * Copy a flattened document, changing the locations of its references found in the map. Nothing is resolved or
+   * crawled, it is meant for documents whose referenced files were renamed after they had been written.
+   *
+   * @param source    the flattened document
+   * @param target    the file to write the copy to
+   * @param locations the locations to change mapped to their new value
+   * @return true if any location was changed
+   * @throws IOException if the document cannot be read or written
+   */
+  public boolean relink(File source, File target, Map<String, String> locations) throws IOException {
+
+    Crawl crawl = new Crawl(null);
+    crawl.locations = locations;
+
+    try (InputStream in = Files.newInputStream(source.toPath())) {
+      write(in, source.toURI().toString(), target, crawl);
+    }
+
+    return crawl.relinked;
+
+  }
+
+  private void write(InputStream in, String systemId, File file, Crawl crawl) throws IOException {
+
+    try {
+
+      PrologTap tap = new PrologTap(in);
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(systemId, tap);
+
+      try {
+
+        String encoding = reader.getCharacterEncodingScheme();
+        if (encoding == null) {
+          encoding = "UTF-8";
+        }
+
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+          XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, encoding);
+          writeDeclaration(reader, writer, out, encoding);
+          copy(reader, writer, systemId, file, tap, encoding, crawl);
+          writer.flush();
+          writer.close();
+        }
+
+      } finally {
+        reader.close();
+      }
+
+    } catch (XMLStreamException e) {
+      throw new IOException("Failed to flatten " + systemId, e);
+    }
+
+  }
+
+  /**
+   * A document without declaration stays without one. The writer has no notion of <code>standalone</code>, a
+   * declaration carrying it is written ahead of the writer.
+   */
+  private static void writeDeclaration(XMLStreamReader reader, XMLStreamWriter writer, OutputStream out,
+                                       String encoding) throws XMLStreamException, IOException {
+    if (reader.getVersion() == null) {
+      return;
+    }
+    if (!reader.standaloneSet()) {
+      writer.writeStartDocument(encoding, reader.getVersion());
+      return;
+    }
+    String declaration = "<?xml version=\"" + reader.getVersion() + "\" encoding=\"" + encoding
+      + "\" standalone=\"" + (reader.isStandalone() ? "yes" : "no") + "\"?>";
+    out.write(declaration.getBytes(encoding));
+  }
+
+  private void copy(XMLStreamReader reader, XMLStreamWriter writer, String systemId, File file, PrologTap tap,
+                    String encoding, Crawl crawl) throws XMLStreamException {
+
+    int event = reader.getEventType();
+
+    // the cursor skips whitespace before the root element, it is taken from the text read so far
+    int prologOffset = reader.getLocation().getCharacterOffset();
+
+    while (true) {
+
+      if (event == XMLStreamConstants.SPACE || event == XMLStreamConstants.CHARACTERS) {
+        // a parser that reports the whitespace of the prolog copies it on its own
+        prologOffset = -1;
+      } else if (prologOffset >= 0 && event != XMLStreamConstants.START_DOCUMENT) {
+        writePrologSpace(writer, tap.prolog(encoding), prologOffset);
+        prologOffset = event == XMLStreamConstants.START_ELEMENT ? -1 : reader.getLocation().getCharacterOffset();
+      }
+
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        // the cursor cannot look ahead, hold on to the element until it is known whether it is empty
+        crawl.element.capture(reader, this, systemId, file, crawl);
+        int start = reader.getLocation().getCharacterOffset();
+        event = reader.next();
+        // an end tag of its own moves the cursor on, the end of an empty element does not
+        boolean empty = event == XMLStreamConstants.END_ELEMENT && reader.getLocation().getCharacterOffset() == start;
+        crawl.element.write(writer, empty);
+        if (!empty) {
+          continue;
+        }
+      } else {
+        copyEvent(reader, writer, event);
+      }
+
+      if (!reader.hasNext()) {
+        return;
+      }
+      event = reader.next();
+
+    }
+
+  }
+
+  /**
+   * Write the whitespace that follows the given offset of the prolog. Nothing is written if the parser does not report
+   * offsets or the prolog was not kept that far.
+   */
+  private static void writePrologSpace(XMLStreamWriter writer, String prolog, int offset) throws XMLStreamException {
+    int end = offset;
+    while (end < prolog.length() && isSpace(prolog.charAt(end))) {
+      end++;
+    }
+    if (end > offset && end < prolog.length()) {
+      writer.writeCharacters(prolog.substring(offset, end));
+    }
+  }
+
+  private static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private static void copyEvent(XMLStreamReader reader, XMLStreamWriter writer, int event) throws XMLStreamException {
+
+    switch (event) {
+      case XMLStreamConstants.END_ELEMENT:
+        writer.writeEndElement();
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.SPACE:
+        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        break;
+      case XMLStreamConstants.CDATA:
+        writer.writeCData(reader.getText());
+        break;
+      case XMLStreamConstants.COMMENT:
+        writer.writeComment(reader.getText());
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        if (reader.getPIData() != null) {
+          writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+        } else {
+          writer.writeProcessingInstruction(reader.getPITarget());
+        }
+        break;
+      case XMLStreamConstants.DTD:
+        writer.writeDTD(reader.getText());
+        break;
+      case XMLStreamConstants.ENTITY_REFERENCE:
+        writer.writeEntityRef(reader.getLocalName());
+        break;
+      case XMLStreamConstants.END_DOCUMENT:
+        writer.writeEndDocument();
+        break;
+      default:
+        break;
+    }
+
+  }
+
+  /**
+   * @return the new location of a referenced document or null if the reference is left as it is
+   */
+  private String rewrite(String elementNamespace, String namespace, String systemId, String location, File file,
+                         Crawl crawl) {
+
+    if (crawl.locations != null) {
+      String relinked = crawl.locations.get(location);
+      crawl.relinked |= relinked != null;
+      return relinked;
+    }
+
+    String resolved = resolver != null
+      ? resolver.resolve(namespace, systemId, location)
+      : URI.create(systemId).resolve(location).toString();
+
+    if (resolved == null) {
+      return null;
+    }
+
+    URL url;
+    try {
+      url = ImportGraph.toURL(resolved);
+    } catch (MalformedURLException | IllegalArgumentException e) {
+      log.warn("Cannot follow reference {} from {}", resolved, systemId);
+      return null;
+    }
+
+    String key = url.toExternalForm();
+    File target = crawl.done.get(key);
+
+    if (target == null) {
+      if (!crawl.listener.doCrawl(url)) {
+        return null;
+      }
+      String defaultExtension = ImportGraph.NS_WSDL.equals(elementNamespace) ? "wsdl" : "xsd";
+      target = crawl.listener.toFile(url, ImportGraph.extensionOf(url, defaultExtension));
+      crawl.done.put(key, target);
+      crawl.queue.add(url);
+    }
+
+    return ImportGraph.relativeLocation(file, target);
+
+  }
+
+  private static String referenceAttribute(String namespaceURI, String localName) {
+    if (ImportGraph.NS_XSD.equals(namespaceURI)
+      && ("import".equals(localName) || "include".equals(localName) || "redefine".equals(localName))) {
+      return SCHEMA_LOCATION;
+    } else if (ImportGraph.NS_WSDL.equals(namespaceURI) && "import".equals(localName)) {
+      return LOCATION;
+    }
+    return null;
+  }
+
+  /**
+   * The state of a single crawl: every document seen so far mapped to its output file and the documents still to be
+   * written.
+   */
+  private static final class Crawl {
+
+    private final CrawlerListener listener;
+
+    private final Map<String, File> done = new HashMap<>();
+
+    private final Deque<URL> queue = new ArrayDeque<>();
+
+    private final Element element = new Element();
+
+    /**
+     * the locations to change when relinking a flattened document, null when crawling
+     */
+    private Map<String, String> locations;
+
+    private boolean relinked;
+
+    Crawl(CrawlerListener listener) {
+      this.listener = listener;
+    }
+
+  }
+
+  /**
+   * Keeps the first bytes a parser reads of a document so the whitespace of the prolog can be recovered.
+   */
+  private static final class PrologTap extends FilterInputStream {
+
+    private static final int LIMIT = 4096;
+
+    private final ByteArrayOutputStream prolog = new ByteArrayOutputStream();
+
+    PrologTap(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1 && prolog.size() < LIMIT) {
+        prolog.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0 && prolog.size() < LIMIT) {
+        prolog.write(b, off, Math.min(read, LIMIT - prolog.size()));
+      }
+      return read;
+    }
+
+    /**
+     * @param encoding the encoding of the document
+     * @return the characters the parser has read of the document so far, up to the limit, empty if they cannot be
+     * decoded
+     */
+    String prolog(String encoding) {
+      String text;
+      try {
+        text = new String(prolog.toByteArray(), encoding);
+      } catch (UnsupportedEncodingException e) {
+        return "";
+      }
+      // offsets do not count the byte order mark
+      return text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+
+  }
+
+  /**
+   * A start element copied off the cursor into arrays that are reused for every element of a crawl.
+   */
+  private static final class Element {
+
+    private String prefix;
+
+    private String localName;
+
+    private String namespaceURI;
+
+    private int namespaceCount;
+
+    private String[] namespaces = new String[8];
+
+    private int attributeCount;
+
+    private String[] attributes = new String[16];
+
+    void capture(XMLStreamReader reader, StreamingCrawler crawler, String systemId, File file, Crawl crawl) {
+
+      prefix = reader.getPrefix();
+      localName = reader.getLocalName();
+      namespaceURI = reader.getNamespaceURI();
+
+      namespaceCount = reader.getNamespaceCount();
+      namespaces = ensureCapacity(namespaces, namespaceCount * 2);
+      for (int i = 0; i < namespaceCount; i++) {
+        namespaces[i * 2] = reader.getNamespacePrefix(i);
+        namespaces[i * 2 + 1] = reader.getNamespaceURI(i);
+      }
+
+      String locationAttribute = referenceAttribute(namespaceURI, localName);
+      String rewritten = null;
+      if (locationAttribute != null) {
+        String location = reader.getAttributeValue(null, locationAttribute);
+        if (location != null) {
+          rewritten = crawler.rewrite(namespaceURI, reader.getAttributeValue(null, NAMESPACE), systemId, location, file, crawl);
+        }
+      }
+
+      attributeCount = reader.getAttributeCount();
+      attributes = ensureCapacity(attributes, attributeCount * 4);
+      for (int i = 0; i < attributeCount; i++) {
+        String attributeNamespace = reader.getAttributeNamespace(i);
+        String attributeName = reader.getAttributeLocalName(i);
+        boolean unqualified = attributeNamespace == null || attributeNamespace.isEmpty();
+        attributes[i * 4] = reader.getAttributePrefix(i);
+        attributes[i * 4 + 1] = attributeNamespace;
+        attributes[i * 4 + 2] = attributeName;
+        attributes[i * 4 + 3] = rewritten != null && unqualified && attributeName.equals(locationAttribute)
+          ? rewritten
+          : reader.getAttributeValue(i);
+      }
+
+    }
+
+    void write(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
+
+      String p = prefix != null ? prefix : "";
+      String ns = namespaceURI != null ? namespaceURI : "";
+      if (empty) {
+        writer.writeEmptyElement(p, localName, ns);
+      } else {
+        writer.writeStartElement(p, localName, ns);
+      }
+
+      for (int i = 0; i < namespaceCount; i++) {
+        String namespacePrefix = namespaces[i * 2];
+        if (namespacePrefix == null || namespacePrefix.isEmpty()) {
+          writer.writeDefaultNamespace(namespaces[i * 2 + 1]);
+        } else {
+          writer.writeNamespace(namespacePrefix, namespaces[i * 2 + 1]);
+        }
+      }
+
+      for (int i = 0; i < attributeCount; i++) {
+        String attributeNamespace = attributes[i * 4 + 1];
+        if (attributeNamespace == null || attributeNamespace.isEmpty()) {
+          writer.writeAttribute(attributes[i * 4 + 2], attributes[i * 4 + 3]);
+        } else {
+          String attributePrefix = attributes[i * 4];
+          writer.writeAttribute(attributePrefix != null ? attributePrefix : "", attributeNamespace,
+            attributes[i * 4 + 2], attributes[i * 4 + 3]);
+        }
+      }
+
+    }
+
+    private static String[] ensureCapacity(String[] array, int size) {
+      return array.length >= size ? array : new String[Math.max(size, array.length * 2)];
+    }
+
+  }
+
+}
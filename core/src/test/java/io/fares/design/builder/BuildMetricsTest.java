@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BuildMetricsTest {
+
+  @Test
+  public void testJsonReport() {
+
+    BuildMetrics metrics = new BuildMetrics();
+    metrics.increment("documents.parsed");
+    metrics.add("documents.parsed", 2);
+    metrics.record("flatten.root", 1500000L);
+    metrics.record("flatten.root", 500000L);
+    metrics.recordRoot("file:/src/\"a\".xsd", 2000000L);
+
+    Assert.assertEquals(3L, metrics.getCount("documents.parsed"));
+    Assert.assertEquals(2L, metrics.getTimerCount("flatten.root"));
+    Assert.assertEquals(2000000L, metrics.getTimerTotal("flatten.root"));
+
+    Assert.assertEquals("{\n"
+      + "  \"counters\": {\n"
+      + "    \"documents.parsed\": 3\n"
+      + "  },\n"
+      + "  \"timers\": {\n"
+      + "    \"flatten.root\": { \"count\": 2, \"totalMillis\": 2.000, \"maxMillis\": 1.500 }\n"
+      + "  },\n"
+      + "  \"roots\": {\n"
+      + "    \"file:/src/\\\"a\\\".xsd\": 2.000\n"
+      + "  }\n"
+      + "}\n", metrics.toJson());
+
+  }
+
+  @Test
+  public void testDisabledRecordsNothing() {
+
+    BuildMetrics.DISABLED.increment("documents.parsed");
+    BuildMetrics.DISABLED.stop("flatten", BuildMetrics.DISABLED.start());
+
+    Assert.assertEquals(0L, BuildMetrics.DISABLED.getCount("documents.parsed"));
+    Assert.assertEquals(0L, BuildMetrics.DISABLED.getTimerCount("flatten"));
+    Assert.assertEquals("{\n  \"counters\": {},\n  \"timers\": {},\n  \"roots\": {}\n}\n", BuildMetrics.DISABLED.toJson());
+
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.apache.xml.resolver.Catalog;
+import org.apache.xml.resolver.CatalogManager;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+public class CompiledCatalogTest {
+
+  private static final String[] SYSTEM_IDS = {
+    "http://x/a.xsd", "http://x/other.xsd", "http://x/deep/a.xsd", "http://x/deep/b.xsd", "http://y/b.xsd",
+    "http://y/c.xsd", "http://z/n.xsd", "http://z/deep/n.xsd", "http://none/b.xsd", "http://none/x.xsd", null
+  };
+
+  private static final String[] URIS = {
+    "urn:u", "urn:u2", "urn:n", "http://u/a.xsd", "http://u/deep/v.xsd", "http://w/v.xsd", "http://w/xv.xsd", "none"
+  };
+
+  private static final String[] PUBLIC_IDS = {"urn:a", "urn:p", "urn:b", "urn:n", "urn:none"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameResultsAsPlainCatalog() throws Exception {
+
+    File cat1 = write("cat1.xml",
+      "<public publicId='urn:a' uri='a1.xsd'/>",
+      "<system systemId='http://x/a.xsd' uri='sys-a1.xsd'/>",
+      "<rewriteSystem systemIdStartString='http://x/' rewritePrefix='file:///r1/'/>",
+      "<rewriteSystem systemIdStartString='http://x/deep/' rewritePrefix='file:///r1deep/'/>",
+      "<systemSuffix systemIdSuffix='b.xsd' uri='suffix-b1.xsd'/>",
+      "<uri name='urn:u' uri='u1.xsd'/>",
+      "<rewriteURI uriStartString='http://u/' rewritePrefix='file:///ru1/'/>",
+      "<uriSuffix uriSuffix='/v.xsd' uri='v1.xsd'/>",
+      "<group prefer='public'><public publicId='urn:p' uri='p1.xsd'/></group>",
+      "<nextCatalog catalog='cat3.xml'/>");
+
+    File cat2 = write("cat2.xml",
+      "<public publicId='urn:a' uri='a2.xsd'/>",
+      "<public publicId='urn:b' uri='b2.xsd'/>",
+      "<system systemId='http://y/c.xsd' uri='sys-c2.xsd'/>",
+      "<rewriteSystem systemIdStartString='http://y/' rewritePrefix='file:///r2/'/>",
+      "<systemSuffix systemIdSuffix='/b.xsd' uri='suffix-b2.xsd'/>",
+      "<uri name='urn:u2' uri='u2.xsd'/>",
+      "<uri name='urn:u' uri='u2-shadowed.xsd'/>",
+      "<uriSuffix uriSuffix='v.xsd' uri='v2.xsd'/>");
+
+    write("cat3.xml",
+      "<public publicId='urn:n' uri='n3.xsd'/>",
+      "<system systemId='http://z/n.xsd' uri='sys-n3.xsd'/>",
+      "<rewriteSystem systemIdStartString='http://z/deep' rewritePrefix='file:///r3/'/>",
+      "<systemSuffix systemIdSuffix='x.xsd' uri='suffix-x3.xsd'/>",
+      "<uri name='urn:n' uri='un3.xsd'/>");
+
+    String catalogFiles = cat1.toURI() + ";" + cat2.toURI();
+
+    Catalog plain = newManager(catalogFiles, null).getCatalog();
+    Catalog compiled = newManager(catalogFiles, CompiledCatalog.class.getName()).getCatalog();
+
+    Assert.assertTrue(compiled instanceof CompiledCatalog);
+
+    int resolved = 0;
+
+    for (String systemId : SYSTEM_IDS) {
+      String expected = plain.resolveSystem(systemId);
+      Assert.assertEquals("system " + systemId, expected, compiled.resolveSystem(systemId));
+      resolved += expected != null ? 1 : 0;
+      for (String publicId : PUBLIC_IDS) {
+        expected = plain.resolvePublic(publicId, systemId);
+        Assert.assertEquals("public " + publicId + " " + systemId, expected, compiled.resolvePublic(publicId, systemId));
+        resolved += expected != null ? 1 : 0;
+      }
+    }
+
+    for (String uri : URIS) {
+      String expected = plain.resolveURI(uri);
+      Assert.assertEquals("uri " + uri, expected, compiled.resolveURI(uri));
+      resolved += expected != null ? 1 : 0;
+    }
+
+    Assert.assertTrue(resolved > 40);
+
+  }
+
+  @Test
+  public void testDelegatesUsePlainCatalog() throws Exception {
+
+    write("delegated.xml", "<system systemId='http://d/a.xsd' uri='delegated-a.xsd'/>");
+    File cat = write("delegating.xml",
+      "<delegateSystem systemIdStartString='http://d/' catalog='delegated.xml'/>",
+      "<system systemId='http://x/a.xsd' uri='sys-a.xsd'/>");
+
+    Catalog compiled = newManager(cat.toURI().toString(), CompiledCatalog.class.getName()).getCatalog();
+
+    Assert.assertTrue(compiled.resolveSystem("http://d/a.xsd").endsWith("delegated-a.xsd"));
+    Assert.assertTrue(compiled.resolveSystem("http://x/a.xsd").endsWith("sys-a.xsd"));
+
+  }
+
+  @Test
+  public void testCollectSubordinateCatalogFiles() throws Exception {
+
+    write("next.xml", "<system systemId='http://n/a.xsd' uri='n.xsd'/>");
+    File cat1 = write("first.xml", "<nextCatalog catalog='next.xml'/>");
+    File cat2 = write("second.xml", "<system systemId='http://x/a.xsd' uri='x.xsd'/>");
+
+    CompiledCatalog compiled = (CompiledCatalog) newManager(cat1.toURI() + ";" + cat2.toURI(),
+      CompiledCatalog.class.getName()).getCatalog();
+
+    List<String> files = compiled.getCatalogFiles();
+    Assert.assertEquals(files.toString(), 3, files.size());
+    Assert.assertTrue(files.toString(), files.stream().anyMatch(file -> file.endsWith("/next.xml")));
+
+  }
+
+  private static CatalogManager newManager(String catalogFiles, String catalogClassName) {
+    CatalogManager manager = new CatalogManager();
+    manager.setIgnoreMissingProperties(true);
+    manager.setUseStaticCatalog(false);
+    manager.setVerbosity(0);
+    if (catalogClassName != null) {
+      manager.setCatalogClassName(catalogClassName);
+    }
+    manager.setCatalogFiles(catalogFiles);
+    return manager;
+  }
+
+  private File write(String name, String... entries) throws Exception {
+    StringBuilder sb = new StringBuilder("<catalog xmlns='urn:oasis:names:tc:entity:xmlns:xml:catalog' prefer='system'>\n");
+    for (String entry : entries) {
+      sb.append("  ").append(entry).append('\n');
+    }
+    sb.append("</catalog>\n");
+    File file = new File(folder.getRoot(), name);
+    Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class CopyThroughTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testDetectReferences() {
+    Assert.assertFalse(mayReference("<?xml version=\"1.0\"?><xs:schema><xs:simpleType name=\"importance\"/></xs:schema>"));
+    Assert.assertFalse(mayReference("\uFEFF<schema><element name=\"include\"/></schema>"));
+    Assert.assertTrue(mayReference("<xs:schema><xs:import namespace=\"urn:a\"/></xs:schema>"));
+    Assert.assertTrue(mayReference("<schema>\n<include schemaLocation=\"a.xsd\"/></schema>"));
+    Assert.assertTrue(mayReference("<wsdl:definitions><wsdl:import location=\"a.wsdl\"/>"));
+    Assert.assertTrue(mayReference("<xs:schema><xs:redefine"));
+    // not ASCII compatible, the parser has to decide
+    Assert.assertTrue(CopyThrough.mayReference("<schema/>".getBytes(StandardCharsets.UTF_16)));
+  }
+
+  @Test
+  public void testCopyReferenceFreeDocument() throws Exception {
+
+    String leaf = "<?xml version=\"1.0\"?>\n<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">\n"
+      + "  <xs:simpleType name=\"Code\"><xs:restriction base=\"xs:string\"></xs:restriction></xs:simpleType>\n</xs:schema>\n";
+    File source = folder.newFile("leaf.xsd");
+    Files.write(source.toPath(), leaf.getBytes(StandardCharsets.UTF_8));
+
+    File target = new File(folder.getRoot(), "out.xsd");
+    Assert.assertTrue(CopyThrough.copyIfReferenceFree(source.toURI().toURL(), target, null));
+    Assert.assertEquals(leaf, new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+
+    Files.write(source.toPath(), "<xs:schema><xs:include schemaLocation=\"a.xsd\"/></xs:schema>".getBytes(StandardCharsets.UTF_8));
+    Assert.assertFalse(CopyThrough.copyIfReferenceFree(source.toURI().toURL(), new File(folder.getRoot(), "other.xsd"), null));
+
+  }
+
+  private static boolean mayReference(String document) {
+    return CopyThrough.mayReference(document.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.apache.xml.resolver.CatalogManager;
+import org.apache.xml.resolver.tools.CatalogResolver;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class GrammarCompilerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testImportedSchemaIsCompiledOnce() throws Exception {
+
+    File common = write("common.xsd", "urn:common", "",
+      "<xs:complexType name='Amount'><xs:sequence><xs:element name='value' type='xs:decimal'/></xs:sequence></xs:complexType>");
+    File a = write("a.xsd", "urn:a", "<xs:import namespace='urn:common' schemaLocation='common.xsd'/>",
+      "<xs:element name='a' type='c:Amount'/>");
+    File b = write("b.xsd", "urn:b", "<xs:import namespace='urn:common' schemaLocation='common.xsd'/>",
+      "<xs:element name='b' type='c:Amount'/>");
+
+    GrammarCache cache = new GrammarCache();
+    BuildMetrics metrics = new BuildMetrics();
+
+    GrammarCompiler compiler = new GrammarCompiler(newResolver(), cache).withMetrics(metrics);
+    Assert.assertTrue(compiler.compile(a.toURI().toURL()));
+    Assert.assertEquals(2, cache.size());
+
+    // a second compiler sharing the cache only looks the imported grammar up
+    GrammarCompiler other = new GrammarCompiler(newResolver(), cache).withMetrics(metrics);
+    Assert.assertTrue(other.compile(b.toURI().toURL()));
+    Assert.assertFalse(other.compile(common.toURI().toURL()));
+
+    Assert.assertEquals(3, cache.size());
+    Assert.assertEquals(2, metrics.getTimerCount("grammar.compile"));
+    Assert.assertEquals(2, metrics.getCount("grammar.cache.hits"));
+
+  }
+
+  @Test
+  public void testInvalidSchemaIsNotCached() throws Exception {
+
+    File broken = write("broken.xsd", "urn:broken", "", "<xs:element name='x' type='xs:unknown'/>");
+
+    GrammarCache cache = new GrammarCache();
+    GrammarCompiler compiler = new GrammarCompiler(newResolver(), cache);
+
+    try {
+      compiler.compile(broken.toURI().toURL());
+      Assert.fail("invalid schema must not compile");
+    } catch (IOException expected) {
+      Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("broken.xsd"));
+    }
+
+    Assert.assertEquals(0, cache.size());
+
+  }
+
+  private static JlibsResolverBridge newResolver() {
+    CatalogManager manager = new CatalogManager();
+    manager.setIgnoreMissingProperties(true);
+    manager.setUseStaticCatalog(false);
+    manager.setCatalogFiles("");
+    return new JlibsResolverBridge(new CatalogResolver(manager));
+  }
+
+  private File write(String name, String namespace, String imports, String content) throws IOException {
+    File file = new File(folder.getRoot(), name);
+    String schema = "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:c='urn:common'"
+      + " targetNamespace='" + namespace + "'>" + imports + content + "</xs:schema>";
+    Files.write(file.toPath(), schema.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import jlibs.xml.sax.crawl.CrawlerListener;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ImportGraphTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testMergeDocumentsWithSameContent() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    // the same two schemas shipped twice under different paths
+    String code = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\">"
+      + "<xs:simpleType name=\"Code\"><xs:restriction base=\"xs:string\"/></xs:simpleType></xs:schema>";
+    write(src, "v1/code.xsd", code);
+    write(src, "v2/lib/code.xsd", code);
+    write(src, "v1/types.xsd", types("code.xsd"));
+    write(src, "v2/types.xsd", types("lib/code.xsd"));
+    write(src, "a.xsd", root("v1/types.xsd"));
+    write(src, "b.xsd", root("v2/types.xsd"));
+
+    ImportGraph graph = flatten(src, out, true, "a.xsd", "b.xsd");
+    ImportGraph.Node a = node(graph, "a.xsd");
+    ImportGraph.Node b = node(graph, "b.xsd");
+
+    Assert.assertEquals(6, graph.getNodes().size());
+    Assert.assertArrayEquals(new String[]{"a.xsd", "b.xsd", "v1-code.xsd", "v1-types.xsd"}, sorted(out.list()));
+    Assert.assertFalse(a.isDuplicate());
+    Assert.assertNotEquals(0L, a.getWrittenAt());
+    Assert.assertFalse(b.isDuplicate());
+
+    // both roots now reference the first copy
+    Assert.assertTrue(read(out, "a.xsd").contains("schemaLocation=\"v1-types.xsd\""));
+    Assert.assertTrue(read(out, "b.xsd").contains("schemaLocation=\"v1-types.xsd\""));
+    Assert.assertTrue(read(out, "v1-types.xsd").contains("schemaLocation=\"v1-code.xsd\""));
+    Assert.assertSame(a.getReferences().get(0), b.getReferences().get(0).getTarget());
+
+  }
+
+  @Test
+  public void testKeepMergedOutputsUntouched() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    String code = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\"/>";
+    write(src, "v1/code.xsd", code);
+    write(src, "v2/code.xsd", code);
+    write(src, "v1/types.xsd", types("code.xsd"));
+    write(src, "v2/types.xsd", types("code.xsd"));
+    write(src, "a.xsd", root("v1/types.xsd"));
+    write(src, "b.xsd", root("v2/types.xsd"));
+
+    flatten(src, out, true, "a.xsd", "b.xsd");
+
+    FileTime written = FileTime.fromMillis(1_000_000_000_000L);
+    String[] outputs = sorted(out.list());
+    for (String name : outputs) {
+      Files.setLastModifiedTime(new File(out, name).toPath(), written);
+    }
+
+    ImportGraph graph = flatten(src, out, true, "a.xsd", "b.xsd");
+
+    // the referrer of the duplicate is published once, pointing at the merged file
+    Assert.assertArrayEquals(outputs, sorted(out.list()));
+    for (String name : outputs) {
+      Assert.assertEquals(name, written, Files.getLastModifiedTime(new File(out, name).toPath()));
+    }
+    for (ImportGraph.Node node : graph.getNodes()) {
+      Assert.assertTrue(node.getUrl().toString(), node.isDuplicate() || node.isUnchanged());
+    }
+
+  }
+
+  @Test
+  public void testParseSharedImportOnce() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    // a diamond, both branches reach the shared schema through different relative paths
+    write(src, "lib/shared.xsd", schema("urn:s"));
+    write(src, "x/x.xsd", schema("urn:x", "../lib/shared.xsd"));
+    write(src, "y.xsd", schema("urn:y", "lib/shared.xsd"));
+    write(src, "a.xsd", schema("urn:a", "x/x.xsd", "y.xsd"));
+
+    ImportGraph graph = flatten(src, out, false, "a.xsd");
+
+    long size = 0;
+    for (String path : new String[]{"lib/shared.xsd", "x/x.xsd", "y.xsd", "a.xsd"}) {
+      size += new File(src, path).length();
+    }
+
+    Assert.assertEquals(4, graph.getNodes().size());
+    Assert.assertEquals(size, graph.getMetrics().getCount("bytes.read"));
+    Assert.assertArrayEquals(new String[]{"a.xsd", "lib-shared.xsd", "x-x.xsd", "y.xsd"}, sorted(out.list()));
+
+    ImportGraph.Node x = node(graph, "x-x.xsd");
+    ImportGraph.Node y = node(graph, "y.xsd");
+    Assert.assertSame(x.getReferences().get(0), y.getReferences().get(0));
+    Assert.assertEquals("lib-shared.xsd", x.getReferences().get(0).getFile().getName());
+
+  }
+
+  @Test
+  public void testRewriteReferencesToEmittedFile() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    write(src, "lib/shared.xsd", schema("urn:s"));
+    write(src, "v1/a.xsd", schema("urn:a", "../lib/shared.xsd"));
+    write(src, "v2/deep/b.xsd", schema("urn:b", "../../lib/shared.xsd"));
+
+    flatten(src, out, false, "v1/a.xsd", "v2/deep/b.xsd");
+
+    Assert.assertArrayEquals(new String[]{"lib-shared.xsd", "v1-a.xsd", "v2-deep-b.xsd"}, sorted(out.list()));
+    Assert.assertTrue(read(out, "v1-a.xsd").contains("schemaLocation=\"lib-shared.xsd\""));
+    Assert.assertTrue(read(out, "v2-deep-b.xsd").contains("schemaLocation=\"lib-shared.xsd\""));
+    Assert.assertFalse(read(out, "v2-deep-b.xsd").contains("../"));
+
+  }
+
+  @Test
+  public void testRelinkRenamedDocuments() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    write(src, "lib/shared.xsd", schema("urn:s"));
+    write(src, "v1/a.xsd", schema("urn:a", "../lib/shared.xsd"));
+    write(src, "v2/b.xsd", schema("urn:b"));
+
+    Map<File, File> renames = new HashMap<>();
+    renames.put(new File(out, "lib-shared.xsd"), new File(out, "shared.xsd"));
+    ImportGraph graph = flatten(src, out, false, renames, "v1/a.xsd", "v2/b.xsd");
+
+    Assert.assertArrayEquals(new String[]{"shared.xsd", "v1-a.xsd", "v2-b.xsd"}, sorted(out.list()));
+    Assert.assertTrue(read(out, "v1-a.xsd").contains("schemaLocation=\"shared.xsd\""));
+    Assert.assertEquals(new File(out, "shared.xsd"), node(graph, "shared.xsd").getFile());
+
+  }
+
+  @Test
+  public void testFollowCyclicImports() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    write(src, "a.xsd", schema("urn:a", "b/b.xsd"));
+    write(src, "b/b.xsd", schema("urn:b", "c.xsd"));
+    write(src, "b/c.xsd", schema("urn:c", "../a.xsd"));
+
+    ImportGraph graph = flatten(src, out, false, "a.xsd");
+
+    long size = new File(src, "a.xsd").length() + new File(src, "b/b.xsd").length()
+      + new File(src, "b/c.xsd").length();
+
+    Assert.assertEquals(3, graph.getNodes().size());
+    Assert.assertEquals(size, graph.getMetrics().getCount("bytes.read"));
+    Assert.assertArrayEquals(new String[]{"a.xsd", "b-b.xsd", "b-c.xsd"}, sorted(out.list()));
+    Assert.assertTrue(read(out, "a.xsd").contains("schemaLocation=\"b-b.xsd\""));
+    Assert.assertTrue(read(out, "b-b.xsd").contains("schemaLocation=\"b-c.xsd\""));
+    Assert.assertTrue(read(out, "b-c.xsd").contains("schemaLocation=\"a.xsd\""));
+
+    ImportGraph.Node a = node(graph, "a.xsd");
+    Assert.assertSame(a, a.getReferences().get(0).getReferences().get(0).getReferences().get(0));
+
+  }
+
+  /**
+   * Flatten roots from the source directory into the output directory, every document is written to a file named
+   * after its path relative to the source directory.
+   */
+  private static ImportGraph flatten(File src, File out, boolean dedup, String... roots) throws Exception {
+    return flatten(src, out, dedup, null, roots);
+  }
+
+  /**
+   * Flatten roots like {@link #flatten(File, File, boolean, String...)} and rename the written files before they are
+   * published.
+   */
+  private static ImportGraph flatten(File src, File out, boolean dedup, Map<File, File> renames, String... roots)
+    throws Exception {
+
+    CrawlerListener listener = new CrawlerListener() {
+      @Override
+      public boolean doCrawl(URL url) {
+        return true;
+      }
+
+      @Override
+      public File toFile(URL url, String extension) {
+        String path = src.toURI().relativize(URI.create(url.toExternalForm())).getPath();
+        return new File(out, path.replace('/', '-'));
+      }
+    };
+
+    ImportGraph graph = new ImportGraph(
+      (namespace, base, location) -> URI.create(base).resolve(location).toString(), listener);
+    graph.setDedup(dedup);
+    if (renames != null) {
+      graph.setRenames(() -> renames);
+    }
+    graph.setMetrics(new BuildMetrics());
+    for (String root : roots) {
+      graph.addRoot(new File(src, root).toURI().toURL());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      graph.flatten(executor);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return graph;
+
+  }
+
+  private static ImportGraph.Node node(ImportGraph graph, String name) {
+    return graph.getNodes().stream().filter(n -> n.getFile().getName().equals(name)).findFirst().get();
+  }
+
+  private static String schema(String namespace, String... locations) {
+    StringBuilder sb = new StringBuilder("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"")
+      .append(namespace).append("\">");
+    for (String location : locations) {
+      sb.append("<xs:import schemaLocation=\"").append(location).append("\"/>");
+    }
+    return sb.append("</xs:schema>").toString();
+  }
+
+  private static String root(String location) {
+    return "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns:t=\"urn:t\">"
+      + "<xs:import namespace=\"urn:t\" schemaLocation=\"" + location + "\"/>"
+      + "<xs:element name=\"r\" type=\"t:Type\"/></xs:schema>";
+  }
+
+  private static String types(String location) {
+    return "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:t\">"
+      + "<xs:import namespace=\"urn:c\" schemaLocation=\"" + location + "\"/>"
+      + "<xs:complexType name=\"Type\"/></xs:schema>";
+  }
+
+  private static void write(File dir, String path, String content) throws Exception {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(File dir, String name) throws Exception {
+    return new String(Files.readAllBytes(new File(dir, name).toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static String[] sorted(String[] names) {
+    Arrays.sort(names);
+    return names;
+  }
+
+}
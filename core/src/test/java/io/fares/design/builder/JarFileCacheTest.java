@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.apache.xml.resolver.Catalog;
+import org.apache.xml.resolver.CatalogManager;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class JarFileCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testServeEntriesFromSharedArchive() throws Exception {
+
+    File jar = writeJar("types.jar",
+      "META-INF/catalog.xml", "<catalog xmlns='urn:oasis:names:tc:entity:xmlns:xml:catalog'>"
+        + "<system systemId='http://x/a.xsd' uri='../schema/a b.xsd'/></catalog>",
+      "schema/a b.xsd", "<schema/>");
+
+    String archive = jar.toURI().toURL().toExternalForm();
+
+    try (JarFileCache cache = new JarFileCache()) {
+
+      Assert.assertEquals("<schema/>", read(cache, new URL("jar:" + archive + "!/schema/a%20b.xsd")));
+      Assert.assertEquals("<schema/>", read(cache, new URL("jar:" + archive + "!/schema/a b.xsd")));
+      Assert.assertEquals(1, cache.size());
+
+      try {
+        read(cache, new URL("jar:" + archive + "!/schema/missing.xsd"));
+        Assert.fail("missing entry must not be served");
+      } catch (FileNotFoundException expected) {
+        // expected
+      }
+
+      CatalogManager manager = new JarFileCatalogManager(cache);
+      manager.setIgnoreMissingProperties(true);
+      manager.setUseStaticCatalog(false);
+      manager.setCatalogClassName(CompiledCatalog.class.getName());
+      manager.setCatalogFiles("jar:" + archive + "!/META-INF/catalog.xml");
+
+      Catalog catalog = manager.getCatalog();
+      Assert.assertEquals("jar:" + archive + "!/schema/a%20b.xsd", catalog.resolveSystem("http://x/a.xsd"));
+
+      cache.close();
+      Assert.assertEquals(0, cache.size());
+
+      try {
+        read(cache, new URL("jar:" + archive + "!/schema/a%20b.xsd"));
+        Assert.fail("closed cache must not reopen archives");
+      } catch (IOException expected) {
+        // expected
+      }
+
+    }
+
+  }
+
+  private File writeJar(String name, String... entries) throws IOException {
+    File jar = folder.newFile(name);
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+      for (int i = 0; i < entries.length; i += 2) {
+        out.putNextEntry(new ZipEntry(entries[i]));
+        out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static String read(JarFileCache cache, URL url) throws IOException {
+    try (InputStream in = cache.openStream(url); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+      byte[] buffer = new byte[256];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.apache.xml.resolver.CatalogManager;
+import org.apache.xml.resolver.tools.CatalogResolver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JlibsResolverBridgeTest {
+
+  @Test
+  public void testCacheResolvedLocation() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver);
+
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", null, "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", null, "a.xsd"));
+
+    Assert.assertEquals(1, resolver.calls.get());
+    Assert.assertEquals(1, bridge.getCacheHits());
+    Assert.assertEquals(1, bridge.getCacheMisses());
+
+  }
+
+  @Test
+  public void testCacheUnresolvedLocation() {
+
+    CountingResolver resolver = new CountingResolver();
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver);
+
+    Assert.assertNull(bridge.resolve("urn:none", null, "none.xsd"));
+    Assert.assertNull(bridge.resolve("urn:none", null, "none.xsd"));
+
+    Assert.assertEquals(1, resolver.calls.get());
+    Assert.assertEquals(1, bridge.getCacheHits());
+    Assert.assertEquals(1, bridge.getCacheMisses());
+
+  }
+
+  @Test
+  public void testKeyOnNamespaceBaseAndLocation() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    resolver.entities.put("b.xsd", "file:/schemas/b.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver);
+
+    String base = "file:/missing/root.xsd";
+
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", base, "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:other", base, "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve(null, base, "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", "file:/missing/other.xsd", "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", null, "a.xsd"));
+    Assert.assertEquals("file:/schemas/b.xsd", bridge.resolve("urn:a", base, "b.xsd"));
+
+    Assert.assertEquals(6, resolver.calls.get());
+    Assert.assertEquals(0, bridge.getCacheHits());
+    Assert.assertEquals(6, bridge.getCacheMisses());
+
+    // every combination is remembered on its own
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve(null, base, "a.xsd"));
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve("urn:a", null, "a.xsd"));
+    Assert.assertEquals("file:/schemas/b.xsd", bridge.resolve("urn:a", base, "b.xsd"));
+
+    Assert.assertEquals(6, resolver.calls.get());
+    Assert.assertEquals(3, bridge.getCacheHits());
+
+  }
+
+  @Test
+  public void testEnforceCacheSize() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    resolver.entities.put("b.xsd", "file:/schemas/b.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver, 1);
+
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "a.xsd");
+    Assert.assertEquals(1, bridge.getCacheHits());
+
+    // b takes the only slot
+    bridge.resolve(null, null, "b.xsd");
+    Assert.assertEquals("file:/schemas/a.xsd", bridge.resolve(null, null, "a.xsd"));
+
+    Assert.assertEquals(3, resolver.calls.get());
+    Assert.assertEquals(1, bridge.getCacheHits());
+    Assert.assertEquals(3, bridge.getCacheMisses());
+
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    resolver.entities.put("b.xsd", "file:/schemas/b.xsd");
+    resolver.entities.put("c.xsd", "file:/schemas/c.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver, 2);
+
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "b.xsd");
+    bridge.resolve(null, null, "a.xsd");
+
+    // b was used longest ago and makes room for c
+    bridge.resolve(null, null, "c.xsd");
+    bridge.resolve(null, null, "a.xsd");
+    Assert.assertEquals(2, bridge.getCacheHits());
+    bridge.resolve(null, null, "b.xsd");
+    Assert.assertEquals(2, bridge.getCacheHits());
+    Assert.assertEquals(4, resolver.calls.get());
+
+  }
+
+  @Test
+  public void testDisableCache() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver, 0);
+
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "a.xsd");
+
+    Assert.assertEquals(2, resolver.calls.get());
+    Assert.assertEquals(0, bridge.getCacheHits());
+    Assert.assertEquals(2, bridge.getCacheMisses());
+
+  }
+
+  @Test
+  public void testRecordHitsAndMisses() {
+
+    CountingResolver resolver = new CountingResolver();
+    resolver.entities.put("a.xsd", "file:/schemas/a.xsd");
+    JlibsResolverBridge bridge = new JlibsResolverBridge(resolver);
+    BuildMetrics metrics = new BuildMetrics();
+    bridge.setMetrics(metrics);
+
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "a.xsd");
+    bridge.resolve(null, null, "none.xsd");
+
+    Assert.assertEquals(2, bridge.getCacheHits());
+    Assert.assertEquals(2, bridge.getCacheMisses());
+    Assert.assertEquals(2, metrics.getCount("resolver.cache.hits"));
+    Assert.assertEquals(2, metrics.getCount("resolver.cache.misses"));
+
+  }
+
+  /**
+   * Answers entity lookups from a map and counts how often the catalog is asked.
+   */
+  private static class CountingResolver extends CatalogResolver {
+
+    private final Map<String, String> entities = new HashMap<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    CountingResolver() {
+      super(emptyCatalog());
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) {
+      calls.incrementAndGet();
+      String resolved = entities.get(systemId);
+      return resolved != null ? new InputSource(resolved) : null;
+    }
+
+    private static CatalogManager emptyCatalog() {
+      CatalogManager manager = new CatalogManager();
+      manager.setIgnoreMissingProperties(true);
+      manager.setUseStaticCatalog(false);
+      manager.setVerbosity(0);
+      manager.setCatalogFiles("");
+      return manager;
+    }
+
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+public class NegativeLookupCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRememberUnavailableDocuments() throws Exception {
+
+    File file = new File(folder.getRoot(), "cache/negative-lookups.txt");
+
+    NegativeLookupCache cache = NegativeLookupCache.load(file, 1, TimeUnit.HOURS);
+    Assert.assertFalse(cache.contains("http://acme.com/a.xsd"));
+
+    cache.record("http://acme.com/a.xsd");
+    Assert.assertTrue(cache.contains("http://acme.com/a.xsd"));
+    cache.store();
+
+    NegativeLookupCache loaded = NegativeLookupCache.load(file, 1, TimeUnit.HOURS);
+    Assert.assertTrue(loaded.contains("http://acme.com/a.xsd"));
+    Assert.assertFalse(loaded.contains("http://acme.com/b.xsd"));
+
+  }
+
+  @Test
+  public void testDropExpiredEntries() throws Exception {
+
+    File file = folder.newFile("negative-lookups.txt");
+    long old = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+    Files.write(file.toPath(), Arrays.asList(
+      "# design-builder negative lookup cache v1",
+      "http://acme.com/old.xsd\t" + old,
+      "http://acme.com/new.xsd\t" + System.currentTimeMillis()), StandardCharsets.UTF_8);
+
+    NegativeLookupCache cache = NegativeLookupCache.load(file, 1, TimeUnit.HOURS);
+    Assert.assertFalse(cache.contains("http://acme.com/old.xsd"));
+    Assert.assertTrue(cache.contains("http://acme.com/new.xsd"));
+    Assert.assertEquals(1, cache.size());
+
+  }
+
+  @Test
+  public void testRemoteLocations() {
+    Assert.assertTrue(JlibsResolverBridge.isRemote("http://acme.com/a.xsd"));
+    Assert.assertTrue(JlibsResolverBridge.isRemote("jar:https://acme.com/a.jar!/a.xsd"));
+    Assert.assertFalse(JlibsResolverBridge.isRemote("file:/tmp/a.xsd"));
+    Assert.assertFalse(JlibsResolverBridge.isRemote("jar:file:/tmp/a.jar!/a.xsd"));
+    Assert.assertFalse(JlibsResolverBridge.isRemote("/tmp/a:b.xsd"));
+    Assert.assertFalse(JlibsResolverBridge.isRemote("C:\\tmp\\a.xsd"));
+    Assert.assertFalse(JlibsResolverBridge.isRemote("a.xsd"));
+  }
+
+  @Test
+  public void testOnlyFetchFailures() {
+
+    String url = "http://acme.com/a.xsd";
+
+    Assert.assertTrue(NegativeLookupCache.isFetchFailure(url, new UnknownHostException("acme.com")));
+    Assert.assertTrue(NegativeLookupCache.isFetchFailure(url, new ConnectException("Connection refused")));
+    Assert.assertTrue(NegativeLookupCache.isFetchFailure(url, new FileNotFoundException(url)));
+    Assert.assertTrue(NegativeLookupCache.isFetchFailure(url,
+      new IOException("Server returned HTTP response code: 503 for URL: " + url)));
+    // a timeout while the parser reads the document
+    Assert.assertTrue(NegativeLookupCache.isFetchFailure(url, new IOException("Failed to flatten " + url,
+      new XMLStreamException("Read timed out", new SocketTimeoutException("Read timed out")))));
+
+    Assert.assertFalse(NegativeLookupCache.isFetchFailure(url, new IOException("Failed to flatten " + url,
+      new XMLStreamException("Unexpected end of file"))));
+    Assert.assertFalse(NegativeLookupCache.isFetchFailure(url,
+      new FileNotFoundException("/out/a.xsd (Permission denied)")));
+    Assert.assertFalse(NegativeLookupCache.isFetchFailure(url, new IllegalStateException("bug")));
+
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+public class OutputFilesTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testReplaceOnlyChangedFiles() throws Exception {
+
+    Path target = folder.getRoot().toPath().resolve("out.xsd");
+
+    Assert.assertTrue(OutputFiles.replaceIfChanged(write(target, "<schema/>"), target));
+    FileTime written = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(target, written);
+
+    // same bytes, the target keeps its modification time and the fresh file is dropped
+    Path same = write(target, "<schema/>");
+    Assert.assertFalse(OutputFiles.replaceIfChanged(same, target));
+    Assert.assertFalse(Files.exists(same));
+    Assert.assertEquals(written, Files.getLastModifiedTime(target));
+
+    // same length, different content
+    Assert.assertTrue(OutputFiles.replaceIfChanged(write(target, "<schemb/>"), target));
+    Assert.assertEquals("<schemb/>", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+    try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+      Assert.assertEquals(1, files.count());
+    }
+
+  }
+
+  @Test
+  public void testWriteThroughTemporaryFile() throws Exception {
+
+    Path target = folder.getRoot().toPath().resolve("cache/index.txt");
+
+    OutputFiles.write(target, writer -> writer.write("first"));
+    OutputFiles.write(target, writer -> writer.write("second"));
+
+    Assert.assertEquals("second", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    try (Stream<Path> files = Files.list(target.getParent())) {
+      Assert.assertEquals(1, files.count());
+    }
+    Assert.assertFalse(OutputFiles.isSingleLine("a\nb"));
+
+  }
+
+  private static Path write(Path target, String content) throws Exception {
+    Path temp = OutputFiles.createTempFile(target);
+    Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+    return temp;
+  }
+
+}
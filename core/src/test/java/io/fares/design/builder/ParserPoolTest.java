@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParserPoolTest {
+
+  @Test
+  public void testReuseReleasedInstance() {
+
+    AtomicInteger created = new AtomicInteger();
+    ParserPool<Object> pool = new ParserPool<>(() -> {
+      created.incrementAndGet();
+      return new Object();
+    }, 2);
+
+    Object first = pool.borrow();
+    pool.release(first);
+    Assert.assertEquals(1, pool.getIdleCount());
+
+    Assert.assertSame(first, pool.borrow());
+    Assert.assertEquals(0, pool.getIdleCount());
+    Assert.assertEquals(1, created.get());
+
+  }
+
+  @Test
+  public void testKeepAtMostCapacityIdle() {
+
+    ParserPool<Object> pool = new ParserPool<>(Object::new, 2);
+
+    List<Object> borrowed = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      borrowed.add(pool.borrow());
+    }
+    for (Object instance : borrowed) {
+      pool.release(instance);
+    }
+    pool.release(null);
+
+    Assert.assertEquals(2, pool.getIdleCount());
+
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectEmptyCapacity() {
+    new ParserPool<>(Object::new, 0);
+  }
+
+  @Test
+  public void testNeverHandOutInstanceTwice() throws Exception {
+
+    int threads = 8;
+    ParserPool<Object> pool = new ParserPool<>(Object::new, threads);
+    Set<Object> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    AtomicInteger shared = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        tasks.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < 10000; i++) {
+            Object instance = pool.borrow();
+            if (!inUse.add(instance)) {
+              shared.incrementAndGet();
+            }
+            inUse.remove(instance);
+            pool.release(instance);
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> task : tasks) {
+        task.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals(0, shared.get());
+    Assert.assertTrue(pool.getIdleCount() <= threads);
+
+  }
+
+}
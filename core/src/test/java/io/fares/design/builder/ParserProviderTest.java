@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+public class ParserProviderTest {
+
+  @Test
+  public void testSharedFactories() {
+    Assert.assertSame(ParserProvider.getInputFactory(), ParserProvider.getInputFactory());
+    Assert.assertSame(ParserProvider.getOutputFactory(), ParserProvider.getOutputFactory());
+    Assert.assertSame(ParserProvider.getEventFactory(), ParserProvider.getEventFactory());
+  }
+
+  @Test
+  public void testExternalEntitiesNotResolved() {
+    Assert.assertEquals(Boolean.FALSE,
+      ParserProvider.getInputFactory().getProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES));
+  }
+
+  @Test
+  public void testReportCData() throws Exception {
+
+    XMLStreamReader reader = ParserProvider.getInputFactory()
+      .createXMLStreamReader(new StringReader("<a><![CDATA[x < y]]></a>"));
+
+    boolean cdata = false;
+    while (reader.hasNext()) {
+      if (reader.next() == XMLStreamConstants.CDATA) {
+        cdata = true;
+        Assert.assertEquals("x < y", reader.getText());
+      }
+    }
+    reader.close();
+
+    Assert.assertTrue(cdata);
+
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.design.builder;
+
+import jlibs.xml.sax.crawl.CrawlerListener;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+public class StreamingCrawlerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testRewriteOnlyReferenceLocations() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+    new File(src, "common").mkdirs();
+
+    String root = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<?pi data?><xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns:c=\"urn:c\" targetNamespace=\"urn:r\">\n"
+      + "  <!-- keep me -->\n"
+      + "  <xs:import namespace=\"urn:c\" schemaLocation=\"common/types.xsd\"/>\n"
+      + "  <xs:annotation><xs:documentation><![CDATA[a < b]]> &amp; more</xs:documentation></xs:annotation>\n"
+      + "  <xs:element name=\"r\" type=\"c:Code\"/>\n"
+      + "</xs:schema>";
+    String types = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\">"
+      + "<xs:include schemaLocation=\"../root.xsd\"/></xs:schema>";
+
+    Files.write(new File(src, "root.xsd").toPath(), root.getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(src, "common/types.xsd").toPath(), types.getBytes(StandardCharsets.UTF_8));
+
+    BuildMetrics metrics = new BuildMetrics();
+    StreamingCrawler crawler = new StreamingCrawler();
+    crawler.setMetrics(metrics);
+    File file = crawler.crawl(new File(src, "root.xsd").toURI().toURL(), listener(out));
+
+    Assert.assertEquals(new File(out, "flat-root.xsd"), file);
+    Assert.assertNull(crawler.getFailed());
+    Assert.assertEquals(root.getBytes(StandardCharsets.UTF_8).length + types.getBytes(StandardCharsets.UTF_8).length,
+      metrics.getCount("bytes.read"));
+
+    String flatRoot = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    Assert.assertEquals(root.replace("common/types.xsd", "flat-types.xsd"), flatRoot);
+
+    // the cycle back to the root is rewritten to the file already written
+    String flatTypes = new String(Files.readAllBytes(new File(out, "flat-types.xsd").toPath()), StandardCharsets.UTF_8);
+    Assert.assertTrue(flatTypes, flatTypes.contains("<xs:include schemaLocation=\"flat-root.xsd\"/>"));
+
+  }
+
+  @Test
+  public void testRewriteWsdlImports() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+    new File(src, "wsdl").mkdirs();
+
+    String service = "<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" targetNamespace=\"urn:s\">"
+      + "<wsdl:import namespace=\"urn:d\" location=\"wsdl/defs\"/></wsdl:definitions>";
+    String defs = "<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\" targetNamespace=\"urn:d\">"
+      + "<wsdl:types><xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:d\">"
+      + "<xs:import namespace=\"urn:c\" schemaLocation=\"../types.xsd\"/></xs:schema></wsdl:types>"
+      + "</wsdl:definitions>";
+    String types = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\"/>";
+
+    write(src, "service.wsdl", service, StandardCharsets.UTF_8);
+    write(src, "wsdl/defs", defs, StandardCharsets.UTF_8);
+    write(src, "types.xsd", types, StandardCharsets.UTF_8);
+
+    File file = new StreamingCrawler().crawl(new File(src, "service.wsdl").toURI().toURL(), listener(out));
+
+    // a wsdl import without extension is written as wsdl
+    Assert.assertEquals(service.replace("wsdl/defs", "flat-defs.wsdl"), read(file, StandardCharsets.UTF_8));
+    Assert.assertEquals(defs.replace("../types.xsd", "flat-types.xsd"),
+      read(new File(out, "flat-defs.wsdl"), StandardCharsets.UTF_8));
+    Assert.assertTrue(new File(out, "flat-types.xsd").isFile());
+
+  }
+
+  @Test
+  public void testKeepDeclaredEncoding() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    String root = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
+      + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:r\">"
+      + "<xs:import namespace=\"urn:c\" schemaLocation=\"types.xsd\"/>"
+      + "<xs:annotation><xs:documentation>Caf\u00e9 \u00e0 la cr\u00e8me</xs:documentation></xs:annotation>"
+      + "</xs:schema>";
+    String types = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\"/>";
+
+    write(src, "root.xsd", root, StandardCharsets.ISO_8859_1);
+    write(src, "types.xsd", types, StandardCharsets.UTF_8);
+
+    File file = new StreamingCrawler().crawl(new File(src, "root.xsd").toURI().toURL(), listener(out));
+
+    // written in the declared encoding, not as UTF-8
+    Assert.assertArrayEquals(root.replace("types.xsd", "flat-types.xsd").getBytes(StandardCharsets.ISO_8859_1),
+      Files.readAllBytes(file.toPath()));
+
+  }
+
+  @Test
+  public void testKeepMissingDeclaration() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    String root = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:r\">"
+      + "<xs:import namespace=\"urn:c\" schemaLocation=\"types.xsd\"/>"
+      + "<xs:annotation><xs:documentation>Gr\u00fc\u00dfe</xs:documentation></xs:annotation>"
+      + "</xs:schema>";
+    String types = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\"/>";
+
+    write(src, "root.xsd", root, StandardCharsets.UTF_8);
+    write(src, "types.xsd", types, StandardCharsets.UTF_8);
+
+    File file = new StreamingCrawler().crawl(new File(src, "root.xsd").toURI().toURL(), listener(out));
+
+    // no declaration is added and the content stays UTF-8
+    Assert.assertArrayEquals(root.replace("types.xsd", "flat-types.xsd").getBytes(StandardCharsets.UTF_8),
+      Files.readAllBytes(file.toPath()));
+
+  }
+
+  @Test
+  public void testKeepStandaloneProlog() throws Exception {
+
+    File src = folder.newFolder("src");
+    File out = folder.newFolder("out");
+
+    String root = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n\n<!-- prolog -->\n  "
+      + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:r\">"
+      + "<xs:import namespace=\"urn:c\" schemaLocation=\"types.xsd\"></xs:import>"
+      + "<xs:annotation><xs:documentation></xs:documentation><xs:appinfo/></xs:annotation>"
+      + "</xs:schema>";
+    String types = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:c\"/>";
+
+    write(src, "root.xsd", root, StandardCharsets.UTF_8);
+    write(src, "types.xsd", types, StandardCharsets.UTF_8);
+
+    File file = new StreamingCrawler().crawl(new File(src, "root.xsd").toURI().toURL(), listener(out));
+
+    Assert.assertEquals(root.replace("types.xsd", "flat-types.xsd"), read(file, StandardCharsets.UTF_8));
+    Assert.assertEquals(types, read(new File(out, "flat-types.xsd"), StandardCharsets.UTF_8));
+
+  }
+
+  @Test
+  public void testRelinkRenamedReferences() throws Exception {
+
+    File out = folder.newFolder("out");
+
+    String root = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" targetNamespace=\"urn:r\">"
+      + "<xs:import namespace=\"urn:a\" schemaLocation=\"a.xsd\"/>"
+      + "<xs:import namespace=\"urn:b\" schemaLocation=\"b.xsd\"/>"
+      + "</xs:schema>";
+    write(out, "root.xsd", root, StandardCharsets.UTF_8);
+
+    StreamingCrawler crawler = new StreamingCrawler();
+    File source = new File(out, "root.xsd");
+    File target = new File(out, "relinked.xsd");
+
+    Assert.assertFalse(crawler.relink(source, target, Collections.singletonMap("c.xsd", "c1.xsd")));
+    Assert.assertTrue(crawler.relink(source, target, Collections.singletonMap("b.xsd", "b1.xsd")));
+    Assert.assertEquals(root.replace("b.xsd", "b1.xsd"), read(target, StandardCharsets.UTF_8));
+
+  }
+
+  /**
+   * Writes every document to a file named after its last path segment, documents without extension get the default
+   * extension.
+   */
+  private static CrawlerListener listener(File out) {
+    return new CrawlerListener() {
+      @Override
+      public boolean doCrawl(URL url) {
+        return true;
+      }
+
+      @Override
+      public File toFile(URL url, String extension) {
+        String path = url.getPath();
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return new File(out, "flat-" + (name.indexOf('.') < 0 ? name + '.' + extension : name));
+      }
+    };
+  }
+
+  private static void write(File dir, String path, String content, Charset charset) throws Exception {
+    Files.write(new File(dir, path).toPath(), content.getBytes(charset));
+  }
+
+  private static String read(File file, Charset charset) throws Exception {
+    return new String(Files.readAllBytes(file.toPath()), charset);
+  }
+
+}
@@ -27,12 +27,19 @@ import java.net.URI;
 import java.net.URL;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static java.text.MessageFormat.format;
 
+import io.fares.design.builder.BuildMetrics;
+import io.fares.design.builder.CompiledCatalog;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.xml.resolver.Catalog;
 import org.apache.xml.resolver.CatalogManager;
 import org.apache.xml.resolver.tools.CatalogResolver;
 import org.eclipse.aether.RepositorySystemSession;
@@ -62,12 +69,19 @@ public final class MavenCatalogResolver extends CatalogResolver {
 
   private ArtifactResolver artifactResolver;
 
+  /**
+   * The artifacts already resolved in this build.
+   */
+  private ResolvedArtifactCache artifactCache;
+
   /**
    * The {@link ClassLoader} used to resolve a <code>classpath:</code>
    * resource URI.
    */
   private ClassLoader classLoader;
 
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
   // FIXME move classloader construction to here
   public MavenCatalogResolver() {
 
@@ -107,6 +121,7 @@ public final class MavenCatalogResolver extends CatalogResolver {
     super(Objects.requireNonNull(catalogManager, "The catalog manager must not be null."));
     this.artifactResolver = Objects.requireNonNull(artifactResolver, "Artifact resolver must not be null.");
     this.repositorySystemSession = Objects.requireNonNull(repositorySystemSession, "Repository system session must not be null.");
+    this.artifactCache = ResolvedArtifactCache.of(repositorySystemSession);
 
     if (classloader != null) {
       this.classLoader = classloader;
@@ -138,10 +153,12 @@ public final class MavenCatalogResolver extends CatalogResolver {
       final URI uri = new URI(result);
       // now see if we can resolve the protocol
       if (URI_SCHEME_MAVEN.equals(uri.getScheme())) {
+        metrics.increment("resolver.scheme.maven");
         final String schemeSpecificPart = uri.getSchemeSpecificPart();
         return resolveMavenEntity(schemeSpecificPart);
       }
       if (URI_SCHEME_CLASSPATH.equals(uri.getScheme())) {
+        metrics.increment("resolver.scheme.classpath");
         final String schemeSpecificPart = uri.getSchemeSpecificPart();
         return resolveClasspathEntity(schemeSpecificPart);
       } else {
@@ -159,12 +176,23 @@ public final class MavenCatalogResolver extends CatalogResolver {
       final DependencyResource dependencyResource = DependencyResource
         .valueOf(schemeSpecificPart);
 
-      // TODO check if we need remote repos here !
-      Artifact artifact = new DefaultArtifact(dependencyResource.getGroupId(), dependencyResource.getArtifactId(), dependencyResource.getClassifier(), dependencyResource.getType(), dependencyResource.getVersion());
-      ArtifactRequest request = new ArtifactRequest(artifact, null, null);
-
-      ArtifactResult result = artifactResolver.resolveArtifact(repositorySystemSession, request);
-      artifact = result.getArtifact();
+      Artifact artifact = toArtifact(dependencyResource);
+
+      File artifactFile = artifactCache.get(artifact);
+      if (artifactFile == null) {
+        ArtifactRequest request = new ArtifactRequest(artifact, null, null);
+        artifactFile = artifactCache.resolve(artifact, () -> {
+          long start = metrics.start();
+          try {
+            return artifactResolver.resolveArtifact(repositorySystemSession, request).getArtifact().getFile();
+          } finally {
+            metrics.stop("artifact.resolve", start);
+          }
+        });
+      } else {
+        metrics.increment("artifact.cache.hits");
+      }
+      artifact = artifact.setFile(artifactFile);
       final URL resourceURL = createArtifactResourceUrl(artifact, schemeSpecificPart);
       if (log.isDebugEnabled())
         log.debug("Resolved dependency resource [{}] to resource URL [{}].", dependencyResource, resourceURL);
@@ -174,6 +202,7 @@ public final class MavenCatalogResolver extends CatalogResolver {
       getCatalog().getCatalogManager().debug.message(1, format("Error parsing dependency descriptor [{0}]: {1}",
         schemeSpecificPart, iaex.getMessage()));
     } catch (ArtifactResolutionException e) {
+      metrics.increment("artifact.failures");
       // TODO review logging
       getCatalog().getCatalogManager().debug.message(1, format("Failed to resolve [{0}].",
         schemeSpecificPart));
@@ -187,6 +216,85 @@ public final class MavenCatalogResolver extends CatalogResolver {
     return null;
   }
 
+  /**
+   * Resolve every artifact the catalogs map to through a <code>maven:</code> target in one batch, so a crawl that
+   * follows these entries later finds the artifacts in the {@link ResolvedArtifactCache} and never waits for the
+   * repository. The catalogs are scanned statically, subordinate catalogs are loaded on the way.
+   * <p>
+   * Artifacts that fail to resolve are left out, they are tried again and reported when a reference needs them.
+   *
+   * @return the number of artifacts that were resolved
+   */
+  public int prefetch() {
+
+    Catalog catalog = getCatalog();
+    if (!(catalog instanceof CompiledCatalog)) {
+      return 0;
+    }
+
+    long start = metrics.start();
+
+    List<String> targets;
+    // subordinate catalogs load under the same lock the lookups take
+    synchronized (catalog) {
+      targets = ((CompiledCatalog) catalog).getEntryTargets();
+    }
+
+    Map<String, ArtifactRequest> requests = new LinkedHashMap<>();
+    for (String target : targets) {
+      if (!target.startsWith(URI_SCHEME_MAVEN + ':')) {
+        continue;
+      }
+      try {
+        Artifact artifact = toArtifact(DependencyResource.valueOf(new URI(target).getSchemeSpecificPart()));
+        if (artifactCache.get(artifact) == null) {
+          requests.putIfAbsent(artifact.toString(), new ArtifactRequest(artifact, null, null));
+        }
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        // reported once a reference actually resolves to this target
+        if (log.isDebugEnabled())
+          log.debug("Skip prefetch of [{}]: {}", target, e.getMessage());
+      }
+    }
+
+    if (requests.isEmpty()) {
+      metrics.stop("artifact.prefetch", start);
+      return 0;
+    }
+
+    if (log.isDebugEnabled())
+      log.debug("Prefetch {} catalog artifacts", requests.size());
+
+    List<ArtifactResult> results;
+    try {
+      results = artifactResolver.resolveArtifacts(repositorySystemSession, new ArrayList<>(requests.values()));
+    } catch (ArtifactResolutionException e) {
+      results = e.getResults();
+    }
+
+    int resolved = 0;
+    for (ArtifactResult result : results) {
+      if (result.isResolved()) {
+        artifactCache.put(result.getRequest().getArtifact(), result.getArtifact().getFile());
+        resolved++;
+      } else if (log.isDebugEnabled()) {
+        log.debug("Failed to prefetch [{}]", result.getRequest().getArtifact());
+      }
+    }
+
+    metrics.add("artifact.prefetched", resolved);
+    metrics.stop("artifact.prefetch", start);
+
+    return resolved;
+
+  }
+
+  // TODO check if we need remote repos here !
+  private static Artifact toArtifact(DependencyResource dependencyResource) {
+    return new DefaultArtifact(dependencyResource.getGroupId(), dependencyResource.getArtifactId(),
+      dependencyResource.getClassifier(), dependencyResource.getType(), dependencyResource.getVersion());
+  }
+
   /**
    * This will create the actual resource URL for the artifact to use.
    * <p>
@@ -255,6 +363,18 @@ public final class MavenCatalogResolver extends CatalogResolver {
 
   public void setRepositorySystemSession(RepositorySystemSession repositorySystemSession) {
     this.repositorySystemSession = repositorySystemSession;
+    this.artifactCache = ResolvedArtifactCache.of(repositorySystemSession);
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics to record scheme and artifact resolutions into, null stops recording
+   */
+  public void setMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
   }
 
   /**
@@ -34,8 +34,14 @@ import org.eclipse.aether.spi.locator.Service;
 import org.eclipse.aether.spi.locator.ServiceLocator;
 import org.eclipse.aether.impl.ArtifactResolver;
 
+import org.apache.xml.resolver.Catalog;
 import org.apache.xml.resolver.CatalogManager;
 
+import io.fares.design.builder.CompiledCatalog;
+import io.fares.design.builder.ContentHashes;
+import io.fares.design.builder.JarFileCache;
+import io.fares.design.builder.JarFileCatalogManager;
+
 @Named("mavenCatalogResolverFactory")
 @Component(role = MavenCatalogResolverFactory.class)
 public class MavenCatalogResolverFactory implements Service {
@@ -46,9 +52,55 @@ public class MavenCatalogResolverFactory implements Service {
   private ArtifactResolver artifactResolver;
 
   public MavenCatalogResolver newInstance(RepositorySystemSession session, List<URL> catalogURLs) {
+    return newInstance(session, catalogURLs, null);
+  }
+
+  /**
+   * @param session      the repository session used to resolve <code>maven:</code> references
+   * @param catalogURLs  the catalog files to resolve against
+   * @param jarFileCache the archives catalog files inside jars are read from, null opens every catalog by its URL
+   * @return a resolver over the given catalogs, sharing the parsed catalog with all resolvers of the build over the
+   * same catalog files
+   */
+  public MavenCatalogResolver newInstance(RepositorySystemSession session, List<URL> catalogURLs, JarFileCache jarFileCache) {
+    return newInstance(session, catalogURLs, jarFileCache, new ContentHashes());
+  }
+
+  /**
+   * @param session      the repository session used to resolve <code>maven:</code> references
+   * @param catalogURLs  the catalog files to resolve against
+   * @param jarFileCache the archives catalog files inside jars are read from, null opens every catalog by its URL
+   * @param hashes       the content hashes of the caller, catalog files hashed here are not read again by the caller
+   * @return a resolver over the given catalogs, sharing the parsed catalog with all resolvers of the build over the
+   * same catalog files
+   */
+  public MavenCatalogResolver newInstance(RepositorySystemSession session, List<URL> catalogURLs,
+                                          JarFileCache jarFileCache, ContentHashes hashes) {
+
+    final CatalogManager catalogManager = createCatalogManager(catalogURLs, jarFileCache);
+
+    ParsedCatalogCache cache = ParsedCatalogCache.of(session);
+    if (cache == null) {
+      return new MavenCatalogResolver(catalogManager, session, artifactResolver);
+    }
+
+    String key = ParsedCatalogCache.key(catalogURLs, jarFileCache, hashes);
+    Catalog catalog = cache.get(key, () -> {
+      if (log.isDebugEnabled())
+        log.debug("Parse {} catalog files for key {}", catalogURLs.size(), key);
+      return catalogManager.getPrivateCatalog();
+    }, parsed -> ParsedCatalogCache.loadedKey(parsed, jarFileCache, hashes));
+
+    return new MavenCatalogResolver(new SharedCatalogManager(catalog), session, artifactResolver);
+
+  }
+
+  private CatalogManager createCatalogManager(List<URL> catalogURLs, JarFileCache jarFileCache) {
 
     // create a catalog manager from discovered catalog files
-    final CatalogManager catalogManager = new CatalogManager();
+    final CatalogManager catalogManager = jarFileCache != null
+      ? new JarFileCatalogManager(jarFileCache)
+      : new CatalogManager();
     catalogManager.setIgnoreMissingProperties(true);
 
     if (log.isDebugEnabled()) {
@@ -58,6 +110,9 @@ public class MavenCatalogResolverFactory implements Service {
     catalogManager.setUseStaticCatalog(false);
     catalogManager.setIgnoreMissingProperties(true);
 
+    // look entries up in compiled maps and tries rather than walking every catalog
+    catalogManager.setCatalogClassName(CompiledCatalog.class.getName());
+
     // need to prep the manager with resolved catalog URLs
     boolean firstEntry = true;
     StringBuilder catB = new StringBuilder();
@@ -71,7 +126,7 @@ public class MavenCatalogResolverFactory implements Service {
 
     catalogManager.setCatalogFiles(catB.toString());
 
-    return new MavenCatalogResolver(catalogManager, session, artifactResolver);
+    return catalogManager;
 
   }
 
@@ -79,4 +134,29 @@ public class MavenCatalogResolverFactory implements Service {
   public void initService(ServiceLocator locator) {
   }
 
+  /**
+   * Hands a catalog parsed for an earlier resolver to a new resolver.
+   */
+  private static final class SharedCatalogManager extends CatalogManager {
+
+    private final Catalog catalog;
+
+    SharedCatalogManager(Catalog catalog) {
+      this.catalog = catalog;
+      setIgnoreMissingProperties(true);
+      setUseStaticCatalog(false);
+    }
+
+    @Override
+    public Catalog getCatalog() {
+      return catalog;
+    }
+
+    @Override
+    public Catalog getPrivateCatalog() {
+      return catalog;
+    }
+
+  }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.xml.resolver.Catalog;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import io.fares.design.builder.CompiledCatalog;
+import io.fares.design.builder.ContentHashes;
+import io.fares.design.builder.JarFileCache;
+
+/**
+ * Remembers the catalogs parsed for a list of catalog files. The cache lives in the {@link SessionData} of the
+ * repository session, so modules of a build, including modules built in parallel, that resolve against the same
+ * catalog files share one parsed catalog.
+ * <p>
+ * A catalog is keyed by the ordered list of its catalog files together with the content hash of each file, so a
+ * catalog file that changes during the build, e.g. one generated by an earlier module, is parsed again. Subordinate
+ * catalogs are only known once the catalog is parsed, a cached catalog is parsed again if one of them has changed.
+ */
+final class ParsedCatalogCache {
+
+  private static final String KEY = ParsedCatalogCache.class.getName();
+
+  private static final String UNREADABLE = "unreadable";
+
+  private final ConcurrentMap<String, Entry> catalogs = new ConcurrentHashMap<>();
+
+  private ParsedCatalogCache() {
+  }
+
+  /**
+   * @param session the repository session of the build
+   * @return the cache of the session, created on first use, or null if the session cannot hold one
+   */
+  static ParsedCatalogCache of(RepositorySystemSession session) {
+    if (session == null || session.getData() == null) {
+      return null;
+    }
+    return SessionSingletons.get(session, KEY, ParsedCatalogCache.class, ParsedCatalogCache::new);
+  }
+
+
+  /**
+   * @param key       the key of the catalog files, see {@link #key(List, JarFileCache, ContentHashes)}
+   * @param parser    parses the catalog if it is not cached yet, runs once per key even if asked concurrently
+   * @param loadedKey the key of every catalog file a parsed catalog has read, see
+   *                  {@link #loadedKey(Catalog, JarFileCache, ContentHashes)}
+   * @return the parsed catalog
+   */
+  Catalog get(String key, Supplier<Catalog> parser, Function<Catalog, String> loadedKey) {
+    return catalogs.compute(key, (k, entry) -> {
+      if (entry != null && entry.loadedKey.equals(loadedKey.apply(entry.catalog))) {
+        return entry;
+      }
+      Catalog catalog = parser.get();
+      return new Entry(catalog, loadedKey.apply(catalog));
+    }).catalog;
+  }
+
+  /**
+   * @param catalogURLs  the catalog files in the order they are consulted
+   * @param jarFileCache the archives to read catalog files inside jars from, may be null
+   * @param hashes       the hashes of the catalog files read so far
+   * @return the key of the catalog files in their current state
+   */
+  static String key(List<URL> catalogURLs, JarFileCache jarFileCache, ContentHashes hashes) {
+    List<String> values = new ArrayList<>(catalogURLs.size() * 2);
+    for (URL catalogURL : catalogURLs) {
+      values.add(catalogURL.toExternalForm());
+      values.add(hash(catalogURL, jarFileCache, hashes));
+    }
+    return ContentHashes.hash(values);
+  }
+
+  /**
+   * @param catalog      a parsed catalog, its subordinate catalogs are loaded on the way
+   * @param jarFileCache the archives to read catalog files inside jars from, may be null
+   * @param hashes       the hashes of the catalog files read so far
+   * @return the key of every catalog file the catalog reads in their current state
+   */
+  static String loadedKey(Catalog catalog, JarFileCache jarFileCache, ContentHashes hashes) {
+    if (!(catalog instanceof CompiledCatalog)) {
+      return "";
+    }
+    List<String> catalogFiles;
+    // subordinate catalogs load under the same lock the lookups take
+    synchronized (catalog) {
+      catalogFiles = ((CompiledCatalog) catalog).getCatalogFiles();
+    }
+    List<String> values = new ArrayList<>(catalogFiles.size() * 2);
+    for (String catalogFile : catalogFiles) {
+      values.add(catalogFile);
+      try {
+        values.add(hash(new URL(catalogFile), jarFileCache, hashes));
+      } catch (MalformedURLException e) {
+        values.add(UNREADABLE);
+      }
+    }
+    return ContentHashes.hash(values);
+  }
+
+  private static String hash(URL catalogURL, JarFileCache jarFileCache, ContentHashes hashes) {
+    try {
+      return hashes.hash(catalogURL, jarFileCache);
+    } catch (IOException e) {
+      // the catalog treats a file that cannot be read as empty, so does the key
+      return UNREADABLE;
+    }
+  }
+
+  private static final class Entry {
+
+    private final Catalog catalog;
+
+    private final String loadedKey;
+
+    Entry(Catalog catalog, String loadedKey) {
+      this.catalog = catalog;
+      this.loadedKey = loadedKey;
+    }
+
+  }
+
+}
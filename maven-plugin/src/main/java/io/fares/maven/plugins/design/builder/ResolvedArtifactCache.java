@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+/**
+ * Remembers the files of artifacts resolved through <code>maven:</code> catalog entries. The cache lives in the
+ * {@link SessionData} of the repository session, so it is shared by all resolvers and concurrent mojo executions of a
+ * build and each artifact is only resolved once.
+ * <p>
+ * Concurrent lookups of the same artifact wait for the one resolving it, lookups of other artifacts do not.
+ */
+final class ResolvedArtifactCache {
+
+  private static final String KEY = ResolvedArtifactCache.class.getName();
+
+  private final ConcurrentMap<String, File> files = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  private ResolvedArtifactCache() {
+  }
+
+  /**
+   * @param session the repository session of the build
+   * @return the cache of the session, created on first use
+   */
+  static ResolvedArtifactCache of(RepositorySystemSession session) {
+    return SessionSingletons.get(session, KEY, ResolvedArtifactCache.class, ResolvedArtifactCache::new);
+  }
+
+
+  /**
+   * @param artifact the artifact coordinates
+   * @return the resolved file or null if the artifact has not been resolved yet
+   */
+  File get(Artifact artifact) {
+    return files.get(key(artifact));
+  }
+
+  /**
+   * @param artifact   the artifact coordinates
+   * @param resolution resolves the artifact unless it is cached or another thread resolves it meanwhile
+   * @return the resolved file
+   * @throws ArtifactResolutionException if the resolution fails, failures are not remembered
+   */
+  File resolve(Artifact artifact, Resolution resolution) throws ArtifactResolutionException {
+
+    String key = key(artifact);
+    File file = files.get(key);
+    if (file != null) {
+      return file;
+    }
+
+    synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+      file = files.get(key);
+      if (file == null) {
+        file = resolution.resolve();
+        if (file != null) {
+          files.putIfAbsent(key, file);
+        }
+      }
+    }
+
+    return file;
+
+  }
+
+  void put(Artifact artifact, File file) {
+    if (file != null) {
+      files.putIfAbsent(key(artifact), file);
+    }
+  }
+
+  private static String key(Artifact artifact) {
+    return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getExtension() + ':'
+      + artifact.getClassifier() + ':' + artifact.getVersion();
+  }
+
+  interface Resolution {
+
+    /**
+     * @return the file of the artifact
+     * @throws ArtifactResolutionException if the artifact cannot be resolved
+     */
+    File resolve() throws ArtifactResolutionException;
+
+  }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder;
+
+import java.util.function.Supplier;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Shares one instance of a cache between all executions of a build, including modules built in parallel, through the
+ * {@link SessionData} of the repository session.
+ */
+public final class SessionSingletons {
+
+  private SessionSingletons() {
+  }
+
+  /**
+   * Get the instance registered under a key, registering a new one on first use. The first execution to register an
+   * instance wins, every other execution gets that same instance.
+   *
+   * @param session the repository session of the build, may be null
+   * @param key     the key the instance is registered under
+   * @param type    the type of the instance
+   * @param factory creates a new instance
+   * @param <T>     the type of the instance
+   * @return the instance of the session or a new instance that is not shared, if there is no session or the key is
+   * taken by an instance registered by a different version of the plugin
+   */
+  public static <T> T get(RepositorySystemSession session, String key, Class<T> type, Supplier<T> factory) {
+
+    SessionData data = session != null ? session.getData() : null;
+    if (data == null) {
+      return factory.get();
+    }
+
+    while (true) {
+      Object instance = data.get(key);
+      if (type.isInstance(instance)) {
+        return type.cast(instance);
+      } else if (instance != null) {
+        // registered by a different version of the plugin
+        return factory.get();
+      }
+      T created = factory.get();
+      if (data.set(key, null, created)) {
+        return created;
+      }
+    }
+
+  }
+
+}
@@ -20,23 +20,15 @@
 package io.fares.maven.plugins.design.builder.catalog;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Element;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
 
 import org.apache.maven.plugin.MojoExecutionException;
 
@@ -48,6 +40,8 @@ abstract class AbstractCatalogWriter implements CatalogWriter {
 
   private URI catalogLocation;
 
+  private SchemaMetadataCache schemaMetadataCache = new SchemaMetadataCache();
+
   AbstractCatalogWriter() throws ParserConfigurationException {
   }
 
@@ -59,6 +53,15 @@ abstract class AbstractCatalogWriter implements CatalogWriter {
   @Override
   public abstract void write(Element catalogElement, File... schemaFiles) throws MojoExecutionException;
 
+  @Override
+  public abstract void write(CatalogStreamWriter out, File... schemaFiles) throws MojoExecutionException;
+
+  @Override
+  public void write(CatalogStreamWriter out, ExecutorService executor, File... schemaFiles) throws MojoExecutionException {
+    // nothing to gain from the executor unless entries are created per schema file
+    write(out, schemaFiles);
+  }
+
   public URI getCatalogLocation() {
     return catalogLocation;
   }
@@ -72,6 +75,24 @@ abstract class AbstractCatalogWriter implements CatalogWriter {
     return this;
   }
 
+  SchemaMetadataCache getSchemaMetadataCache() {
+    return schemaMetadataCache;
+  }
+
+  /**
+   * Share the schema metadata with the other writers of the same catalog, so every schema is only read once.
+   *
+   * @param schemaMetadataCache the cache used by all writers of the catalog
+   */
+  void setSchemaMetadataCache(SchemaMetadataCache schemaMetadataCache) {
+    this.schemaMetadataCache = schemaMetadataCache;
+  }
+
+  AbstractCatalogWriter withSchemaMetadataCache(SchemaMetadataCache schemaMetadataCache) {
+    setSchemaMetadataCache(schemaMetadataCache);
+    return this;
+  }
+
   public boolean isVerbose() {
     return verbose;
   }
@@ -90,39 +111,6 @@ abstract class AbstractCatalogWriter implements CatalogWriter {
     return this;
   }
 
-  @SuppressWarnings("unchecked")
-  private String getNamespaceFromSchema(File schemaFile) throws MojoExecutionException {
-
-    XMLInputFactory staxFactory = XMLInputFactory.newInstance();
-
-    try {
-      XMLEventReader eventReader = staxFactory.createXMLEventReader(new FileReader(schemaFile));
-      while (eventReader.hasNext()) {
-        XMLEvent event = eventReader.nextEvent();
-        if (event.isStartElement()) {
-          StartElement startElement = event.asStartElement();
-          if ("schema".equals(startElement.getName().getLocalPart())) {
-            // first lets try to find the targetNamespace value
-            Iterator<Attribute> attributes = startElement.getAttributes();
-            while (attributes.hasNext()) {
-              Attribute attributeNode = attributes.next();
-              if ("targetNamespace".equals(attributeNode.getName().getLocalPart())) {
-                return attributeNode.getValue();
-              }
-            }
-          }
-        }
-      }
-    } catch (XMLStreamException e) {
-      throw new MojoExecutionException("Schema file " + schemaFile.getName() + " seems to be invalid.", e);
-    } catch (FileNotFoundException e) {
-      throw new MojoExecutionException("Schema file " + schemaFile.getName() + " does not exists.", e);
-    }
-
-    return null;
-
-  }
-
   private String guessSeparatorFromUri(String scheme) {
 
     String separator = "/";
@@ -164,7 +152,7 @@ abstract class AbstractCatalogWriter implements CatalogWriter {
   String constructEntityId(AbstractOption option, File schemaFile) throws MojoExecutionException {
 
     // region construct entityId
-    String targetNameSpace = getNamespaceFromSchema(schemaFile);
+    String targetNameSpace = schemaMetadataCache.get(schemaFile).getTargetNamespace();
 
     String entityId;
 
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.catalog;
+
+import org.w3c.dom.Element;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A single catalog entry such as <code>&lt;system systemId="..." uri="..."/&gt;</code>. Entries are created by the
+ * {@link CatalogWriter}s and can be appended to a DOM catalog or streamed through a {@link CatalogStreamWriter}.
+ * Attributes are kept in name order, the order the DOM serializer wrote them in.
+ */
+public final class CatalogElement {
+
+  static final String CATALOG_NS = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+  private final String name;
+
+  private final Map<String, String> attributes;
+
+  /**
+   * @param name       the local name of the entry element
+   * @param attributes attribute names and values, in pairs
+   */
+  public CatalogElement(String name, String... attributes) {
+    if (attributes.length % 2 != 0) {
+      throw new IllegalArgumentException("Attributes must be given as name and value pairs.");
+    }
+    this.name = name;
+    Map<String, String> map = new TreeMap<>();
+    for (int i = 0; i < attributes.length; i += 2) {
+      map.put(attributes[i], attributes[i + 1]);
+    }
+    this.attributes = Collections.unmodifiableMap(map);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * Append the entry to a DOM catalog element.
+   *
+   * @param catalogElement the catalog root element
+   */
+  public void appendTo(Element catalogElement) {
+    Element e = catalogElement.getOwnerDocument().createElementNS(CATALOG_NS, name);
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      e.setAttribute(attribute.getKey(), attribute.getValue());
+    }
+    catalogElement.appendChild(e);
+  }
+
+  /**
+   * Write the entry as an empty element.
+   *
+   * @param writer the writer positioned inside the catalog root element
+   * @throws XMLStreamException if the entry cannot be written
+   */
+  void writeTo(XMLStreamWriter writer) throws XMLStreamException {
+    writer.writeEmptyElement(CATALOG_NS, name);
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      writer.writeAttribute(attribute.getKey(), attribute.getValue());
+    }
+  }
+
+}
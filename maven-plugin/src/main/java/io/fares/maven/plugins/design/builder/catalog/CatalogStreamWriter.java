@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.catalog;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streams catalog entries into a catalog document as they are produced, so memory use does not depend on the size
+ * of the catalog. The layout is the same the indenting transformer used to produce: the XML declaration directly
+ * followed by the root element, every entry on its own line indented by two spaces and a line break at the end.
+ */
+public final class CatalogStreamWriter {
+
+  private final XMLStreamWriter writer;
+
+  private final Map<String, String> rootAttributes;
+
+  private boolean rootStarted;
+
+  /**
+   * @param writer         the writer the catalog is written to
+   * @param rootAttributes the attributes of the catalog root element, e.g. <code>prefer</code>
+   */
+  public CatalogStreamWriter(XMLStreamWriter writer, Map<String, String> rootAttributes) {
+    this.writer = writer;
+    this.rootAttributes = rootAttributes != null
+      ? new LinkedHashMap<>(rootAttributes)
+      : Collections.<String, String>emptyMap();
+  }
+
+  public void writeStartDocument() throws MojoExecutionException {
+    try {
+      writer.writeStartDocument("UTF-8", "1.0");
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("Failed to write catalog.", e);
+    }
+  }
+
+  /**
+   * Write a single entry.
+   *
+   * @param entry the entry to write
+   * @throws MojoExecutionException if the entry cannot be written
+   */
+  public void write(CatalogElement entry) throws MojoExecutionException {
+    try {
+      if (!rootStarted) {
+        writer.writeStartElement("", "catalog", CatalogElement.CATALOG_NS);
+        writeRootAttributes();
+        rootStarted = true;
+      }
+      writer.writeCharacters("\n  ");
+      entry.writeTo(writer);
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("Failed to write catalog entry <" + entry.getName() + ">.", e);
+    }
+  }
+
+  /**
+   * Close the catalog root element and the document.
+   *
+   * @throws MojoExecutionException if the catalog cannot be completed
+   */
+  public void writeEndDocument() throws MojoExecutionException {
+    try {
+      if (rootStarted) {
+        writer.writeCharacters("\n");
+        writer.writeEndElement();
+      } else {
+        writer.writeEmptyElement("", "catalog", CatalogElement.CATALOG_NS);
+        writeRootAttributes();
+      }
+      writer.writeCharacters("\n");
+      writer.writeEndDocument();
+      writer.flush();
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("Failed to write catalog.", e);
+    }
+  }
+
+  private void writeRootAttributes() throws XMLStreamException {
+    writer.writeDefaultNamespace(CatalogElement.CATALOG_NS);
+    for (Map.Entry<String, String> attribute : rootAttributes.entrySet()) {
+      writer.writeAttribute(attribute.getKey(), attribute.getValue());
+    }
+  }
+
+}
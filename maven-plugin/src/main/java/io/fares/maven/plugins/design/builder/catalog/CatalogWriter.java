@@ -20,13 +20,33 @@
 package io.fares.maven.plugins.design.builder.catalog;
 
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 public interface CatalogWriter {
 
   void write(Element catalogElement, File... schemaFiles) throws MojoExecutionException;
 
+  /**
+   * Stream the catalog entries for the schema files.
+   *
+   * @param out         the catalog being written
+   * @param schemaFiles the schema files to add to the catalog
+   * @throws MojoExecutionException if an entry cannot be created or written
+   */
+  void write(CatalogStreamWriter out, File... schemaFiles) throws MojoExecutionException;
+
+  /**
+   * Stream the catalog entries for the schema files, reading the schema files on an executor. The entries are still
+   * written in the order of the schema files.
+   *
+   * @param out         the catalog being written
+   * @param executor    the executor the schema files are read on
+   * @param schemaFiles the schema files to add to the catalog
+   * @throws MojoExecutionException if an entry cannot be created or written
+   */
+  void write(CatalogStreamWriter out, ExecutorService executor, File... schemaFiles) throws MojoExecutionException;
+
 }
@@ -25,6 +25,11 @@ import org.w3c.dom.Element;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public abstract class FileByFileCatalogWriter extends AbstractCatalogWriter {
 
@@ -35,7 +40,21 @@ public abstract class FileByFileCatalogWriter extends AbstractCatalogWriter {
     super(catalogLocation);
   }
 
-  protected abstract void doWrite(Element catalogElement, File schema) throws MojoExecutionException;
+  /**
+   * Create the catalog entry for a single schema file.
+   *
+   * @param schema the schema file
+   * @return the entry or null if no entry should be added for the schema
+   * @throws MojoExecutionException if the entry cannot be created
+   */
+  protected abstract CatalogElement createEntry(File schema) throws MojoExecutionException;
+
+  protected void doWrite(Element catalogElement, File schema) throws MojoExecutionException {
+    CatalogElement entry = createEntry(schema);
+    if (entry != null) {
+      entry.appendTo(catalogElement);
+    }
+  }
 
   @Override
   public void write(Element catalogElement, File... schemaFiles) throws MojoExecutionException {
@@ -44,4 +63,46 @@ public abstract class FileByFileCatalogWriter extends AbstractCatalogWriter {
     }
   }
 
+  @Override
+  public void write(CatalogStreamWriter out, File... schemaFiles) throws MojoExecutionException {
+    for (File schemaFile : schemaFiles) {
+      CatalogElement entry = createEntry(schemaFile);
+      if (entry != null) {
+        out.write(entry);
+      }
+    }
+  }
+
+  @Override
+  public void write(CatalogStreamWriter out, ExecutorService executor, File... schemaFiles) throws MojoExecutionException {
+
+    List<Future<CatalogElement>> entries = new ArrayList<>(schemaFiles.length);
+    for (File schemaFile : schemaFiles) {
+      entries.add(executor.submit(() -> createEntry(schemaFile)));
+    }
+
+    // collect in schema file order so the catalog does not depend on which worker finished first
+    try {
+      for (Future<CatalogElement> future : entries) {
+        CatalogElement entry = future.get();
+        if (entry != null) {
+          out.write(entry);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while creating catalog entries.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof MojoExecutionException) {
+        throw (MojoExecutionException) e.getCause();
+      }
+      throw new MojoExecutionException("Failed to create catalog entry.", e.getCause());
+    } finally {
+      for (Future<CatalogElement> future : entries) {
+        future.cancel(false);
+      }
+    }
+
+  }
+
 }
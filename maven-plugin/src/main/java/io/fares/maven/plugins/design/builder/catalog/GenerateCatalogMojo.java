@@ -19,20 +19,20 @@
 
 package io.fares.maven.plugins.design.builder.catalog;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
@@ -43,10 +43,9 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 
+import io.fares.design.builder.ParserProvider;
 import io.fares.maven.plugins.design.builder.scanner.InclusionScanException;
 import io.fares.maven.plugins.design.builder.scanner.SimpleSourceInclusionScanner;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 @Mojo(
   name = "catalog",
@@ -108,9 +107,16 @@ public class GenerateCatalogMojo extends AbstractMojo {
   @Parameter(alias = "targetCatalogFile", property = "catalog.file", defaultValue = "catalog.xml", required = true)
   private File targetCatalogFile;
   /**
-   * Transformer used to format the catalog file.
+   * If set to true the schema files are read concurrently. The catalog entries are still written in the sorted order
+   * of the schema files, so the catalog is the same as the one written in sequential mode.
    */
-  private transient Transformer transformer;
+  @Parameter(property = "catalog.parallel", defaultValue = "false")
+  private boolean parallel;
+  /**
+   * The number of schema files read concurrently in parallel mode. Defaults to the number of available processors.
+   */
+  @Parameter(property = "catalog.threads")
+  private int threads;
 
   public void execute() throws MojoExecutionException {
 
@@ -178,48 +184,54 @@ public class GenerateCatalogMojo extends AbstractMojo {
       Arrays.sort(schemaFiles);
       // endregion
 
-      //region construct the catalog (also check if the catalog has a prefer system/public flag)
-      DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-      Document doc = docBuilder.newDocument();
-      Element catalogElement = doc.createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "catalog");
-      doc.appendChild(catalogElement);
-//    Element catDTD = doc.createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "system");
-//    catDTD.setAttribute("systemId", "http://www.oasis-open.org/committees/entity/release/1.1/catalog.dtd");
-//    catDTD.setAttribute("uri", "resource:org/apache/xml/resolver/etc/catalog.dtd");
-//    rootElement.appendChild(catDTD);
+      // region write catalog (also check if the catalog has a prefer system/public flag)
+      Map<String, String> rootAttributes = new LinkedHashMap<>();
 
       // if a preference is specified, we'll add it
       if (this.catalog.getPrefer() != null) {
         CatalogPreference prefer = CatalogPreference.fromValue(this.catalog.getPrefer());
-        catalogElement.setAttribute("prefer", prefer.value());
+        rootAttributes.put("prefer", prefer.value());
       }
-      // endregion
 
-      // region write entries to the catalog
       List<CatalogWriter> catalogWriters = createCatalogWriters(catalogLocationURI);
-      for (CatalogWriter writer : catalogWriters) {
-        writer.write(catalogElement, schemaFiles);
+
+      if (parallel && (getLog().isDebugEnabled() || verbose)) {
+        getLog().info("Read " + schemaFiles.length + " schema files using " + getThreads() + " worker(s)");
       }
-      // endregion
 
-      // region write catalog
       if (getLog().isInfoEnabled()) {
         getLog().info("Write catalog to " + targetCatalogFile.getAbsoluteFile().toURI().toString());
       }
 
-      DOMSource source = new DOMSource(doc);
-      StreamResult result = new StreamResult(targetCatalogFile);
-      getTransformer().transform(source, result);
-      //endregion
+      // entries are streamed straight into the file as the writers produce them
+      try (OutputStream os = new BufferedOutputStream(new FileOutputStream(targetCatalogFile))) {
+        XMLStreamWriter xmlWriter = ParserProvider.getOutputFactory().createXMLStreamWriter(os, "UTF-8");
+        ForkJoinPool pool = parallel ? new ForkJoinPool(getThreads(), new CatalogWorkerThreadFactory(), null, false) : null;
+        try {
+          CatalogStreamWriter out = new CatalogStreamWriter(xmlWriter, rootAttributes);
+          out.writeStartDocument();
+          for (CatalogWriter writer : catalogWriters) {
+            if (pool != null) {
+              writer.write(out, pool, schemaFiles);
+            } else {
+              writer.write(out, schemaFiles);
+            }
+          }
+          out.writeEndDocument();
+        } finally {
+          if (pool != null) {
+            pool.shutdownNow();
+          }
+          xmlWriter.close();
+        }
+      }
+      // endregion
 
     } catch (InclusionScanException e) {
       throw new MojoExecutionException("Failed to get included files.", e);
     } catch (ParserConfigurationException e) {
       throw new MojoExecutionException("Failed to configure the xml builder.", e);
-    } catch (TransformerConfigurationException e) {
-      throw new MojoExecutionException("Failed to configure the xml transformer.", e);
-    } catch (TransformerException e) {
+    } catch (XMLStreamException | IOException e) {
       throw new MojoExecutionException("Failed to generate catalog file.", e);
     }
 
@@ -239,12 +251,16 @@ public class GenerateCatalogMojo extends AbstractMojo {
 
     List<CatalogWriter> writers = new LinkedList<>();
 
+    // schema files are only read once, no matter how many writers need their namespace
+    SchemaMetadataCache schemaMetadataCache = new SchemaMetadataCache();
+
     for (CatalogFormat format : CatalogFormat.values()) {
       switch (format) {
         case PUBLIC:
           if (entries.getPublic() != null) {
             writers.add(new PublicCatalogWriter(entries.getPublic())
               .withCatalogLocation(catalogLocation)
+              .withSchemaMetadataCache(schemaMetadataCache)
               .withVerbose(verbose));
           }
           break;
@@ -252,6 +268,7 @@ public class GenerateCatalogMojo extends AbstractMojo {
           if (entries.getSystem() != null) {
             writers.add(new SystemCatalogWriter(entries.getSystem())
               .withCatalogLocation(catalogLocation)
+              .withSchemaMetadataCache(schemaMetadataCache)
               .withVerbose(verbose));
           }
           break;
@@ -259,6 +276,7 @@ public class GenerateCatalogMojo extends AbstractMojo {
           if (entries.getUri() != null) {
             writers.add(new UriCatalogWriter(entries.getUri())
               .withCatalogLocation(catalogLocation)
+              .withSchemaMetadataCache(schemaMetadataCache)
               .withVerbose(verbose));
           }
           break;
@@ -266,6 +284,7 @@ public class GenerateCatalogMojo extends AbstractMojo {
           if (entries.getRewriteSystem() != null) {
             writers.add(new RewriteSystemCatalogWriter(entries.getRewriteSystem())
               .withCatalogLocation(catalogLocation)
+              .withSchemaMetadataCache(schemaMetadataCache)
               .withVerbose(verbose));
           }
           break;
@@ -273,6 +292,7 @@ public class GenerateCatalogMojo extends AbstractMojo {
           if (entries.getSystemSuffix() != null) {
             writers.add(new SystemSuffixCatalogWriter(entries.getSystemSuffix())
               .withCatalogLocation(catalogLocation)
+              .withSchemaMetadataCache(schemaMetadataCache)
               .withVerbose(verbose));
           }
           break;
@@ -304,25 +324,10 @@ public class GenerateCatalogMojo extends AbstractMojo {
   }
 
   /**
-   * Create a transformer to format the catalog file.
-   *
-   * @return a configured xml transformer
-   *
-   * @throws TransformerConfigurationException thrown when the transformer cannot be created
+   * @return the number of catalog workers, defaults to the number of available processors
    */
-  private Transformer getTransformer() throws TransformerConfigurationException {
-
-    if (this.transformer == null) {
-      TransformerFactory transformerFactory = TransformerFactory.newInstance();
-      transformer = transformerFactory.newTransformer();
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-      transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-    }
-
-    return this.transformer;
-
+  private int getThreads() {
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
   }
 
   /**
@@ -340,4 +345,24 @@ public class GenerateCatalogMojo extends AbstractMojo {
     return sourceDirectory;
   }
 
+  /**
+   * Names the catalog workers and hands them the plugin class loader, which fork-join workers do not inherit.
+   */
+  private static class CatalogWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool) {
+      };
+      t.setName("design-builder-catalog-" + count.incrementAndGet());
+      t.setContextClassLoader(contextClassLoader);
+      return t;
+    }
+
+  }
+
 }
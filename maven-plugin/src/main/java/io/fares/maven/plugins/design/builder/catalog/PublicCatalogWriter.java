@@ -20,7 +20,6 @@
 package io.fares.maven.plugins.design.builder.catalog;
 
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Element;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
@@ -40,7 +39,7 @@ public class PublicCatalogWriter extends FileByFileCatalogWriter {
   }
 
   @Override
-  protected void doWrite(Element catalogElement, File schemaFile) throws MojoExecutionException {
+  protected CatalogElement createEntry(File schemaFile) throws MojoExecutionException {
 
     // construct publicId
    String publicId = constructEntityId(option, schemaFile);
@@ -50,23 +49,18 @@ public class PublicCatalogWriter extends FileByFileCatalogWriter {
      if (log.isWarnEnabled()) {
        log.warn("refuse adding catalog public entry: file {} is a chameleon schema", schemaFile.getName());
      }
-     return;
+     return null;
    }
 
     // construct actual schema uri
     URI uri = constructUri(option, schemaFile);
 
-    // region write schema element
-    Element uriSuffixE = catalogElement.getOwnerDocument().createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "public");
-    uriSuffixE.setAttribute("publicId", publicId);
-    uriSuffixE.setAttribute("uri", uri.toASCIIString());
-    catalogElement.appendChild(uriSuffixE);
-    // endregion
-
     if (log.isDebugEnabled() || isVerbose()) {
       log.info("add catalog entry: <public publicId=\"{}\" uri=\"{}\" />", publicId, uri.toASCIIString());
     }
 
+    return new CatalogElement("public", "publicId", publicId, "uri", uri.toASCIIString());
+
   }
 
 }
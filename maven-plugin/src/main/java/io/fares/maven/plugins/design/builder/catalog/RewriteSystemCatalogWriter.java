@@ -43,13 +43,15 @@ public class RewriteSystemCatalogWriter extends AbstractCatalogWriter {
 
   @Override
   public void write(Element catalogElement, File... schemaFiles) throws MojoExecutionException {
+    createEntry().appendTo(catalogElement);
+  }
 
-    // region write schema element
-    Element uriSuffixE = catalogElement.getOwnerDocument().createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "rewriteSystem");
-    uriSuffixE.setAttribute("systemIdStartString", option.getSystemIdStartString());
-    uriSuffixE.setAttribute("rewritePrefix", option.getRewritePrefix());
-    catalogElement.appendChild(uriSuffixE);
-    // endregion
+  @Override
+  public void write(CatalogStreamWriter out, File... schemaFiles) throws MojoExecutionException {
+    out.write(createEntry());
+  }
+
+  private CatalogElement createEntry() {
 
     if (log.isDebugEnabled() || isVerbose()) {
       log.info("add catalog entry: <rewriteSystem systemIdStartString=\"{}\" rewritePrefix=\"{}\" />",
@@ -58,6 +60,10 @@ public class RewriteSystemCatalogWriter extends AbstractCatalogWriter {
       );
     }
 
+    return new CatalogElement("rewriteSystem",
+      "systemIdStartString", option.getSystemIdStartString(),
+      "rewritePrefix", option.getRewritePrefix());
+
   }
 
 }
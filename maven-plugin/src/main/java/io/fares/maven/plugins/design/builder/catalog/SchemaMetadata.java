@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.catalog;
+
+import javax.xml.namespace.QName;
+
+/**
+ * The facts about a schema file the catalog writers need, read once per file by the {@link SchemaMetadataCache}.
+ */
+final class SchemaMetadata {
+
+  private final QName rootElement;
+
+  private final String targetNamespace;
+
+  SchemaMetadata(QName rootElement, String targetNamespace) {
+    this.rootElement = rootElement;
+    this.targetNamespace = targetNamespace;
+  }
+
+  /**
+   * @return the name of the document element or null if the file has none
+   */
+  QName getRootElement() {
+    return rootElement;
+  }
+
+  /**
+   * @return the target namespace of the schema or null for a chameleon schema
+   */
+  String getTargetNamespace() {
+    return targetNamespace;
+  }
+
+}
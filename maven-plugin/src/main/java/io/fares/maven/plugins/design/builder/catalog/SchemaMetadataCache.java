@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.catalog;
+
+import io.fares.design.builder.ParserProvider;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the {@link SchemaMetadata} of every schema file once and hands it to all catalog writers of a catalog. A
+ * schema is only read up to its root element. Documents that embed schemas, such as WSDL, are read up to the first
+ * embedded schema that declares a target namespace.
+ */
+final class SchemaMetadataCache {
+
+  private static final String SCHEMA = "schema";
+
+  private static final String TARGET_NAMESPACE = "targetNamespace";
+
+  private final XMLInputFactory staxFactory;
+
+  private final Map<File, SchemaMetadata> metadata = new ConcurrentHashMap<>();
+
+  SchemaMetadataCache() {
+    staxFactory = ParserProvider.getInputFactory();
+  }
+
+  /**
+   * @param schemaFile the schema file
+   * @return the metadata of the schema file
+   * @throws MojoExecutionException if the file does not exist or is not well formed
+   */
+  SchemaMetadata get(File schemaFile) throws MojoExecutionException {
+    File key = schemaFile.getAbsoluteFile();
+    SchemaMetadata result = metadata.get(key);
+    if (result == null) {
+      result = read(key);
+      SchemaMetadata previous = metadata.putIfAbsent(key, result);
+      if (previous != null) {
+        result = previous;
+      }
+    }
+    return result;
+  }
+
+  private SchemaMetadata read(File schemaFile) throws MojoExecutionException {
+
+    try (InputStream in = new BufferedInputStream(new FileInputStream(schemaFile))) {
+
+      XMLStreamReader reader = staxFactory.createXMLStreamReader(schemaFile.toURI().toString(), in);
+
+      try {
+
+        QName rootElement = null;
+
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            continue;
+          }
+          String targetNamespace = SCHEMA.equals(reader.getLocalName())
+            ? reader.getAttributeValue(null, TARGET_NAMESPACE)
+            : null;
+          if (rootElement == null) {
+            rootElement = reader.getName();
+            if (SCHEMA.equals(rootElement.getLocalPart())) {
+              // a plain schema, nothing after the root element is of interest
+              return new SchemaMetadata(rootElement, targetNamespace);
+            }
+          } else if (targetNamespace != null) {
+            return new SchemaMetadata(rootElement, targetNamespace);
+          }
+        }
+
+        return new SchemaMetadata(rootElement, null);
+
+      } finally {
+        reader.close();
+      }
+
+    } catch (XMLStreamException e) {
+      throw new MojoExecutionException("Schema file " + schemaFile.getName() + " seems to be invalid.", e);
+    } catch (FileNotFoundException e) {
+      throw new MojoExecutionException("Schema file " + schemaFile.getName() + " does not exists.", e);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Failed to read schema file " + schemaFile.getName() + ".", e);
+    }
+
+  }
+
+}
@@ -23,7 +23,6 @@ import java.net.URI;
 import java.io.File;
 
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Element;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -41,7 +40,7 @@ public class SystemCatalogWriter extends FileByFileCatalogWriter {
   }
 
   @Override
-  protected void doWrite(Element catalogElement, File schemaFile) throws MojoExecutionException {
+  protected CatalogElement createEntry(File schemaFile) throws MojoExecutionException {
 
     // systemId from options will trump the schema namespace
     String systemId = constructEntityId(option, schemaFile);
@@ -51,23 +50,18 @@ public class SystemCatalogWriter extends FileByFileCatalogWriter {
       if (log.isWarnEnabled()) {
         log.warn("refuse adding catalog system entry: file {} is a chameleon schema", schemaFile.getName());
       }
-      return;
+      return null;
     }
 
     // construct actual schema uri
     URI uri = constructUri(option, schemaFile);
 
-    // region write schema element
-    Element uriSuffixE = catalogElement.getOwnerDocument().createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "system");
-    uriSuffixE.setAttribute("systemId", systemId);
-    uriSuffixE.setAttribute("uri", uri.toASCIIString());
-    catalogElement.appendChild(uriSuffixE);
-    // endregion
-
     if (log.isDebugEnabled() || isVerbose()) {
       log.info("add catalog entry: <system systemId=\"{}\" uri=\"{}\" />", systemId, uri.toASCIIString());
     }
 
+    return new CatalogElement("system", "systemId", systemId, "uri", uri.toASCIIString());
+
   }
 
 }
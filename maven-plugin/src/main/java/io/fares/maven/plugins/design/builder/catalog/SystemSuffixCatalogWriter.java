@@ -22,8 +22,6 @@ package io.fares.maven.plugins.design.builder.catalog;
 import java.io.File;
 import java.net.URI;
 
-import org.w3c.dom.Element;
-
 import javax.xml.parsers.ParserConfigurationException;
 
 public class SystemSuffixCatalogWriter extends FileByFileCatalogWriter {
@@ -35,7 +33,7 @@ public class SystemSuffixCatalogWriter extends FileByFileCatalogWriter {
   }
 
   @Override
-  public void doWrite(Element catalogElement, File schemaFile) {
+  protected CatalogElement createEntry(File schemaFile) {
 
     URI schemaURI = schemaFile.getAbsoluteFile().toURI();
 
@@ -77,13 +75,6 @@ public class SystemSuffixCatalogWriter extends FileByFileCatalogWriter {
 
     URI schemaToCatalogRelativeURI = getCatalogLocation().relativize(schemaURI);
 
-    // region write schema element
-    Element uriSuffixE = catalogElement.getOwnerDocument().createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "systemSuffix");
-    uriSuffixE.setAttribute("systemIdSuffix", systemIdSuffixURI.toString());
-    uriSuffixE.setAttribute("uri", schemaToCatalogRelativeURI.toString());
-    catalogElement.appendChild(uriSuffixE);
-    // endregion
-
     if (log.isDebugEnabled() || isVerbose()) {
       log.info("add catalog entry: <systemSuffix systemIdSuffix=\"{}\" uri=\"{}\" />",
         systemIdSuffixURI.toString(),
@@ -91,6 +82,8 @@ public class SystemSuffixCatalogWriter extends FileByFileCatalogWriter {
       );
     }
 
+    return new CatalogElement("systemSuffix", "systemIdSuffix", systemIdSuffixURI.toString(), "uri", schemaToCatalogRelativeURI.toString());
+
   }
 
 }
@@ -20,7 +20,6 @@
 package io.fares.maven.plugins.design.builder.catalog;
 
 import org.apache.maven.plugin.MojoExecutionException;
-import org.w3c.dom.Element;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
@@ -40,7 +39,7 @@ public class UriCatalogWriter extends FileByFileCatalogWriter {
   }
 
   @Override
-  protected void doWrite(Element catalogElement, File schemaFile) throws MojoExecutionException {
+  protected CatalogElement createEntry(File schemaFile) throws MojoExecutionException {
 
     // construct uri name
     String uriName = constructEntityId(option, schemaFile);
@@ -50,23 +49,18 @@ public class UriCatalogWriter extends FileByFileCatalogWriter {
       if (log.isWarnEnabled()) {
         log.warn("refuse adding catalog uri entry: file {} is a chameleon schema", schemaFile.getName());
       }
-      return;
+      return null;
     }
 
     // construct actual schema uri
     URI uri = constructUri(option, schemaFile);
 
-    // region write schema element
-    Element uriSuffixE = catalogElement.getOwnerDocument().createElementNS("urn:oasis:names:tc:entity:xmlns:xml:catalog", "uri");
-    uriSuffixE.setAttribute("name", uriName);
-    uriSuffixE.setAttribute("uri", uri.toASCIIString());
-    catalogElement.appendChild(uriSuffixE);
-    // endregion
-
     if (log.isDebugEnabled() || isVerbose()) {
       log.info("add catalog entry: <uri name=\"{}\" uri=\"{}\" />", uriName, uri.toASCIIString());
     }
 
+    return new CatalogElement("uri", "name", uriName, "uri", uri.toASCIIString());
+
   }
 
 }
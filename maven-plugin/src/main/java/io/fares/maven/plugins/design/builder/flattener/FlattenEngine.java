@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.flattener;
+
+/**
+ * Controls which crawler a {@link FlattenImportPathMojo} uses to flatten each root in {@link FlattenMode#ROOT root}
+ * mode.
+ */
+public enum FlattenEngine {
+
+  /**
+   * Stream every document through once and rewrite only the locations of imports, includes and redefines.
+   */
+  STAX("stax"),
+
+  /**
+   * Parse every document into a DOM with the jlibs crawler and serialise it again.
+   */
+  JLIBS("jlibs");
+
+  private final String value;
+
+  FlattenEngine(String value) {
+    this.value = value;
+  }
+
+  public static FlattenEngine fromValue(String v) {
+    for (FlattenEngine engine : FlattenEngine.values()) {
+      if (engine.value.equalsIgnoreCase(v)) {
+        return engine;
+      }
+    }
+    throw new IllegalArgumentException("flatten engine [" + v + "] is invalid");
+  }
+
+  public String value() {
+    return value;
+  }
+
+}
@@ -20,9 +20,21 @@
 package io.fares.maven.plugins.design.builder.flattener;
 
 
+import io.fares.design.builder.BuildMetrics;
+import io.fares.design.builder.CompiledCatalog;
+import io.fares.design.builder.ContentHashes;
+import io.fares.design.builder.GrammarCache;
+import io.fares.design.builder.GrammarCompiler;
+import io.fares.design.builder.ImportGraph;
+import io.fares.design.builder.JarFileCache;
+import io.fares.design.builder.NegativeLookupCache;
+import io.fares.design.builder.OutputFiles;
+import io.fares.design.builder.StreamingCrawler;
+import io.fares.design.builder.ParserPool;
 import io.fares.design.builder.JlibsResolverBridge;
 import io.fares.maven.plugins.design.builder.MavenCatalogResolver;
 import io.fares.maven.plugins.design.builder.MavenCatalogResolverFactory;
+import io.fares.maven.plugins.design.builder.SessionSingletons;
 import io.fares.maven.plugins.design.builder.scanner.CatalogFileScanner;
 import io.fares.maven.plugins.design.builder.scanner.CatalogFileScannerFactory;
 import io.fares.maven.plugins.design.builder.scanner.SimpleSourceInclusionScanner;
@@ -35,6 +47,7 @@ import org.apache.maven.plugins.annotations.*;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuilder;
 import org.apache.xerces.util.XMLCatalogResolver;
+import org.apache.xml.resolver.Catalog;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
@@ -44,10 +57,33 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -120,6 +156,13 @@ public class FlattenImportPathMojo extends AbstractMojo {
   @Parameter(property = "flatten.catalog.scanDependencies", defaultValue = "false")
   private boolean scanDependencies;
 
+  /**
+   * Remember which catalog files were found in which dependency archive, so unchanged archives are not opened again
+   * by the next build. The index is kept in the local repository.
+   */
+  @Parameter(property = "flatten.catalog.index", defaultValue = "true")
+  private boolean catalogIndex = true;
+
   /**
    * This flag can be used to scan for different catalog files in the classpath
    */
@@ -169,12 +212,148 @@ public class FlattenImportPathMojo extends AbstractMojo {
   @Parameter(property = "flatten.override.existing.reference", alias = "overrideExistingReference", defaultValue = "true")
   private boolean overrideExistingReference = true;
 
+  /**
+   * How the resources are flattened. In <code>root</code> mode every resource is crawled on its own. In
+   * <code>graph</code> mode all resources share one import graph and every referenced document is parsed and
+   * written exactly once.
+   */
+  @Parameter(property = "flatten.mode", defaultValue = "root")
+  private String mode = FlattenMode.ROOT.value();
+
+  /**
+   * The crawler used in <code>root</code> mode. The <code>stax</code> engine streams each document through once and
+   * only rewrites the locations of imports, includes and redefines. The <code>jlibs</code> engine parses each
+   * document into a DOM and serialises it again.
+   */
+  @Parameter(property = "flatten.engine", defaultValue = "stax")
+  private String engine = FlattenEngine.STAX.value();
+
+  /**
+   * Copy documents that do not import, include or redefine other documents byte for byte instead of parsing and
+   * writing them again. Applies to the <code>stax</code> engine and to <code>graph</code> mode.
+   */
+  @Parameter(property = "flatten.copyThrough", defaultValue = "true")
+  private boolean copyThrough = true;
+
+  /**
+   * Write documents with the same content only once, e.g. copies of a common schema that arrive through several
+   * dependencies under different paths. Documents are compared by their content, ignoring the locations of the
+   * documents they reference, and by the documents they reference. Applies to <code>graph</code> mode, where a
+   * change to any resource flattens all resources again.
+   */
+  @Parameter(property = "flatten.dedup", defaultValue = "false")
+  private boolean dedup;
+
+  /**
+   * The number of resources that are flattened concurrently. Defaults to the number of available processors.
+   */
+  @Parameter(property = "flatten.threads")
+  private int threads;
+
+  /**
+   * Only flatten resources whose inputs changed since the last build. The inputs of every resource are recorded in
+   * the {@link #manifestFile} together with the flattened files they produced, files no longer produced are removed.
+   */
+  @Parameter(property = "flatten.incremental", defaultValue = "true")
+  private boolean incremental = true;
+
+  /**
+   * The manifest recording the inputs and outputs of the last incremental build.
+   */
+  @Parameter(property = "flatten.manifest", defaultValue = "${project.build.directory}/design-builder/flatten-manifest.txt")
+  private File manifestFile;
+
+  /**
+   * Compile the schemas of every flattened document to prove they are valid. Compiled grammars are kept for the whole
+   * build and looked up by the resolved location of an imported schema, so a schema imported by many documents is
+   * only compiled once.
+   */
+  @Parameter(property = "flatten.validate", defaultValue = "false")
+  private boolean validate;
+
+  /**
+   * Collect counters and timings of the execution, such as documents parsed, bytes read and written, resolver calls
+   * and artifact resolutions, and write them as a JSON report to the {@link #metricsFile}. The bytes read are counted
+   * as the documents are read, the <code>jlibs</code> {@link #engine} opens documents itself and is not counted. In
+   * <code>graph</code> mode the roots share their documents, the time of a root is measured from the start of the
+   * graph until the last document it pulls in has been written.
+   */
+  @Parameter(property = "flatten.metrics", defaultValue = "true")
+  private boolean metrics = true;
+
+  /**
+   * The JSON report of the collected metrics.
+   */
+  @Parameter(property = "flatten.metrics.file", defaultValue = "${project.build.directory}/design-builder/flatten-metrics.json")
+  private File metricsFile;
+
+  /**
+   * Resolve every artifact the catalogs map to through a <code>maven:</code> entry in one batch before the crawl
+   * starts, so the crawl does not wait for the repository each time it first follows such an entry. The batch runs in
+   * the background while the resources are selected and is cancelled when no resource needs to be flattened.
+   */
+  @Parameter(property = "flatten.prefetch", defaultValue = "true")
+  private boolean prefetch = true;
+
+  /**
+   * Refuse to fetch any document from the network. References that cannot be resolved to a local resource through the
+   * catalogs fail the build with a list of what is missing. Defaults to the offline state of Maven itself.
+   */
+  @Parameter(property = "flatten.offline")
+  private Boolean offline;
+
+  /**
+   * How many minutes a remote document that could not be fetched is remembered as unavailable. Within that time the
+   * document is not fetched again and the build fails right away, 0 turns the negative lookup cache off.
+   */
+  @Parameter(property = "flatten.negativeCache.ttl", defaultValue = "1440")
+  private int negativeCacheTtl = 1440;
+
+  /**
+   * The negative lookup cache, it is shared by all builds using the same local repository.
+   */
+  @Parameter(property = "flatten.negativeCache.file", defaultValue = "${settings.localRepository}/.cache/design-builder/negative-lookups.txt")
+  private File negativeCacheFile;
+
   @Parameter(property = "verbose", defaultValue = "false")
   private boolean verbose;
 
   @Parameter(property = "skip", defaultValue = "false")
   private boolean skip;
 
+  private BuildMetrics buildMetrics = BuildMetrics.DISABLED;
+
+  /**
+   * The dependency archives opened by this execution, closed when the execution ends.
+   */
+  private JarFileCache jarFileCache;
+
+  /**
+   * The schema compilers of this execution, null unless {@link #validate} is set.
+   */
+  private ParserPool<GrammarCompiler> grammarCompilers;
+
+  /**
+   * The streaming crawlers shared by the root workers, null unless the <code>stax</code> {@link #engine} is used. The
+   * jlibs crawler only holds the resolver and sets up a new parser for every document, it is not worth pooling.
+   */
+  private ParserPool<StreamingCrawler> streamingCrawlers;
+
+  /**
+   * The hashes of the local documents crawled by this execution, null unless the build is {@link #incremental}.
+   */
+  private ContentHashes contentHashes;
+
+  /**
+   * The remote documents that failed recently, null if the negative lookup cache is turned off.
+   */
+  private NegativeLookupCache negativeCache;
+
+  /**
+   * The remote documents the crawlers refused to fetch.
+   */
+  private final Set<String> missingDocuments = Collections.synchronizedSet(new TreeSet<>());
+
   public FlattenImportPathMojo() {
     catalogs = new ResourceEntry[0];
   }
@@ -214,6 +393,15 @@ public class FlattenImportPathMojo extends AbstractMojo {
      *
      */
 
+    buildMetrics = metrics ? new BuildMetrics() : BuildMetrics.DISABLED;
+    long start = buildMetrics.start();
+
+    jarFileCache = new JarFileCache();
+
+    // resolves the catalog artifacts while the resources are scanned and selected
+    ExecutorService prefetcher = null;
+    Future<?> prefetched = null;
+
     try {
 
       List<URL> catalogFiles = new LinkedList<>();
@@ -229,6 +417,12 @@ public class FlattenImportPathMojo extends AbstractMojo {
         catScanner.setCompileClasspathElements(compileClasspathElements);
       }
 
+      if (!catalogIndex) {
+        catScanner.setCatalogIndexDirectory(null);
+      }
+
+      catScanner.setMetrics(buildMetrics);
+
       try {
         catalogFiles.addAll(catScanner.scan(Pattern.compile(catalogFilter)));
       } catch (PatternSyntaxException e) {
@@ -244,10 +438,33 @@ public class FlattenImportPathMojo extends AbstractMojo {
         }
       }
 
-      MavenCatalogResolver resolver = mavenCatalogResolverFactory.newInstance(repositorySystemSession, catalogFiles);
+      // the catalog files hashed to find a parsed catalog are not read again for the fingerprint
+      ContentHashes catalogHashes = new ContentHashes();
+      MavenCatalogResolver resolver = mavenCatalogResolverFactory.newInstance(repositorySystemSession, catalogFiles,
+        jarFileCache, catalogHashes);
+      resolver.setMetrics(buildMetrics);
+
+      if (prefetch) {
+        prefetcher = Executors.newSingleThreadExecutor(new FlattenThreadFactory());
+        prefetched = prefetcher.submit(() -> prefetch(resolver));
+      }
+
       // r = createXercesResolver(catalogURLs);
 
       JlibsResolverBridge resolverBridge = new JlibsResolverBridge(resolver);
+      resolverBridge.setMetrics(buildMetrics);
+      resolverBridge.setOffline(isOffline());
+
+      if (negativeCacheTtl > 0 && negativeCacheFile != null) {
+        negativeCache = sharedNegativeCache();
+      }
+
+      if (validate) {
+        GrammarCache grammarCache = sharedGrammarCache();
+        grammarCompilers = new ParserPool<>(() -> new GrammarCompiler(resolverBridge, grammarCache)
+          .withJarFileCache(jarFileCache)
+          .withMetrics(buildMetrics), getThreads());
+      }
 
       // either flatten file or sources
       Set<URL> artifacts = new HashSet<>(10);
@@ -288,26 +505,86 @@ public class FlattenImportPathMojo extends AbstractMojo {
        *
        */
 
-      List<Throwable> errorEncountered = new LinkedList<>();
+      List<Throwable> errorEncountered = Collections.synchronizedList(new LinkedList<>());
+
+      OutputNameRegistry registry = new OutputNameRegistry(outputDirectory, overrideExistingReference);
+
+      FlattenMode flattenMode = FlattenMode.fromValue(mode);
+      FlattenEngine flattenEngine = FlattenEngine.fromValue(engine);
+
+      FlattenManifest previous = null;
+      FlattenManifest manifest = null;
+      Set<URL> pending = artifacts;
+
+      if (incremental && manifestFile != null) {
+        previous = FlattenManifest.load(manifestFile);
+        if (previous != null) {
+          previous.withJarFileCache(jarFileCache);
+        }
+        contentHashes = catalogHashes;
+        manifest = new FlattenManifest(fingerprint(resolver, catalogFiles, flattenMode, flattenEngine))
+          .withJarFileCache(jarFileCache)
+          .withContentHashes(contentHashes);
+        pending = selectChanged(artifacts, previous, manifest, registry);
+        if (dedup && flattenMode == FlattenMode.GRAPH && !pending.isEmpty() && pending.size() < artifacts.size()) {
+          // documents may be merged across any resources, a partial graph could remove files others still use
+          getLog().info("Deduplication is enabled, flatten all resources");
+          pending = artifacts;
+        }
+      }
+
+      if (dedup && flattenMode != FlattenMode.GRAPH)
+        getLog().warn("Deduplication only applies to graph mode, flatten.dedup is ignored in " + flattenMode.value() + " mode");
+
+      buildMetrics.add("roots.total", artifacts.size());
+      buildMetrics.add("roots.skipped", artifacts.size() - pending.size());
+
+      int workers = flattenMode == FlattenMode.GRAPH
+        ? getThreads()
+        : Math.max(1, Math.min(getThreads(), pending.size()));
+
+      if (getLog().isDebugEnabled() || verbose)
+        getLog().info("Flatten " + pending.size() + " resources in " + flattenMode.value() + " mode using " + workers + " worker(s)");
+
+      Map<URL, Map<String, String>> produced = new ConcurrentHashMap<>();
+
+      if (!pending.isEmpty()) {
+
+        if (prefetched != null)
+          awaitPrefetch(prefetched);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new FlattenThreadFactory());
 
-      for (URL targetFile : artifacts) {
         try {
-          if (getLog().isDebugEnabled() || verbose)
-            getLog().info("Flatten file: " + targetFile.toExternalForm());
-          // FIXME do a proper URI check
-          InputSource source = new InputSource(targetFile.toExternalForm());
-          XMLCrawler crawler = new XMLCrawler();
-          crawler.setResolver(resolverBridge);
-          crawler.crawl(source, new SimpleNameCrawlerListener(
-            outputDirectory, overrideExistingReference), null);
-        } catch (Throwable e) {
-          errorEncountered.add(e);
-          getLog().error("Failed processing " + targetFile, e);
-          if (haltOnError)
-            throw e;
+          flatten(pending, flattenMode, flattenEngine, resolverBridge, registry, executor, errorEncountered, produced);
         } finally {
-          // FIXME no longer needed? crawler.reset();
+          executor.shutdownNow();
         }
+
+        if (getLog().isDebugEnabled() || verbose)
+          getLog().info("Resolver cache: " + resolverBridge.getCacheHits() + " hits, "
+            + resolverBridge.getCacheMisses() + " misses");
+
+      }
+
+      stopPrefetch(prefetcher, prefetched);
+
+      if (negativeCache != null)
+        negativeCache.store();
+
+      Set<String> missing = new TreeSet<>(missingDocuments);
+      missing.addAll(resolverBridge.getMissing());
+
+      // a failed build leaves the previous manifest alone so the next build starts over from there
+      if (manifest != null && errorEncountered.isEmpty() && missing.isEmpty()) {
+        updateManifest(previous, manifest, produced);
+      }
+
+      buildMetrics.stop("flatten", start);
+      reportMetrics();
+
+      if (!missing.isEmpty()) {
+        throw new MojoExecutionException(missingReport(missing));
       }
 
       // if not haltonerror and we some ...
@@ -318,14 +595,641 @@ public class FlattenImportPathMojo extends AbstractMojo {
           errorEncountered.get(0));
       }
 
+    } catch (MojoExecutionException e) {
+      throw e;
     } catch (IOException e) {
       throw new MojoExecutionException("Failed to resolve catalog files.", e);
     } catch (Throwable e) {
       throw new MojoExecutionException("Some other failure occurred.", e);
+    } finally {
+      stopPrefetch(prefetcher, prefetched);
+      try {
+        jarFileCache.close();
+      } catch (IOException e) {
+        getLog().warn("Failed to close dependency archives", e);
+      }
+    }
+
+  }
+
+
+  /**
+   * Pick the resources that need to be flattened. Resources recorded by the previous build whose inputs and outputs
+   * are unchanged are carried over into the new manifest, all names handed out by the previous build are reserved so
+   * documents keep their flattened file names.
+   */
+  private Set<URL> selectChanged(Set<URL> artifacts, FlattenManifest previous, FlattenManifest manifest,
+                                 OutputNameRegistry registry) {
+
+    if (previous == null) {
+      return artifacts;
+    }
+
+    for (FlattenManifest.Root root : previous.getRoots()) {
+      for (FlattenManifest.Document doc : root.getDocuments()) {
+        registry.reserve(doc.getUrl(), doc.getOutput());
+      }
+    }
+
+    if (!previous.getFingerprint().equals(manifest.getFingerprint())) {
+      getLog().info("Catalogs or flatten configuration changed, flatten all resources");
+      return artifacts;
+    }
+
+    Set<URL> changed = new LinkedHashSet<>();
+    for (URL artifact : artifacts) {
+      FlattenManifest.Root root = previous.upToDate(artifact.toExternalForm(), outputDirectory);
+      if (root != null) {
+        manifest.add(root);
+      } else {
+        changed.add(artifact);
+      }
+    }
+
+    int unchanged = artifacts.size() - changed.size();
+    if (unchanged > 0)
+      getLog().info("Skip " + unchanged + " of " + artifacts.size() + " resources, their inputs did not change");
+
+    return changed;
+
+  }
+
+  /**
+   * Record the inputs of every flattened resource, remove the flattened files that are no longer produced and store
+   * the new manifest.
+   */
+  private void updateManifest(FlattenManifest previous, FlattenManifest manifest,
+                              Map<URL, Map<String, String>> produced) throws IOException {
+
+    for (Map.Entry<URL, Map<String, String>> entry : produced.entrySet()) {
+      FlattenManifest.Root root = manifest.add(entry.getKey().toExternalForm());
+      for (Map.Entry<String, String> doc : entry.getValue().entrySet()) {
+        manifest.record(root, doc.getKey(), doc.getValue());
+      }
+    }
+
+    if (previous != null) {
+      Set<String> stale = previous.getOutputs();
+      stale.removeAll(manifest.getOutputs());
+      for (String name : stale) {
+        if (getLog().isDebugEnabled() || verbose)
+          getLog().info("Remove stale flattened file " + name);
+        Files.deleteIfExists(outputDirectory.toPath().resolve(name));
+      }
+    }
+
+    manifest.store(manifestFile);
+
+  }
+
+  /**
+   * Everything that changes the outcome of all resources at once: the flatten configuration and the catalogs used to
+   * resolve references, including the subordinate catalogs they pull in.
+   */
+  private String fingerprint(MavenCatalogResolver resolver, List<URL> catalogFiles, FlattenMode flattenMode,
+                             FlattenEngine flattenEngine) {
+    List<String> values = new ArrayList<>();
+    values.add(flattenMode.value());
+    if (flattenMode == FlattenMode.ROOT)
+      values.add(flattenEngine.value());
+    else
+      values.add(String.valueOf(dedup));
+    values.add(String.valueOf(copyThrough));
+    values.add(String.valueOf(overrideExistingReference));
+    values.add(String.valueOf(validate));
+    for (String catalogFile : loadedCatalogFiles(resolver, catalogFiles)) {
+      values.add(catalogFile);
+      try {
+        values.add(contentHashes.hash(new URL(catalogFile), jarFileCache));
+      } catch (IOException e) {
+        // the catalog treats a file that cannot be read as empty, so does the fingerprint
+        values.add("unreadable");
+      }
+    }
+    return ContentHashes.hash(values);
+  }
+
+  /**
+   * @return every catalog file the resolver reads, subordinate catalogs are loaded on the way
+   */
+  private static List<String> loadedCatalogFiles(MavenCatalogResolver resolver, List<URL> catalogFiles) {
+    Catalog catalog = resolver.getCatalog();
+    if (catalog instanceof CompiledCatalog) {
+      // subordinate catalogs load under the same lock the lookups take
+      synchronized (catalog) {
+        return ((CompiledCatalog) catalog).getCatalogFiles();
+      }
+    }
+    List<String> files = new ArrayList<>(catalogFiles.size());
+    for (URL catalogFile : catalogFiles) {
+      files.add(catalogFile.toExternalForm());
+    }
+    return files;
+  }
+
+  private void flatten(Set<URL> artifacts, FlattenMode flattenMode, FlattenEngine flattenEngine,
+                       JlibsResolverBridge resolverBridge, OutputNameRegistry registry, ExecutorService executor,
+                       List<Throwable> errorEncountered, Map<URL, Map<String, String>> produced) throws Throwable {
+    // starting in source order makes it likely the provisional names already are the settled ones
+    Set<URL> sorted = new TreeSet<>(Comparator.comparing(URL::toExternalForm));
+    sorted.addAll(artifacts);
+    if (flattenMode == FlattenMode.GRAPH) {
+      flattenGraph(sorted, resolverBridge, registry, executor, errorEncountered, produced);
+    } else {
+      flattenRoots(sorted, flattenEngine, resolverBridge, registry, executor, errorEncountered, produced);
+    }
+  }
+
+  /**
+   * Crawl every root on its own.
+   */
+  private void flattenRoots(Set<URL> artifacts, FlattenEngine flattenEngine, JlibsResolverBridge resolverBridge,
+                            OutputNameRegistry registry, ExecutorService executor, List<Throwable> errorEncountered,
+                            Map<URL, Map<String, String>> produced) throws Throwable {
+
+    // a streaming crawler is reused by the next root once a worker is done with it
+    if (flattenEngine == FlattenEngine.STAX) {
+      streamingCrawlers = new ParserPool<>(() -> {
+        StreamingCrawler crawler = new StreamingCrawler();
+        crawler.setMetrics(buildMetrics);
+        crawler.setContentHashes(contentHashes);
+        return crawler;
+      }, getThreads());
+    }
+
+    List<StagedRoot> staged = Collections.synchronizedList(new ArrayList<>());
+
+    try {
+
+      List<Future<?>> tasks = new ArrayList<>(artifacts.size());
+      for (URL targetFile : artifacts) {
+        tasks.add(executor.submit(() -> {
+          long rootStart = buildMetrics.start();
+          try {
+            StagedRoot root = flatten(targetFile, resolverBridge, registry);
+            staged.add(root);
+            compileSchemas(root.documents);
+            long nanos = System.nanoTime() - rootStart;
+            buildMetrics.record("flatten.root", nanos);
+            buildMetrics.recordRoot(targetFile.toExternalForm(), nanos);
+          } catch (Throwable e) {
+            errorEncountered.add(e);
+            getLog().error("Failed processing " + targetFile, e);
+          }
+          return null;
+        }));
+      }
+
+      for (Future<?> task : tasks) {
+        try {
+          task.get();
+        } catch (ExecutionException | CancellationException ignore) {
+          // errors are collected by the task itself
+        }
+        if (haltOnError && !errorEncountered.isEmpty()) {
+          executor.shutdownNow();
+          throw errorEncountered.get(0);
+        }
+      }
+
+      // sources that suggested the same name got their names in the order the workers reached them
+      Map<String, String> renamed = registry.settle();
+      StreamingCrawler relinker = new StreamingCrawler();
+      synchronized (staged) {
+        for (StagedRoot root : staged) {
+          produced.put(root.url, publish(root, renamed, relinker));
+        }
+      }
+
+    } finally {
+      synchronized (staged) {
+        for (StagedRoot root : staged) {
+          deleteQuietly(root.staging);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Crawl all roots through one shared import graph so every referenced document is parsed and written once.
+   */
+  private void flattenGraph(Set<URL> artifacts, JlibsResolverBridge resolverBridge, OutputNameRegistry registry,
+                            ExecutorService executor, List<Throwable> errorEncountered,
+                            Map<URL, Map<String, String>> produced) throws Throwable {
+
+    SimpleNameCrawlerListener listener = new SimpleNameCrawlerListener(outputDirectory, registry)
+      .withOffline(isOffline())
+      .withNegativeCache(negativeCache);
+    ImportGraph graph = new ImportGraph(resolverBridge, listener);
+    graph.setJarFileCache(jarFileCache);
+    graph.setContentHashes(contentHashes);
+    graph.setCopyThrough(copyThrough);
+    graph.setDedup(dedup);
+    graph.setMetrics(buildMetrics);
+    graph.setRenames(() -> {
+      // sources that suggested the same name got their names in the order the workers reached them
+      Map<File, File> files = new HashMap<>();
+      for (Map.Entry<String, String> name : registry.settle().entrySet()) {
+        files.put(new File(outputDirectory, name.getKey()), new File(outputDirectory, name.getValue()));
+      }
+      return files;
+    });
+    Map<URL, ImportGraph.Node> roots = new LinkedHashMap<>();
+    for (URL targetFile : artifacts) {
+      if (getLog().isDebugEnabled() || verbose)
+        getLog().info("Flatten file: " + targetFile.toExternalForm());
+      ImportGraph.Node root = graph.addRoot(targetFile);
+      if (root != null)
+        roots.put(targetFile, root);
+    }
+
+    long start = buildMetrics.start();
+    try {
+      graph.flatten(executor);
+    } catch (IOException e) {
+      errorEncountered.add(e);
+      getLog().error("Failed processing import graph", e);
+      if (haltOnError)
+        throw e;
+    }
+
+    buildMetrics.stop("flatten.graph", start);
+
+    missingDocuments.addAll(listener.getMissing());
+    if (negativeCache != null) {
+      for (ImportGraph.Node node : graph.getNodes()) {
+        String url = node.getUrl().toExternalForm();
+        if (node.isFailed() && JlibsResolverBridge.isRemote(url)
+          && NegativeLookupCache.isFetchFailure(url, node.getFailure()))
+          negativeCache.record(url);
+      }
+    }
+
+    if (grammarCompilers != null) {
+      Map<String, String> documents = new LinkedHashMap<>();
+      for (ImportGraph.Node node : graph.getNodes()) {
+        if (node.getFile() != null && !node.isDuplicate())
+          documents.put(node.getUrl().toExternalForm(), node.getFile().getName());
+      }
+      try {
+        compileSchemas(documents);
+      } catch (IOException e) {
+        errorEncountered.add(e);
+        getLog().error("Failed validating import graph", e);
+        if (haltOnError)
+          throw e;
+      }
+    }
+
+    if (buildMetrics.isEnabled()) {
+      for (ImportGraph.Node node : graph.getNodes()) {
+        buildMetrics.increment("documents.parsed");
+        if (node.isDuplicate())
+          buildMetrics.increment("documents.deduplicated");
+        else if (node.getFile() != null)
+          buildMetrics.add("bytes.written", node.getFile().length());
+        if (node.isUnchanged())
+          buildMetrics.increment("files.unchanged");
+      }
+    }
+
+    if (getLog().isDebugEnabled() || verbose)
+      getLog().info("Flattened " + graph.getNodes().size() + " documents for " + artifacts.size() + " resources");
+
+    for (Map.Entry<URL, ImportGraph.Node> root : roots.entrySet()) {
+      produced.put(root.getKey(), reachable(root.getValue()));
+      // the roots share one graph, a root is done once the last document it pulls in has been written
+      long writtenAt = lastWritten(root.getValue());
+      if (writtenAt != 0L)
+        buildMetrics.recordRoot(root.getKey().toExternalForm(), writtenAt - start);
+    }
+
+  }
+
+  /**
+   * @return the time the last document reachable from a graph root was written, 0 if any of them was not written
+   */
+  private static long lastWritten(ImportGraph.Node root) {
+    long last = 0L;
+    Set<ImportGraph.Node> seen = new HashSet<>();
+    Deque<ImportGraph.Node> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      ImportGraph.Node node = queue.poll();
+      if (seen.add(node)) {
+        if (node.getWrittenAt() == 0L)
+          return 0L;
+        last = Math.max(last, node.getWrittenAt());
+        queue.addAll(node.getReferences());
+      }
+    }
+    return last;
+  }
+
+  /**
+   * @return every document reachable from a graph root mapped to the name of its flattened file, for a merged
+   * document that is the file of the document it was merged into
+   */
+  private static Map<String, String> reachable(ImportGraph.Node root) {
+    Map<String, String> documents = new LinkedHashMap<>();
+    Deque<ImportGraph.Node> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      ImportGraph.Node node = queue.poll();
+      if (documents.put(node.getUrl().toExternalForm(), node.getTarget().getFile().getName()) == null) {
+        queue.addAll(node.getReferences());
+      }
+    }
+    return documents;
+  }
+
+  /**
+   * Flatten a single resource into a private staging directory, so concurrent workers never see or produce partially
+   * written files. The staged files are published once the names of all documents are settled.
+   *
+   * @param targetFile     the resource to flatten
+   * @param resolverBridge the resolver shared by all workers
+   * @param registry       the registry coordinating the output file names of all workers
+   * @return the staged resource, its staging directory is left to the caller
+   * @throws IOException if the resource cannot be crawled
+   */
+  private StagedRoot flatten(URL targetFile, JlibsResolverBridge resolverBridge, OutputNameRegistry registry)
+    throws IOException {
+
+    if (getLog().isDebugEnabled() || verbose)
+      getLog().info("Flatten file: " + targetFile.toExternalForm());
+
+    Path staging = Files.createTempDirectory(outputDirectory.toPath(), ".flatten-");
+    boolean staged = false;
+
+    try {
+      SimpleNameCrawlerListener listener = new SimpleNameCrawlerListener(staging.toFile(), registry)
+        .withOffline(isOffline())
+        .withNegativeCache(negativeCache);
+      try {
+        if (streamingCrawlers != null) {
+          crawlStreaming(targetFile, resolverBridge, listener);
+        } else {
+          crawlJlibs(targetFile, resolverBridge, listener);
+        }
+      } finally {
+        missingDocuments.addAll(listener.getMissing());
+      }
+
+      Map<String, String> crawled = listener.getCrawled();
+
+      buildMetrics.add("documents.parsed", crawled.size());
+
+      staged = true;
+      return new StagedRoot(targetFile, staging, crawled);
+    } finally {
+      if (!staged)
+        deleteQuietly(staging);
+    }
+
+  }
+
+  /**
+   * Move the staged files of a resource into the output directory under their settled names. Files referencing a
+   * document whose name changed while settling are relinked on the way.
+   *
+   * @param root     the staged resource
+   * @param renamed  the provisional names that changed mapped to their settled names
+   * @param relinker the crawler used to change the references of the staged files
+   * @return every crawled document mapped to the name of its flattened file
+   * @throws IOException if the result cannot be published
+   */
+  private Map<String, String> publish(StagedRoot root, Map<String, String> renamed, StreamingCrawler relinker)
+    throws IOException {
+
+    Map<String, String> documents = new LinkedHashMap<>();
+    boolean relink = false;
+    for (Map.Entry<String, String> document : root.documents.entrySet()) {
+      relink |= renamed.containsKey(document.getValue());
+      documents.put(document.getKey(), renamed.getOrDefault(document.getValue(), document.getValue()));
+    }
+
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.staging)) {
+      for (Path file : stream) {
+        files.add(file);
+      }
+    }
+
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      Path target = outputDirectory.toPath().resolve(renamed.getOrDefault(name, name));
+      Path source = file;
+      if (relink) {
+        Path relinked = OutputFiles.createTempFile(target);
+        boolean changed = false;
+        try {
+          changed = relinker.relink(file.toFile(), relinked.toFile(), renamed);
+        } finally {
+          if (!changed)
+            Files.delete(relinked);
+        }
+        if (changed)
+          source = relinked;
+      }
+      if (buildMetrics.isEnabled())
+        buildMetrics.add("bytes.written", Files.size(source));
+      // leave identical outputs alone so downstream generators do not see them as modified
+      if (!OutputFiles.replaceIfChanged(source, target))
+        buildMetrics.increment("files.unchanged");
+    }
+
+    return documents;
+
+  }
+
+  private void crawlStreaming(URL targetFile, JlibsResolverBridge resolverBridge, SimpleNameCrawlerListener listener)
+    throws IOException {
+    StreamingCrawler crawler = streamingCrawlers.borrow();
+    try {
+      crawler.setResolver(resolverBridge);
+      crawler.setJarFileCache(jarFileCache);
+      crawler.setCopyThrough(copyThrough);
+      crawler.crawl(targetFile, listener);
+    } catch (IOException e) {
+      String failed = crawler.getFailed() != null ? crawler.getFailed().toExternalForm() : null;
+      if (negativeCache != null && failed != null && JlibsResolverBridge.isRemote(failed)
+        && NegativeLookupCache.isFetchFailure(failed, e))
+        negativeCache.record(failed);
+      throw e;
+    } finally {
+      streamingCrawlers.release(crawler);
+    }
+  }
+
+  private void crawlJlibs(URL targetFile, JlibsResolverBridge resolverBridge, SimpleNameCrawlerListener listener)
+    throws IOException {
+    // FIXME do a proper URI check
+    InputSource source = new InputSource(targetFile.toExternalForm());
+    XMLCrawler crawler = new XMLCrawler();
+    try {
+      crawler.setResolver(resolverBridge);
+      crawler.crawl(source, listener, null);
+    } catch (IOException e) {
+      String fetching = listener.getFetching();
+      if (negativeCache != null && fetching != null && NegativeLookupCache.isFetchFailure(fetching, e))
+        negativeCache.record(fetching);
+      throw e;
+    }
+  }
+
+  /**
+   * Compile the flattened schema documents, does nothing unless {@link #validate} is set.
+   *
+   * @param documents the crawled documents mapped to the name of their flattened file
+   * @throws IOException if a schema is not valid
+   */
+  private void compileSchemas(Map<String, String> documents) throws IOException {
+
+    if (grammarCompilers == null)
+      return;
+
+    GrammarCompiler compiler = grammarCompilers.borrow();
+    try {
+      for (Map.Entry<String, String> document : documents.entrySet()) {
+        if (document.getValue().endsWith(".xsd"))
+          compiler.compile(new URL(document.getKey()));
+      }
+    } finally {
+      grammarCompilers.release(compiler);
+    }
+
+  }
+
+  /**
+   * @return the grammar cache shared by all executions of the build
+   */
+  private GrammarCache sharedGrammarCache() {
+    return SessionSingletons.get(repositorySystemSession, GrammarCache.class.getName(), GrammarCache.class,
+      GrammarCache::new);
+  }
+
+
+  /**
+   * Resolve the catalog artifacts ahead of the crawl, a failed prefetch leaves the artifacts to be resolved on demand.
+   */
+  private void prefetch(MavenCatalogResolver resolver) {
+    try {
+      int resolved = resolver.prefetch();
+      if (getLog().isDebugEnabled() || verbose)
+        getLog().info("Prefetched " + resolved + " catalog artifacts");
+    } catch (RuntimeException e) {
+      getLog().warn("Failed to prefetch catalog artifacts, they are resolved on demand", e);
+    }
+  }
+
+  /**
+   * Wait for the prefetch started in the background, the crawl would otherwise resolve the same artifacts one by one.
+   */
+  private void awaitPrefetch(Future<?> prefetched) throws InterruptedException {
+    try {
+      prefetched.get();
+    } catch (ExecutionException e) {
+      getLog().warn("Failed to prefetch catalog artifacts, they are resolved on demand", e.getCause());
+    } catch (CancellationException ignore) {
+      // resolved on demand
+    }
+  }
+
+  /**
+   * Cancel a prefetch that is not needed anymore and wait for it to let go of the resolver and the dependency
+   * archives.
+   */
+  private void stopPrefetch(ExecutorService prefetcher, Future<?> prefetched) {
+    if (prefetcher == null)
+      return;
+    prefetched.cancel(true);
+    prefetcher.shutdownNow();
+    try {
+      prefetcher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return the negative lookup cache shared by all executions of the build, loaded from disk on first use
+   */
+  private NegativeLookupCache sharedNegativeCache() {
+    String key = NegativeLookupCache.class.getName() + ':' + negativeCacheFile.getAbsolutePath();
+    return SessionSingletons.get(repositorySystemSession, key, NegativeLookupCache.class,
+      () -> NegativeLookupCache.load(negativeCacheFile, negativeCacheTtl, TimeUnit.MINUTES));
+  }
+
+
+  /**
+   * @return true if no document may be fetched from the network, follows the offline state of Maven unless configured
+   */
+  private boolean isOffline() {
+    if (offline != null)
+      return offline;
+    return repositorySystemSession != null && repositorySystemSession.isOffline();
+  }
+
+  /**
+   * @return the failure message listing every reference that is missing from the catalogs
+   */
+  private String missingReport(Set<String> missing) {
+    StringBuilder report = new StringBuilder();
+    report.append(missing.size()).append(" referenced document(s) could not be resolved to a local resource");
+    report.append(isOffline() ? " while offline" : ", remote documents that failed recently are not fetched again");
+    report.append(", add them to a catalog:");
+    for (String reference : missing) {
+      report.append('\n').append("  ").append(reference);
+      if (negativeCache != null && negativeCache.contains(reference)) {
+        report.append(" (unavailable since ").append(new Date(negativeCache.getRecorded(reference))).append(')');
+      }
+    }
+    return report.toString();
+  }
+
+  /**
+   * Log a summary of the collected metrics and write the JSON report.
+   */
+  private void reportMetrics() {
+
+    if (!buildMetrics.isEnabled())
+      return;
+
+    getLog().info("Flatten metrics:");
+    for (String line : buildMetrics.summary()) {
+      getLog().info("  " + line);
+    }
+
+    if (metricsFile != null) {
+      try {
+        buildMetrics.writeJson(metricsFile);
+        getLog().info("Flatten metrics written to " + metricsFile);
+      } catch (IOException e) {
+        getLog().warn("Failed to write flatten metrics to " + metricsFile, e);
+      }
     }
 
   }
 
+  private void deleteQuietly(Path dir) {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(dir);
+    } catch (IOException e) {
+      getLog().warn("Failed to remove flatten staging directory " + dir, e);
+    }
+  }
+
+  /**
+   * @return the number of flatten workers, defaults to the number of available processors
+   */
+  private int getThreads() {
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
 
   @SuppressWarnings("unused")
   private XMLCatalogResolver createXercesResolver(List<URL> catalogsArg)
@@ -419,4 +1323,42 @@ public class FlattenImportPathMojo extends AbstractMojo {
     this.mavenCatalogResolverFactory = mavenCatalogResolverFactory;
   }
 
+  /**
+   * A resource crawled into its staging directory that has not been published yet.
+   */
+  private static class StagedRoot {
+
+    private final URL url;
+
+    private final Path staging;
+
+    /**
+     * every crawled document mapped to the provisional name of its staged file
+     */
+    private final Map<String, String> documents;
+
+    StagedRoot(URL url, Path staging, Map<String, String> documents) {
+      this.url = url;
+      this.staging = staging;
+      this.documents = documents;
+    }
+
+  }
+
+  /**
+   * Names the flatten workers so they can be told apart in the build log and thread dumps.
+   */
+  private static class FlattenThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "design-builder-flatten-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+
+  }
+
 }
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.flattener;
+
+import io.fares.design.builder.ContentHashes;
+import io.fares.design.builder.JarFileCache;
+import io.fares.design.builder.OutputFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records which documents every flatten root pulled in and what they looked like at the time. The manifest is used
+ * to skip roots whose inputs did not change since the last build and to remove flattened files that are no longer
+ * produced.
+ * <p>
+ * Every input is stamped with its size, modification time and a content hash. The size and modification time of
+ * the file on disk (the artifact file for <code>jar:</code> resources) are only a shortcut, if they differ the
+ * content hash decides. Resources that do not live on the local file system can never be proven unchanged, they are
+ * recorded without a hash.
+ */
+public class FlattenManifest {
+
+  private static final Logger log = LoggerFactory.getLogger(FlattenManifest.class);
+
+  private static final String HEADER = "# design-builder flatten manifest v1";
+
+  private static final String FINGERPRINT = "fingerprint";
+
+  private static final String ROOT = "root";
+
+  private static final String DOC = "doc";
+
+  /**
+   * the hash recorded for documents that are not read again to check whether they changed
+   */
+  private static final String UNHASHED = "-";
+
+  private final String fingerprint;
+
+  private final Map<String, Root> roots = new TreeMap<>();
+
+  /**
+   * content hashes of the documents recorded so far, shared documents are only read once
+   */
+  private final Map<String, String> hashes = new HashMap<>();
+
+  /**
+   * the current content hashes of the documents checked so far by their stamp, null for documents that cannot be
+   * read, so a document shared by many roots is only read once
+   */
+  private final Map<String, String> current = new HashMap<>();
+
+  /**
+   * the archives documents inside jars are read from, if null documents are opened by their URL
+   */
+  private JarFileCache jarFileCache;
+
+  /**
+   * the hashes taken while the documents were crawled, if null documents are read again when they are recorded
+   */
+  private ContentHashes contentHashes;
+
+  public FlattenManifest(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  public FlattenManifest withJarFileCache(JarFileCache jarFileCache) {
+    this.jarFileCache = jarFileCache;
+    return this;
+  }
+
+  public FlattenManifest withContentHashes(ContentHashes contentHashes) {
+    this.contentHashes = contentHashes;
+    return this;
+  }
+
+  /**
+   * Load a previously stored manifest.
+   *
+   * @param file the manifest file
+   * @return the manifest or null if none exists or it cannot be read
+   */
+  public static FlattenManifest load(File file) {
+
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+
+      String line = reader.readLine();
+      if (!HEADER.equals(line)) {
+        return null;
+      }
+
+      FlattenManifest manifest = null;
+      Root root = null;
+
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (FINGERPRINT.equals(fields[0]) && fields.length == 2) {
+          manifest = new FlattenManifest(fields[1]);
+        } else if (ROOT.equals(fields[0]) && fields.length == 2 && manifest != null) {
+          root = manifest.add(fields[1]);
+        } else if (DOC.equals(fields[0]) && fields.length == 6 && root != null) {
+          root.documents.add(new Document(fields[1], fields[2],
+            Long.parseLong(fields[3]), Long.parseLong(fields[4]), fields[5]));
+        } else {
+          log.warn("Ignore corrupt flatten manifest {}", file);
+          return null;
+        }
+      }
+
+      return manifest;
+
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Failed to read flatten manifest " + file, e);
+      return null;
+    }
+
+  }
+
+  /**
+   * Write the manifest, see {@link OutputFiles#write(java.nio.file.Path, OutputFiles.Content)}.
+   *
+   * @param file the manifest file
+   * @throws IOException if the manifest cannot be written
+   */
+  public void store(File file) throws IOException {
+    OutputFiles.write(file.toPath(), writer -> {
+      writer.write(HEADER);
+      writer.newLine();
+      writer.write(FINGERPRINT + '\t' + fingerprint);
+      writer.newLine();
+      for (Root root : roots.values()) {
+        writer.write(ROOT + '\t' + root.url);
+        writer.newLine();
+        for (Document doc : root.documents) {
+          writer.write(DOC + '\t' + doc.url + '\t' + doc.output + '\t' + doc.size + '\t' + doc.lastModified + '\t' + doc.hash);
+          writer.newLine();
+        }
+      }
+    });
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @param url the root URL
+   * @return the recorded root or null if the root has not been recorded
+   */
+  public Root get(String url) {
+    return roots.get(url);
+  }
+
+  /**
+   * Record a root, replacing any previous record.
+   *
+   * @param url the root URL
+   * @return the new record
+   */
+  public Root add(String url) {
+    Root root = new Root(url);
+    roots.put(url, root);
+    return root;
+  }
+
+  /**
+   * Check whether a recorded root can be skipped. Documents whose file was touched without changing are stamped again
+   * so the next build can rely on their size and modification time again.
+   *
+   * @param url             the root URL
+   * @param outputDirectory the directory the flattened files are expected in
+   * @return the record with fresh stamps if no input changed since the root was recorded and all its flattened files
+   * still exist, otherwise null
+   */
+  public Root upToDate(String url, File outputDirectory) {
+    Root root = roots.get(url);
+    if (root == null || root.documents.isEmpty()) {
+      return null;
+    }
+    Root checked = new Root(url);
+    for (Document doc : root.documents) {
+      Document stamped = new File(outputDirectory, doc.output).isFile() ? doc.checked(current, jarFileCache) : null;
+      if (stamped == null) {
+        return null;
+      }
+      checked.documents.add(stamped);
+    }
+    return checked;
+  }
+
+  /**
+   * Carry a record over from another manifest.
+   *
+   * @param root the record to keep
+   */
+  public void add(Root root) {
+    roots.put(root.url, root);
+  }
+
+  /**
+   * Stamp the current state of a document and record it for a root of this manifest. The hash taken while the
+   * document was crawled is used if there is one, a remote document is not read at all.
+   *
+   * @param root   the root that pulled in the document
+   * @param url    the resolved location of the document
+   * @param output the name of the flattened file
+   * @throws IOException if the document cannot be read
+   */
+  public void record(Root root, String url, String output) throws IOException {
+    File file = backingFile(url);
+    if (file == null) {
+      // never proven unchanged, so fetching it again would only risk failing the build
+      root.documents.add(new Document(url, output, -1, -1, UNHASHED));
+      return;
+    }
+    long size = file.length();
+    long lastModified = file.lastModified();
+    String hash = hashes.get(url);
+    if (hash == null && contentHashes != null) {
+      hash = contentHashes.get(url);
+    }
+    if (hash == null) {
+      hash = read(new URL(url), jarFileCache);
+    }
+    hashes.put(url, hash);
+    root.documents.add(new Document(url, output, size, lastModified, hash));
+  }
+
+  public Collection<Root> getRoots() {
+    return Collections.unmodifiableCollection(roots.values());
+  }
+
+  /**
+   * @return the names of all flattened files recorded in this manifest
+   */
+  public Set<String> getOutputs() {
+    Set<String> outputs = new TreeSet<>();
+    for (Root root : roots.values()) {
+      for (Document doc : root.documents) {
+        outputs.add(doc.output);
+      }
+    }
+    return outputs;
+  }
+
+  /**
+   * Hash a document, entries of archives are read through the jar file cache rather than a jar URL connection.
+   */
+  private static String read(URL location, JarFileCache jarFileCache) throws IOException {
+    try (InputStream in = jarFileCache != null ? jarFileCache.openStream(location) : location.openStream()) {
+      return ContentHashes.hash(in);
+    }
+  }
+
+  /**
+   * The file that backs a resource on the local file system, either the file itself or the archive containing it.
+   */
+  static File backingFile(String url) {
+    try {
+      String spec = url;
+      if (spec.startsWith("jar:")) {
+        int separator = spec.indexOf("!/");
+        if (separator == -1) {
+          return null;
+        }
+        spec = spec.substring(4, separator);
+      }
+      URI uri = new URI(spec);
+      if ("file".equals(uri.getScheme())) {
+        return new File(uri);
+      }
+    } catch (URISyntaxException | IllegalArgumentException ignore) {
+      // not a local resource
+    }
+    return null;
+  }
+
+  /**
+   * A flatten root and every document it pulled in, including itself.
+   */
+  public static class Root {
+
+    private final String url;
+
+    private final List<Document> documents = new ArrayList<>();
+
+    Root(String url) {
+      this.url = url;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    public List<Document> getDocuments() {
+      return Collections.unmodifiableList(documents);
+    }
+
+  }
+
+  /**
+   * The stamp of a single input document.
+   */
+  public static class Document {
+
+    private final String url;
+
+    private final String output;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String hash;
+
+    Document(String url, String output, long size, long lastModified, String hash) {
+      this.url = url;
+      this.output = output;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    public String getOutput() {
+      return output;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * @param current      the content hashes of the documents read so far, the hash of this document is added if it
+     *                     has to be read
+     * @param jarFileCache the archives to read the document from if it is inside a jar, may be null
+     * @return this document if its stamp still matches, a copy with a fresh stamp if only its file was touched, null
+     * if it changed
+     */
+    Document checked(Map<String, String> current, JarFileCache jarFileCache) {
+
+      File file = backingFile(url);
+      if (file == null || !file.exists()) {
+        // remote resources cannot be proven unchanged
+        return null;
+      }
+
+      long length = file.length();
+      long modified = file.lastModified();
+      if (length == size && modified == lastModified) {
+        return this;
+      }
+
+      String stamp = url + '\t' + length + '\t' + modified;
+      if (!current.containsKey(stamp)) {
+        String value;
+        try {
+          value = read(new URL(url), jarFileCache);
+        } catch (IOException e) {
+          value = null;
+        }
+        current.put(stamp, value);
+      }
+
+      return hash.equals(current.get(stamp)) ? new Document(url, output, length, modified, hash) : null;
+
+    }
+
+  }
+
+}
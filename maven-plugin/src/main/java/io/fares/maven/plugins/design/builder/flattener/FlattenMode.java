@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.flattener;
+
+/**
+ * Controls how the flatten roots of a {@link FlattenImportPathMojo} execution are crawled.
+ */
+public enum FlattenMode {
+
+  /**
+   * Every root is crawled on its own, shared imports are parsed and written again for each root that uses them.
+   */
+  ROOT("root"),
+
+  /**
+   * All roots share one import graph, every referenced document is parsed and written exactly once.
+   */
+  GRAPH("graph");
+
+  private final String value;
+
+  FlattenMode(String value) {
+    this.value = value;
+  }
+
+  public static FlattenMode fromValue(String v) {
+    for (FlattenMode mode : FlattenMode.values()) {
+      if (mode.value.equalsIgnoreCase(v)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("flatten mode [" + v + "] is invalid");
+  }
+
+  public String value() {
+    return value;
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.flattener;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Hands out the file names used in the flatten output directory. The registry is shared by all flatten workers of a
+ * mojo execution so that the same source document always ends up in the same file and two different source documents
+ * never claim the same file, no matter which worker gets to them first.
+ * <p>
+ * The files already present in the output directory are listed once, when the first name is allocated, instead of
+ * probing the disk for every candidate name. Files created by anyone else than this registry after that point are
+ * therefore not seen.
+ * <p>
+ * Names are handed out in the order they are asked for, so when different sources suggest the same name the names
+ * depend on which worker gets there first. They are provisional until {@link #settle()} hands out the names of all
+ * sources again in a fixed order, which makes the names identical from run to run.
+ */
+public class OutputNameRegistry {
+
+  private final File outputDirectory;
+
+  private final boolean overrideExistingFile;
+
+  /**
+   * source document to allocated file name
+   */
+  private final Map<String, String> namesBySource = new HashMap<>();
+
+  /**
+   * allocated file name to source document
+   */
+  private final Map<String, String> sourcesByName = new HashMap<>();
+
+  /**
+   * suggested name to the next number tried when the suggested name is taken
+   */
+  private final Map<String, Integer> nextNumber = new HashMap<>();
+
+  /**
+   * the names reserved for sources in the order they were reserved
+   */
+  private final Map<String, String> reserved = new LinkedHashMap<>();
+
+  /**
+   * source document to the name suggested for it when its name was allocated
+   */
+  private final Map<String, String> suggested = new HashMap<>();
+
+  /**
+   * the names of the files found in the output directory, null until first needed
+   */
+  private Set<String> existingFiles;
+
+  /**
+   * @param outputDirectory      the directory the flattened documents are published to
+   * @param overrideExistingFile if false, files that already exist in the output directory will not be reused
+   */
+  public OutputNameRegistry(File outputDirectory, boolean overrideExistingFile) {
+    this.outputDirectory = Objects.requireNonNull(outputDirectory, "The output directory must not be null.");
+    this.overrideExistingFile = overrideExistingFile;
+  }
+
+  /**
+   * Allocate an output file name for a source document.
+   *
+   * @param source        the external form of the source document URL
+   * @param suggestedName the simple file name suggested for the source
+   * @return the name already allocated to the source or a new name that is not used by any other source
+   */
+  public synchronized String allocate(String source, String suggestedName) {
+
+    String name = namesBySource.get(source);
+    if (name != null) {
+      return name;
+    }
+
+    name = suggestedName;
+    if (!isFree(name)) {
+      // continue after the last number handed out for this name instead of probing from 1 again
+      int i = nextNumber.getOrDefault(suggestedName, 1);
+      do {
+        name = numbered(suggestedName, i++);
+      } while (!isFree(name));
+      nextNumber.put(suggestedName, i);
+    }
+
+    namesBySource.put(source, name);
+    sourcesByName.put(name, source);
+    suggested.put(source, suggestedName);
+    return name;
+
+  }
+
+  /**
+   * Hand a source the name it was given by a previous execution. Reserved names are used even if the file already
+   * exists in the output directory, since it is the file this source produced.
+   *
+   * @param source the external form of the source document URL
+   * @param name   the name to reserve
+   * @return true if the name was reserved, false if either the source or the name have already been allocated
+   */
+  public synchronized boolean reserve(String source, String name) {
+    if (namesBySource.containsKey(source) || sourcesByName.containsKey(name)) {
+      return false;
+    }
+    namesBySource.put(source, name);
+    sourcesByName.put(name, source);
+    reserved.put(source, name);
+    return true;
+  }
+
+  /**
+   * Allocate the names of all sources seen so far again, sorted by source, and keep them. The registry sees the same
+   * existing files and reservations as before, so the outcome only depends on the set of sources and not on the order
+   * they were first allocated in. Call it once every source is known, the names handed out until then are
+   * provisional.
+   *
+   * @return the provisional name of every source whose name changed mapped to its settled name
+   */
+  public synchronized Map<String, String> settle() {
+
+    Map<String, String> provisional = new HashMap<>(namesBySource);
+
+    namesBySource.clear();
+    sourcesByName.clear();
+    nextNumber.clear();
+    for (Map.Entry<String, String> reservation : reserved.entrySet()) {
+      namesBySource.put(reservation.getKey(), reservation.getValue());
+      sourcesByName.put(reservation.getValue(), reservation.getKey());
+    }
+    for (Map.Entry<String, String> source : new TreeMap<>(suggested).entrySet()) {
+      allocate(source.getKey(), source.getValue());
+    }
+
+    Map<String, String> renamed = new HashMap<>();
+    for (Map.Entry<String, String> source : provisional.entrySet()) {
+      String name = namesBySource.get(source.getKey());
+      if (!source.getValue().equals(name)) {
+        renamed.put(source.getValue(), name);
+      }
+    }
+    return renamed;
+
+  }
+
+  /**
+   * @return every source mapped to the name it was given
+   */
+  public synchronized Map<String, String> getNames() {
+    return new HashMap<>(namesBySource);
+  }
+
+  /**
+   * @param source the external form of the source document URL
+   * @return the name allocated to the source or null if none has been allocated yet
+   */
+  public synchronized String getName(String source) {
+    return namesBySource.get(source);
+  }
+
+  public File getOutputDirectory() {
+    return outputDirectory;
+  }
+
+  private boolean isFree(String name) {
+    if (sourcesByName.containsKey(name)) {
+      return false;
+    }
+    return overrideExistingFile || !existingFiles().contains(name);
+  }
+
+  private Set<String> existingFiles() {
+    if (existingFiles == null) {
+      String[] names = outputDirectory.list();
+      existingFiles = names != null ? new HashSet<>(Arrays.asList(names)) : Collections.emptySet();
+    }
+    return existingFiles;
+  }
+
+  private static String numbered(String name, int i) {
+    int dot = name.lastIndexOf('.');
+    if (dot == -1) {
+      return name + i;
+    } else {
+      return name.substring(0, dot) + i + name.substring(dot);
+    }
+  }
+
+}
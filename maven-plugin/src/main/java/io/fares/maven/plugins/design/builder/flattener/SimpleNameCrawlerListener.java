@@ -19,7 +19,8 @@
 
 package io.fares.maven.plugins.design.builder.flattener;
 
-import jlibs.core.io.FileUtil;
+import io.fares.design.builder.JlibsResolverBridge;
+import io.fares.design.builder.NegativeLookupCache;
 import jlibs.core.lang.StringUtil;
 import jlibs.xml.sax.crawl.CrawlerListener;
 import jlibs.xml.sax.crawl.DefaultCrawlerListener;
@@ -27,29 +28,89 @@ import jlibs.xml.sax.crawl.DefaultCrawlerListener;
 import java.io.File;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeSet;
 
 public class SimpleNameCrawlerListener implements CrawlerListener {
 
+  private File dir;
+
   /**
-   * Setting this to false will result in every file
+   * If set, output names are coordinated with other crawls writing to the same output directory.
    */
-  private boolean overrideExistingFile = false;
+  private OutputNameRegistry registry;
 
-  private File dir;
+  /**
+   * every crawled document and the name of the file it was written to
+   */
+  private final Map<String, String> crawled = Collections.synchronizedMap(new LinkedHashMap<>());
+
+  /**
+   * If set, remote documents are never fetched.
+   */
+  private boolean offline;
+
+  /**
+   * If set, remote documents that recently failed to fetch are not tried again.
+   */
+  private NegativeLookupCache negativeCache;
+
+  /**
+   * the remote documents that were refused
+   */
+  private final Set<String> missing = Collections.synchronizedSet(new TreeSet<>());
+
+  /**
+   * the remote document being fetched, it is cleared once the document has been read
+   */
+  private volatile String fetching;
 
   public SimpleNameCrawlerListener(File dir) {
-    this.dir = dir;
+    this(dir, false);
   }
 
+  /**
+   * @param dir                  the directory the crawler writes to
+   * @param overrideExistingFile if false, every document gets a name not yet taken in the directory, if true the
+   *                             file of a document with the same name is overwritten
+   */
   public SimpleNameCrawlerListener(File dir, boolean overrideExistingFile) {
     this.dir = dir;
-    this.overrideExistingFile = overrideExistingFile;
+    if (!overrideExistingFile)
+      this.registry = new OutputNameRegistry(dir, false);
+  }
+
+  /**
+   * Create a listener that writes into a (staging) directory but takes the file names from a shared registry.
+   *
+   * @param dir      the directory the crawler writes to
+   * @param registry the registry allocating the names of the flattened files
+   */
+  public SimpleNameCrawlerListener(File dir, OutputNameRegistry registry) {
+    this.dir = dir;
+    this.registry = registry;
   }
 
   @Override
   public boolean doCrawl(URL url) {
+
+    String location = url.toExternalForm();
+    if (!JlibsResolverBridge.isRemote(location)) {
+      return true;
+    }
+
+    if (offline || (negativeCache != null && negativeCache.contains(location))) {
+      missing.add(location);
+      return false;
+    }
+
+    fetching = location;
     return true;
+
   }
 
   @Override
@@ -60,14 +121,64 @@ public class SimpleNameCrawlerListener implements CrawlerListener {
      * <code>http://services.acme.com/MyService?WSDL&type=XSD&file=schema:f333485f-56bf-4fe6-b33a-8e7744f7b5ab</code>
      */
 
+    if (url.toExternalForm().equals(fetching))
+      fetching = null;
+
     URI uri = URI.create(url.toExternalForm());
     String fileName = suggestFile(uri, extension);
 
-    if (overrideExistingFile)
-      return new File(dir, fileName);
+    File file;
+    if (registry != null)
+      file = new File(dir, registry.allocate(url.toExternalForm(), fileName));
     else
-      return FileUtil.findFreeFile(new File(dir, fileName));
+      file = new File(dir, fileName);
+
+    crawled.put(url.toExternalForm(), file.getName());
+    return file;
+
+  }
 
+  /**
+   * @return the external form of every crawled document mapped to the name of the file it was written to
+   */
+  public Map<String, String> getCrawled() {
+    synchronized (crawled) {
+      return new LinkedHashMap<>(crawled);
+    }
+  }
+
+  public boolean isOffline() {
+    return offline;
+  }
+
+  public SimpleNameCrawlerListener withOffline(boolean offline) {
+    this.offline = offline;
+    return this;
+  }
+
+  public SimpleNameCrawlerListener withNegativeCache(NegativeLookupCache negativeCache) {
+    this.negativeCache = negativeCache;
+    return this;
+  }
+
+  /**
+   * @return the remote documents that were not crawled because the listener is offline or they are known to be
+   * unavailable
+   */
+  public Set<String> getMissing() {
+    synchronized (missing) {
+      return new TreeSet<>(missing);
+    }
+  }
+
+  /**
+   * The crawler hands a document to {@link #toFile(URL, String)} once it has been read. A remote document that was
+   * accepted but never got that far is the one that failed when the crawl fails.
+   *
+   * @return the remote document whose fetch has not completed or null
+   */
+  public String getFetching() {
+    return fetching;
   }
 
   private String suggestFile(URI uri, String extension) {
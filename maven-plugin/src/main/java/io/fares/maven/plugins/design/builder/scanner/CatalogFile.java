@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Objects;
+
+/**
+ * A catalog file found by the {@link CatalogFileScanner}. The handle only knows where the catalog lives, its content
+ * is read when asked for.
+ */
+public final class CatalogFile {
+
+  private final String path;
+
+  private final URL url;
+
+  public CatalogFile(String path, URL url) {
+    this.path = Objects.requireNonNull(path, "The path must not be null.");
+    this.url = Objects.requireNonNull(url, "The url must not be null.");
+  }
+
+  /**
+   * @return the path of the catalog relative to the classpath element it was found in
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return the location of the catalog
+   */
+  public URL getUrl() {
+    return url;
+  }
+
+  /**
+   * @return a new stream of the catalog content, the caller has to close it
+   * @throws IOException if the catalog cannot be opened
+   */
+  public InputStream openStream() throws IOException {
+    return url.openStream();
+  }
+
+  /**
+   * @return the catalog content
+   * @throws IOException if the catalog cannot be read
+   */
+  public byte[] getContent() throws IOException {
+    try (InputStream in = openStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return url.toExternalForm();
+  }
+
+}
@@ -19,6 +19,7 @@
 
 package io.fares.maven.plugins.design.builder.scanner;
 
+import io.fares.design.builder.BuildMetrics;
 import io.fares.maven.plugins.design.builder.flattener.ResourceEntry;
 import io.fares.maven.plugins.design.builder.flattener.ResourceEntryDependencyResolver;
 import io.fares.maven.plugins.utils.CollectionUtils;
@@ -34,10 +35,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -65,6 +65,13 @@ public final class CatalogFileScanner {
 
   private Set<String> excludes;
 
+  /**
+   * The directory of the persistent catalog index, if null every classpath element is scanned.
+   */
+  private File catalogIndexDirectory;
+
+  private BuildMetrics metrics = BuildMetrics.DISABLED;
+
 
   public List<String> getCompileClasspathElements() {
     return compileClasspathElements;
@@ -130,6 +137,25 @@ public final class CatalogFileScanner {
     this.includes = includes;
   }
 
+  public File getCatalogIndexDirectory() {
+    return catalogIndexDirectory;
+  }
+
+  public void setCatalogIndexDirectory(File catalogIndexDirectory) {
+    this.catalogIndexDirectory = catalogIndexDirectory;
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics the metrics to record the scan statistics into, null stops recording
+   */
+  public void setMetrics(BuildMetrics metrics) {
+    this.metrics = metrics != null ? metrics : BuildMetrics.DISABLED;
+  }
+
   public Set<String> getExcludes() {
     return excludes;
   }
@@ -140,7 +166,30 @@ public final class CatalogFileScanner {
 
   public List<URL> scan(Pattern catalogFilter) throws IOException, ArtifactResolutionException {
 
-    Set<URL> cp = new HashSet<>();
+    List<CatalogFile> catalogFiles = scanCatalogFiles(catalogFilter);
+    List<URL> result = new ArrayList<>(catalogFiles.size());
+    for (CatalogFile catalogFile : catalogFiles) {
+      result.add(catalogFile.getUrl());
+    }
+    return result;
+
+  }
+
+  /**
+   * Scan the classpath, resource folders and plugin catalog resources for catalog files in a single pass. Only the
+   * location of each match is collected, the content is read on demand through the returned handle.
+   *
+   * @param catalogFilter the pattern the resource path of a catalog file must match
+   * @return the catalog files in classpath order
+   * @throws IOException                 if the classpath cannot be assembled
+   * @throws ArtifactResolutionException if a plugin catalog resource cannot be resolved
+   */
+  public List<CatalogFile> scanCatalogFiles(Pattern catalogFilter) throws IOException, ArtifactResolutionException {
+
+    long start = metrics.start();
+
+    // keep the classpath order, catalogs found first take precedence
+    Set<URL> cp = new LinkedHashSet<>();
 
     // 1. add all classpath resources
     cp.addAll(getClassPathElementURLs(compileClasspathElements));
@@ -155,59 +204,145 @@ public final class CatalogFileScanner {
     // 3. also add all plugin catalog resources
     cp.addAll(getCatalogUrls());
 
+    CatalogIndex index = catalogIndexDirectory != null
+      ? CatalogIndex.of(repositorySystemSession, catalogIndexDirectory, catalogFilter.pattern())
+      : null;
+
+    // archives the index knows about are not opened again
+    Map<URL, List<CatalogFile>> indexed = new HashMap<>();
+    List<File> scannedArchives = new ArrayList<>();
+
     StringBuilder classpath = new StringBuilder();
 
     // build a classpath
     for (URL el : cp) {
+      File archive = index != null ? toArchive(el) : null;
+      if (archive != null) {
+        List<String> paths = index.get(archive);
+        if (paths != null) {
+          indexed.put(el, toCatalogFiles(archive, paths));
+          continue;
+        }
+        scannedArchives.add(archive);
+      }
       classpath.append(File.pathSeparatorChar);
       classpath.append(el.toExternalForm());
     }
 
-    final List<URL> catalogFiles = new LinkedList<>();
-
     if (log.isInfoEnabled()) {
       log.info("Scanner Classpath:" + '\n' + classpath);
     }
 
+    metrics.add("catalog.scan.elements", cp.size());
+    metrics.add("catalog.scan.indexed", indexed.size());
+
     if (log.isDebugEnabled()) {
       log.debug("Scanner uses catalogFilter: {}", catalogFilter);
+      if (index != null)
+        log.debug("Catalog index reused {} archives, scanning {} archives", indexed.size(), scannedArchives.size());
     }
 
+    // the catalogs found by the scan, grouped by the classpath element they were found in
+    Map<String, List<CatalogFile>> scanned = new LinkedHashMap<>();
 
-    Map<String, String> pathToFileContent = new HashMap<>();
+    if (classpath.length() > 0) {
 
-    ClassGraph scanner = new ClassGraph()
-      .overrideClasspath(classpath.toString())
-      .acceptPaths("*");
+      ClassGraph scanner = new ClassGraph()
+        .overrideClasspath(classpath.toString())
+        .acceptPaths("*");
 
-    try (ScanResult scanResult = scanner.scan()) {
-      // filter the results for a regex match of the filter
-      scanResult.getResourcesMatchingPattern(catalogFilter)
-        .forEachByteArrayThrowingIOException(
-          (io.github.classgraph.Resource r, byte[] fileContent) -> {
-            pathToFileContent.put(r.getPath(), new String(fileContent, StandardCharsets.UTF_8));
+      if (log.isDebugEnabled()) {
+        scanner.verbose();
+      }
 
-            if (log.isDebugEnabled()) {
-              log.debug(" :: add catalog resource: {}", r.getURL().toExternalForm());
-            }
+      try (ScanResult scanResult = scanner.scan()) {
+        // filter the results for a regex match of the filter
+        for (io.github.classgraph.Resource r : scanResult.getResourcesMatchingPattern(catalogFilter)) {
+          if (log.isDebugEnabled()) {
+            log.debug(" :: add catalog resource: {}", r.getURL().toExternalForm());
+          }
+          File element = r.getClasspathElementFile();
+          String key = element != null ? canonicalPath(element) : r.getURL().toExternalForm();
+          scanned.computeIfAbsent(key, k -> new ArrayList<>()).add(new CatalogFile(r.getPath(), r.getURL()));
+        }
+      }
 
-            catalogFiles.add(r.getURL());
+    }
 
-          }
-        );
+    if (index != null && !scannedArchives.isEmpty()) {
+      for (File archive : scannedArchives) {
+        List<String> paths = new ArrayList<>();
+        for (CatalogFile catalogFile : scanned.getOrDefault(canonicalPath(archive), Collections.emptyList())) {
+          paths.add(catalogFile.getPath());
+        }
+        index.put(archive, paths);
+      }
+      index.store();
     }
 
-    if (log.isDebugEnabled()) {
-      scanner.verbose();
+    // assemble the result in classpath order
+    final List<CatalogFile> catalogFiles = new ArrayList<>();
+
+    for (URL el : cp) {
+      List<CatalogFile> found = indexed.get(el);
+      if (found == null && "file".equals(el.getProtocol())) {
+        found = scanned.remove(canonicalPath(toFile(el)));
+      }
+      if (found != null) {
+        catalogFiles.addAll(found);
+      }
+    }
+
+    for (List<CatalogFile> found : scanned.values()) {
+      catalogFiles.addAll(found);
     }
 
-    scanner.scan();
+    metrics.add("catalog.scan.found", catalogFiles.size());
+    metrics.stop("catalog.scan", start);
 
     return catalogFiles;
 
   }
 
+  /**
+   * @return the archive file behind a classpath element or null if the element is not a local archive
+   */
+  private static File toArchive(URL el) {
+    if (!"file".equals(el.getProtocol())) {
+      return null;
+    }
+    File file = toFile(el);
+    return file.isFile() ? file : null;
+  }
+
+  private static File toFile(URL url) {
+    try {
+      return new File(url.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return new File(url.getPath());
+    }
+  }
+
+  private static String canonicalPath(File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (IOException e) {
+      return file.getAbsolutePath();
+    }
+  }
+
+  private static List<CatalogFile> toCatalogFiles(File archive, List<String> paths) throws MalformedURLException {
+    List<CatalogFile> catalogFiles = new ArrayList<>(paths.size());
+    for (String path : paths) {
+      catalogFiles.add(new CatalogFile(path, new URL("jar:" + archive.toURI().toURL().toExternalForm() + "!/" + path)));
+    }
+    return catalogFiles;
+  }
+
   protected List<URL> getClassPathElementURLs(List<String> elements) throws MalformedURLException {
+    if (elements == null) {
+      return Collections.emptyList();
+    }
     List<URL> result = new ArrayList<>(elements.size());
     for (String dep : elements) {
       result.add(new File(dep).toURI().toURL());
@@ -57,6 +57,10 @@ public class CatalogFileScannerFactory {
     scanner.setSourceDirectory(sourceDirectory);
     scanner.setIncludes(includes);
     scanner.setExcludes(excludes);
+    if (repositorySystemSession != null && repositorySystemSession.getLocalRepository() != null) {
+      scanner.setCatalogIndexDirectory(
+        new File(repositorySystemSession.getLocalRepository().getBasedir(), ".cache/design-builder"));
+    }
     return scanner;
 
   }
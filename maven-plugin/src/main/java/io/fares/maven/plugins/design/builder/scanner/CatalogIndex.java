@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.scanner;
+
+import io.fares.design.builder.OutputFiles;
+import io.fares.maven.plugins.design.builder.SessionSingletons;
+import org.eclipse.aether.RepositorySystemSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which catalog files were found in which archive so that archives which did not change since the last
+ * scan do not have to be opened again. An archive is identified by its path, size and modification time, the index
+ * is only valid for the catalog filter it was built with.
+ * <p>
+ * The index is kept in memory for the duration of a build, shared by all scanners through the repository session,
+ * and stored on disk in between builds.
+ */
+public final class CatalogIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+
+  private static final String HEADER = "# design-builder catalog index v1";
+
+  private static final String FILTER = "filter";
+
+  private static final String JAR = "jar";
+
+  private final File file;
+
+  private final String filter;
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private boolean modified;
+
+  private CatalogIndex(File file, String filter) {
+    this.file = file;
+    this.filter = filter;
+  }
+
+  /**
+   * Get the index for a catalog filter, loading it from disk on first use within a build.
+   *
+   * @param session   the repository session of the build, may be null
+   * @param directory the directory the index files are stored in
+   * @param filter    the catalog filter the index is built for
+   * @return the index
+   */
+  public static CatalogIndex of(RepositorySystemSession session, File directory, String filter) {
+
+    File file = new File(directory, "catalog-index-" + Integer.toHexString(filter.hashCode()) + ".txt");
+
+    String key = CatalogIndex.class.getName() + ':' + file.getAbsolutePath();
+    return SessionSingletons.get(session, key, CatalogIndex.class, () -> load(file, filter));
+
+  }
+
+  static CatalogIndex load(File file, String filter) {
+
+    CatalogIndex index = new CatalogIndex(file, filter);
+
+    if (!file.isFile()) {
+      return index;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+
+      if (!HEADER.equals(reader.readLine()) || !(FILTER + '\t' + filter).equals(reader.readLine())) {
+        return index;
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length < 4 || !JAR.equals(fields[0])) {
+          log.warn("Ignore corrupt catalog index {}", file);
+          return new CatalogIndex(file, filter);
+        }
+        List<String> paths = Arrays.asList(fields).subList(4, fields.length);
+        index.entries.put(fields[1], new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+          Collections.unmodifiableList(new ArrayList<>(paths))));
+      }
+
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Failed to read catalog index " + file, e);
+      return new CatalogIndex(file, filter);
+    }
+
+    return index;
+
+  }
+
+  /**
+   * @param archive the archive to look up
+   * @return the paths of the catalog files in the archive or null if the archive is unknown or has changed
+   */
+  public synchronized List<String> get(File archive) {
+    Entry entry = entries.get(archive.getAbsolutePath());
+    if (entry != null && entry.size == archive.length() && entry.lastModified == archive.lastModified()) {
+      return entry.paths;
+    }
+    return null;
+  }
+
+  /**
+   * @param archive the scanned archive
+   * @param paths   the paths of the catalog files found in the archive
+   */
+  public synchronized void put(File archive, List<String> paths) {
+    entries.put(archive.getAbsolutePath(), new Entry(archive.length(), archive.lastModified(),
+      Collections.unmodifiableList(new ArrayList<>(paths))));
+    modified = true;
+  }
+
+  /**
+   * Write the index if it changed, see {@link OutputFiles#write(java.nio.file.Path, OutputFiles.Content)}.
+   */
+  public synchronized void store() {
+
+    if (!modified || !OutputFiles.isSingleLine(filter)) {
+      return;
+    }
+
+    try {
+      OutputFiles.write(file.toPath(), writer -> {
+        writer.write(HEADER);
+        writer.newLine();
+        writer.write(FILTER + '\t' + filter);
+        writer.newLine();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+          writer.write(JAR + '\t' + e.getKey() + '\t' + e.getValue().size + '\t' + e.getValue().lastModified);
+          for (String path : e.getValue().paths) {
+            writer.write('\t' + path);
+          }
+          writer.newLine();
+        }
+      });
+      modified = false;
+    } catch (IOException e) {
+      log.warn("Failed to write catalog index " + file, e);
+    }
+
+  }
+
+  private static final class Entry {
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final List<String> paths;
+
+    Entry(long size, long lastModified, List<String> paths) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.paths = paths;
+    }
+
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder;
+
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class MavenCatalogResolverFactoryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testShareParsedCatalogWithinSession() throws Exception {
+
+    File catalogFile = folder.newFile("catalog.xml");
+    writeCatalog(catalogFile, "a.xsd");
+    List<URL> catalogs = Collections.singletonList(catalogFile.toURI().toURL());
+
+    MavenCatalogResolverFactory factory = new MavenCatalogResolverFactory();
+    ReflectionUtils.setVariableValueInObject(factory, "artifactResolver", Mockito.mock(ArtifactResolver.class));
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    MavenCatalogResolver first = factory.newInstance(session, catalogs);
+    MavenCatalogResolver second = factory.newInstance(session, catalogs);
+
+    Assert.assertNotSame(first, second);
+    Assert.assertSame(first.getCatalog(), second.getCatalog());
+    Assert.assertTrue(second.getCatalog().resolveSystem("http://x/a.xsd").endsWith("/a.xsd"));
+
+    // another build does not see the catalog
+    Assert.assertNotSame(first.getCatalog(), factory.newInstance(new DefaultRepositorySystemSession(), catalogs).getCatalog());
+
+    // a changed catalog file is parsed again
+    writeCatalog(catalogFile, "b.xsd");
+    MavenCatalogResolver changed = factory.newInstance(session, catalogs);
+    Assert.assertNotSame(first.getCatalog(), changed.getCatalog());
+    Assert.assertTrue(changed.getCatalog().resolveSystem("http://x/a.xsd").endsWith("/b.xsd"));
+
+  }
+
+  @Test
+  public void testParseAgainWhenSubordinateCatalogChanged() throws Exception {
+
+    File catalogFile = folder.newFile("catalog.xml");
+    File nextFile = folder.newFile("next.xml");
+    String catalog = "<catalog xmlns='urn:oasis:names:tc:entity:xmlns:xml:catalog'>"
+      + "<nextCatalog catalog='next.xml'/></catalog>";
+    Files.write(catalogFile.toPath(), catalog.getBytes(StandardCharsets.UTF_8));
+    writeCatalog(nextFile, "a.xsd");
+    List<URL> catalogs = Collections.singletonList(catalogFile.toURI().toURL());
+
+    MavenCatalogResolverFactory factory = new MavenCatalogResolverFactory();
+    ReflectionUtils.setVariableValueInObject(factory, "artifactResolver", Mockito.mock(ArtifactResolver.class));
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    MavenCatalogResolver first = factory.newInstance(session, catalogs);
+    Assert.assertTrue(first.getCatalog().resolveSystem("http://x/a.xsd").endsWith("/a.xsd"));
+    Assert.assertSame(first.getCatalog(), factory.newInstance(session, catalogs).getCatalog());
+
+    // only the subordinate catalog changes
+    writeCatalog(nextFile, "b.xsd");
+    MavenCatalogResolver changed = factory.newInstance(session, catalogs);
+    Assert.assertNotSame(first.getCatalog(), changed.getCatalog());
+    Assert.assertTrue(changed.getCatalog().resolveSystem("http://x/a.xsd").endsWith("/b.xsd"));
+
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPrefetchCatalogArtifacts() throws Exception {
+
+    File catalogFile = folder.newFile("catalog.xml");
+    writeCatalog(catalogFile, "maven:io.fares.test:types:jar::1.0!/a.xsd");
+    File jar = folder.newFile("types-1.0.jar");
+
+    ArtifactResolver artifactResolver = Mockito.mock(ArtifactResolver.class);
+    Mockito.when(artifactResolver.resolveArtifacts(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+      List<ArtifactResult> results = new ArrayList<>();
+      for (ArtifactRequest request : (Collection<ArtifactRequest>) invocation.getArgument(1)) {
+        results.add(new ArtifactResult(request).setArtifact(request.getArtifact().setFile(jar)));
+      }
+      return results;
+    });
+
+    MavenCatalogResolverFactory factory = new MavenCatalogResolverFactory();
+    ReflectionUtils.setVariableValueInObject(factory, "artifactResolver", artifactResolver);
+
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    MavenCatalogResolver resolver = factory.newInstance(session, Collections.singletonList(catalogFile.toURI().toURL()));
+
+    Assert.assertEquals(1, resolver.prefetch());
+    Assert.assertTrue(resolver.getResolvedEntity(null, "http://x/a.xsd")
+      .startsWith("jar:" + jar.toURI().toURL().toExternalForm() + "!/"));
+
+    // already resolved, nothing left to prefetch
+    Assert.assertEquals(0, resolver.prefetch());
+    Mockito.verify(artifactResolver, Mockito.times(1)).resolveArtifacts(Mockito.any(), Mockito.any());
+    Mockito.verify(artifactResolver, Mockito.never()).resolveArtifact(Mockito.any(), Mockito.any());
+
+  }
+
+  private static void writeCatalog(File file, String uri) throws Exception {
+    String catalog = "<catalog xmlns='urn:oasis:names:tc:entity:xmlns:xml:catalog'>"
+      + "<system systemId='http://x/a.xsd' uri='" + uri + "'/></catalog>";
+    Files.write(file.toPath(), catalog.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
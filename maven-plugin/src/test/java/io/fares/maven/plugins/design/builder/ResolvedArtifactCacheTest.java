@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder;
+
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ResolvedArtifactCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testResolveOncePerSession() throws Exception {
+
+    ArtifactResolver artifactResolver = newArtifactResolver(0);
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    MavenCatalogResolver first = newResolver(artifactResolver, session, "first.xml",
+      "maven:io.fares.test:types:jar::1.0!/a.xsd");
+    MavenCatalogResolver second = newResolver(artifactResolver, session, "second.xml",
+      "maven:io.fares.test:types:jar::1.0!/a.xsd");
+
+    Assert.assertNotSame(first.getCatalog(), second.getCatalog());
+    Assert.assertEquals(first.getResolvedEntity(null, "http://x/a.xsd"), second.getResolvedEntity(null, "http://x/a.xsd"));
+    Mockito.verify(artifactResolver, Mockito.times(1)).resolveArtifact(Mockito.any(), Mockito.any());
+
+    // another build resolves on its own
+    newResolver(artifactResolver, new DefaultRepositorySystemSession(), "third.xml",
+      "maven:io.fares.test:types:jar::1.0!/a.xsd").getResolvedEntity(null, "http://x/a.xsd");
+    Mockito.verify(artifactResolver, Mockito.times(2)).resolveArtifact(Mockito.any(), Mockito.any());
+
+  }
+
+  @Test
+  public void testKeyOnClassifierAndExtension() throws Exception {
+
+    ArtifactResolver artifactResolver = newArtifactResolver(0);
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    String[] targets = {
+      "maven:io.fares.test:types:jar::1.0!/a.xsd",
+      "maven:io.fares.test:types:jar:sources:1.0!/a.xsd",
+      "maven:io.fares.test:types:zip::1.0!/a.xsd",
+      "maven:io.fares.test:types:zip:sources:1.0!/a.xsd"
+    };
+
+    List<String> resolved = new ArrayList<>();
+    for (int i = 0; i < targets.length; i++) {
+      MavenCatalogResolver resolver = newResolver(artifactResolver, session, "catalog" + i + ".xml", targets[i]);
+      resolved.add(resolver.getResolvedEntity(null, "http://x/a.xsd"));
+    }
+
+    Mockito.verify(artifactResolver, Mockito.times(targets.length)).resolveArtifact(Mockito.any(), Mockito.any());
+    Assert.assertTrue(resolved.get(0).contains("/types-1.0.jar!/"));
+    Assert.assertTrue(resolved.get(1).contains("/types-1.0-sources.jar!/"));
+    Assert.assertTrue(resolved.get(2).contains("/types-1.0.zip!/"));
+    Assert.assertTrue(resolved.get(3).contains("/types-1.0-sources.zip!/"));
+
+  }
+
+  @Test
+  public void testConcurrentLookupsResolveOnce() throws Exception {
+
+    ArtifactResolver artifactResolver = newArtifactResolver(50);
+    DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+
+    int threads = 8;
+    List<MavenCatalogResolver> resolvers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      // each resolver has a catalog of its own, so the catalog lock does not serialise the lookups
+      resolvers.add(newResolver(artifactResolver, session, "catalog" + i + ".xml",
+        "maven:io.fares.test:types:jar::1.0!/a.xsd"));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<String>> futures = new ArrayList<>();
+      for (MavenCatalogResolver resolver : resolvers) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return resolver.getResolvedEntity(null, "http://x/a.xsd");
+        }));
+      }
+      start.countDown();
+      String expected = futures.get(0).get();
+      Assert.assertNotNull(expected);
+      for (Future<String> future : futures) {
+        Assert.assertEquals(expected, future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Mockito.verify(artifactResolver, Mockito.times(1)).resolveArtifact(Mockito.any(), Mockito.any());
+
+  }
+
+  private ArtifactResolver newArtifactResolver(long delay) throws Exception {
+    ArtifactResolver artifactResolver = Mockito.mock(ArtifactResolver.class);
+    Mockito.when(artifactResolver.resolveArtifact(Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+      Thread.sleep(delay);
+      ArtifactRequest request = invocation.getArgument(1);
+      File file = new File(folder.getRoot(), request.getArtifact().getArtifactId() + '-'
+        + request.getArtifact().getVersion()
+        + (request.getArtifact().getClassifier().isEmpty() ? "" : '-' + request.getArtifact().getClassifier())
+        + '.' + request.getArtifact().getExtension());
+      return new ArtifactResult(request).setArtifact(request.getArtifact().setFile(file));
+    });
+    return artifactResolver;
+  }
+
+  private MavenCatalogResolver newResolver(ArtifactResolver artifactResolver, DefaultRepositorySystemSession session,
+                                           String name, String uri) throws Exception {
+    File catalogFile = folder.newFile(name);
+    String catalog = "<catalog xmlns='urn:oasis:names:tc:entity:xmlns:xml:catalog'>"
+      + "<system systemId='http://x/a.xsd' uri='" + uri + "'/></catalog>";
+    Files.write(catalogFile.toPath(), catalog.getBytes(StandardCharsets.UTF_8));
+    MavenCatalogResolverFactory factory = new MavenCatalogResolverFactory();
+    ReflectionUtils.setVariableValueInObject(factory, "artifactResolver", artifactResolver);
+    List<URL> catalogs = Collections.singletonList(catalogFile.toURI().toURL());
+    return factory.newInstance(session, catalogs);
+  }
+
+}
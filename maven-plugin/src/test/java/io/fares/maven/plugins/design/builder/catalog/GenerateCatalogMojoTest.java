@@ -187,16 +187,26 @@ public class GenerateCatalogMojoTest {
     runTest("catalog/mixed/basic");
   }
 
+  @Test
+  public void testMultiParallel() throws Exception {
+    runTest("catalog/mixed/basic", "catalog.xml", true);
+  }
+
   private void runTest(String projectPath) throws Exception {
     runTest(projectPath, "catalog.xml");
   }
 
 
   private void runTest(String projectPath, String catalogName) throws Exception {
+    runTest(projectPath, catalogName, false);
+  }
+
+  private void runTest(String projectPath, String catalogName, boolean parallel) throws Exception {
 
     File baseDir = resources.getBasedir(projectPath);
     MavenProject project = rule.readMavenProject(baseDir);
     GenerateCatalogMojo mojo = (GenerateCatalogMojo) rule.lookupConfiguredMojo(project, "catalog");
+    rule.setVariableValueToObject(mojo, "parallel", parallel);
     mojo.execute();
 
     // check catalog file has been created
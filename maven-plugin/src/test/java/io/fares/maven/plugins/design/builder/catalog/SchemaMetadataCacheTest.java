@@ -0,0 +1,42 @@
+package io.fares.maven.plugins.design.builder.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SchemaMetadataCacheTest {
+
+  private final SchemaMetadataCache cache = new SchemaMetadataCache();
+
+  @Test
+  void itShouldReadTargetNamespaceOnce() throws Exception {
+    File schemaFile = resource("/unit/catalog/uri/tns-extracted/GlobalDataTypes.xsd");
+    SchemaMetadata metadata = cache.get(schemaFile);
+    assertEquals("schema", metadata.getRootElement().getLocalPart());
+    assertEquals("http://domain.internal/types", metadata.getTargetNamespace());
+    assertSame(metadata, cache.get(schemaFile));
+  }
+
+  @Test
+  void itShouldReturnNoNamespaceForChameleonSchema() throws Exception {
+    SchemaMetadata metadata = cache.get(resource("/unit/catalog/public/no-target-namespace/GlobalDataTypes.xsd"));
+    assertNull(metadata.getTargetNamespace());
+  }
+
+  @Test
+  void itShouldFindFirstEmbeddedSchemaNamespace() throws Exception {
+    SchemaMetadata metadata = cache.get(resource("/unit/flatten/test-flatten-config/src/main/wsdl/FlashyService.wsdl"));
+    assertEquals("definitions", metadata.getRootElement().getLocalPart());
+    assertEquals("urn:test-inline", metadata.getTargetNamespace());
+  }
+
+  private File resource(String path) throws URISyntaxException {
+    return new File(getClass().getResource(path).toURI());
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.corpus;
+
+import io.fares.maven.plugins.design.builder.catalog.CatalogFormat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A corpus written by the {@link CorpusGenerator}.
+ */
+public class Corpus {
+
+  private final Path sourceDirectory;
+
+  private final Path repository;
+
+  private final List<Path> artifactFiles;
+
+  private final List<Path> serviceFiles;
+
+  private final int documentCount;
+
+  private final Set<CatalogFormat> formats;
+
+  Corpus(Path sourceDirectory, Path repository, List<Path> artifactFiles, List<Path> serviceFiles,
+         int documentCount, Set<CatalogFormat> formats) {
+    this.sourceDirectory = sourceDirectory;
+    this.repository = repository;
+    this.artifactFiles = Collections.unmodifiableList(artifactFiles);
+    this.serviceFiles = Collections.unmodifiableList(serviceFiles);
+    this.documentCount = documentCount;
+    this.formats = formats;
+  }
+
+  /**
+   * @return the directory holding the service WSDLs
+   */
+  public Path getSourceDirectory() {
+    return sourceDirectory;
+  }
+
+  /**
+   * @return the root of the file based repository holding the artifacts
+   */
+  public Path getRepository() {
+    return repository;
+  }
+
+  /**
+   * @return the jar file of every artifact, in artifact order
+   */
+  public List<Path> getArtifactFiles() {
+    return artifactFiles;
+  }
+
+  /**
+   * @return the service WSDLs, the flatten roots of the corpus
+   */
+  public List<Path> getServiceFiles() {
+    return serviceFiles;
+  }
+
+  /**
+   * @return the number of generated documents, service WSDLs included
+   */
+  public int getDocumentCount() {
+    return documentCount;
+  }
+
+  public Set<CatalogFormat> getFormats() {
+    return formats;
+  }
+
+  /**
+   * @param format the catalog format
+   * @return the catalog of that format in every artifact
+   * @throws IOException if an artifact file cannot be turned into a URL
+   */
+  public List<URL> getCatalogs(CatalogFormat format) throws IOException {
+    List<URL> catalogs = new ArrayList<>(artifactFiles.size());
+    for (Path jar : artifactFiles) {
+      catalogs.add(new URL("jar:" + jar.toUri().toURL().toExternalForm() + "!/" + CorpusGenerator.catalogPath(format)));
+    }
+    return catalogs;
+  }
+
+}
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.corpus;
+
+import io.fares.maven.plugins.design.builder.catalog.CatalogFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generates synthetic WSDL/XSD corpora for load tests and benchmarks.
+ * <p>
+ * The schemas form a layered graph: every schema of a layer imports {@link #withFanOut(int) fanOut} schemas of the
+ * next layer and every service WSDL imports schemas of the first layer. The schemas are packed into jar artifacts of
+ * a file based repository, every jar carries a catalog for each {@link CatalogFormat} that maps the documents it
+ * contains. Documents only refer to each other by absolute systemIds, so nothing resolves without the catalogs. The
+ * service WSDLs are written into a source directory, the way a service project consumes a canonical model.
+ * <p>
+ * The generator is deterministic, the same settings always produce the same corpus.
+ */
+public class CorpusGenerator {
+
+  public static final String GROUP_ID = "io.fares.corpus";
+
+  public static final String VERSION = "1.0";
+
+  /**
+   * the base of all generated systemIds
+   */
+  public static final String BASE_URL = "http://corpus.internal/";
+
+  static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+
+  static final String WSDL_NS = "http://schemas.xmlsoap.org/wsdl/";
+
+  static final String CATALOG_NS = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+  private int services = 1;
+
+  private int width = 10;
+
+  private int depth = 3;
+
+  private int fanOut = 2;
+
+  private boolean diamonds = true;
+
+  private int chameleons = 0;
+
+  private boolean cycles = false;
+
+  private boolean serviceUrls = false;
+
+  private int artifacts = 1;
+
+  private Set<CatalogFormat> formats = EnumSet.allOf(CatalogFormat.class);
+
+  /**
+   * @param services the number of service WSDLs, each is a flatten root
+   */
+  public CorpusGenerator withServices(int services) {
+    this.services = services;
+    return this;
+  }
+
+  /**
+   * @param width the number of schemas per layer
+   */
+  public CorpusGenerator withWidth(int width) {
+    this.width = width;
+    return this;
+  }
+
+  /**
+   * @param depth the number of schema layers
+   */
+  public CorpusGenerator withDepth(int depth) {
+    this.depth = depth;
+    return this;
+  }
+
+  /**
+   * @param fanOut the number of schemas of the next layer every document imports
+   */
+  public CorpusGenerator withFanOut(int fanOut) {
+    this.fanOut = fanOut;
+    return this;
+  }
+
+  /**
+   * @param diamonds if true, neighbouring schemas import overlapping schemas of the next layer, otherwise the imports
+   *                 of a schema are spread out and only overlap once a layer is exhausted
+   */
+  public CorpusGenerator withDiamonds(boolean diamonds) {
+    this.diamonds = diamonds;
+    return this;
+  }
+
+  /**
+   * @param chameleons the number of shared chameleon schemas, every layered schema includes one of them
+   */
+  public CorpusGenerator withChameleons(int chameleons) {
+    this.chameleons = chameleons;
+    return this;
+  }
+
+  /**
+   * @param cycles if true, the last layer imports back into the first layer
+   */
+  public CorpusGenerator withCycles(boolean cycles) {
+    this.cycles = cycles;
+    return this;
+  }
+
+  /**
+   * @param serviceUrls if true, schemas are referenced the way OSB and Axis2 publish them, e.g.
+   *                    <code>http://corpus.internal/services/corpus-types-0?wsdl&amp;type=XSD&amp;file=schema:...</code>
+   */
+  public CorpusGenerator withServiceUrls(boolean serviceUrls) {
+    this.serviceUrls = serviceUrls;
+    return this;
+  }
+
+  /**
+   * @param artifacts the number of jar artifacts the schemas are spread across
+   */
+  public CorpusGenerator withArtifacts(int artifacts) {
+    this.artifacts = artifacts;
+    return this;
+  }
+
+  /**
+   * @param formats the catalog formats written into every artifact
+   */
+  public CorpusGenerator withFormats(Set<CatalogFormat> formats) {
+    this.formats = formats.isEmpty() ? EnumSet.noneOf(CatalogFormat.class) : EnumSet.copyOf(formats);
+    return this;
+  }
+
+  /**
+   * @param format the catalog format
+   * @return the location of the catalog of that format inside every artifact
+   */
+  public static String catalogPath(CatalogFormat format) {
+    return "META-INF/catalog/" + format.name().toLowerCase(Locale.ROOT).replace('_', '-') + "/catalog.xml";
+  }
+
+  /**
+   * @param index the number of the artifact
+   * @return the artifactId of a generated artifact
+   */
+  public static String artifactId(int index) {
+    return "corpus-types-" + index;
+  }
+
+  /**
+   * Generate the corpus.
+   *
+   * @param dir the directory to write the corpus to, <code>src</code> receives the service WSDLs and
+   *            <code>repository</code> the artifacts
+   * @return the generated corpus
+   * @throws IOException if the corpus cannot be written
+   */
+  public Corpus generate(Path dir) throws IOException {
+
+    if (width < 1 || depth < 1 || artifacts < 1) {
+      throw new IllegalArgumentException("width, depth and artifacts must be at least 1");
+    }
+
+    Document[][] layers = new Document[depth][width];
+    for (int d = 0; d < depth; d++) {
+      for (int i = 0; i < width; i++) {
+        int artifact = i % artifacts;
+        layers[d][i] = new Document(artifact, artifactId(artifact) + "/L" + d + "/T" + d + '_' + i + ".xsd",
+          "urn:corpus:types:" + d + ':' + i, d, i);
+      }
+    }
+
+    Document[] common = new Document[chameleons];
+    for (int j = 0; j < chameleons; j++) {
+      int artifact = j % artifacts;
+      common[j] = new Document(artifact, artifactId(artifact) + "/common/Common" + j + ".xsd", null, -1, j);
+    }
+
+    List<List<Document>> byArtifact = new ArrayList<>();
+    for (int a = 0; a < artifacts; a++) {
+      byArtifact.add(new ArrayList<>());
+    }
+    for (Document[] layer : layers) {
+      for (Document doc : layer) {
+        byArtifact.get(doc.artifact).add(doc);
+      }
+    }
+    for (Document doc : common) {
+      byArtifact.get(doc.artifact).add(doc);
+    }
+
+    Path repository = dir.resolve("repository");
+    List<Path> artifactFiles = new ArrayList<>();
+    for (int a = 0; a < artifacts; a++) {
+      artifactFiles.add(writeArtifact(repository, a, byArtifact.get(a), layers, common));
+    }
+
+    Path sourceDirectory = dir.resolve("src");
+    Files.createDirectories(sourceDirectory);
+    List<Path> serviceFiles = new ArrayList<>();
+    for (int s = 0; s < services; s++) {
+      Path wsdl = sourceDirectory.resolve("Service" + s + ".wsdl");
+      try (Writer w = Files.newBufferedWriter(wsdl, StandardCharsets.UTF_8)) {
+        writeService(w, s, layers[0]);
+      }
+      serviceFiles.add(wsdl);
+    }
+
+    return new Corpus(sourceDirectory, repository, artifactFiles, serviceFiles,
+      services + width * depth + chameleons, Collections.unmodifiableSet(formats));
+
+  }
+
+  private Path writeArtifact(Path repository, int index, List<Document> docs,
+                             Document[][] layers, Document[] common) throws IOException {
+
+    String artifactId = artifactId(index);
+    Path dir = repository.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId).resolve(VERSION);
+    Files.createDirectories(dir);
+
+    try (Writer w = Files.newBufferedWriter(dir.resolve(artifactId + '-' + VERSION + ".pom"), StandardCharsets.UTF_8)) {
+      w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      w.write("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+      w.write("  <modelVersion>4.0.0</modelVersion>\n");
+      w.write("  <groupId>" + GROUP_ID + "</groupId>\n");
+      w.write("  <artifactId>" + artifactId + "</artifactId>\n");
+      w.write("  <version>" + VERSION + "</version>\n");
+      w.write("</project>\n");
+    }
+
+    Path jar = dir.resolve(artifactId + '-' + VERSION + ".jar");
+
+    try (OutputStream os = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(os)) {
+
+      Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+      for (CatalogFormat format : formats) {
+        out.putNextEntry(new JarEntry(catalogPath(format)));
+        writeCatalog(w, format, artifactId, docs);
+        w.flush();
+        out.closeEntry();
+      }
+
+      for (Document doc : docs) {
+        out.putNextEntry(new JarEntry(doc.path));
+        if (doc.namespace == null) {
+          writeChameleon(w, doc);
+        } else {
+          writeLayered(w, doc, layers, common);
+        }
+        w.flush();
+        out.closeEntry();
+      }
+
+    }
+
+    return jar;
+
+  }
+
+  private void writeCatalog(Writer w, CatalogFormat format, String artifactId, List<Document> docs) throws IOException {
+
+    // catalogs live in META-INF/catalog/<format>/, the documents at the root of the jar
+    String toRoot = "../../../";
+
+    w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    w.write("<catalog xmlns=\"" + CATALOG_NS + "\" prefer=\"" + (format == CatalogFormat.PUBLIC ? "public" : "system") + "\">\n");
+
+    if (format == CatalogFormat.REWRITE_SYSTEM && !serviceUrls) {
+      w.write("  <rewriteSystem systemIdStartString=\"" + escape(BASE_URL + artifactId + '/')
+        + "\" rewritePrefix=\"" + toRoot + artifactId + "/\"/>\n");
+    } else {
+      for (Document doc : docs) {
+        String uri = escape(toRoot + doc.path);
+        switch (format) {
+          case PUBLIC:
+            // imports are looked up by namespace, includes of chameleon schemas only have their location
+            w.write("  <public publicId=\"" + escape(doc.namespace != null ? doc.namespace : systemId(doc)) + "\" uri=\"" + uri + "\"/>\n");
+            break;
+          case URI:
+            w.write("  <uri name=\"" + escape(systemId(doc)) + "\" uri=\"" + uri + "\"/>\n");
+            break;
+          case SYSTEM_SUFFIX:
+            w.write("  <systemSuffix systemIdSuffix=\"" + escape(suffix(doc)) + "\" uri=\"" + uri + "\"/>\n");
+            break;
+          default:
+            // rewriting cannot map opaque service urls, those fall back to system entries
+            w.write("  <system systemId=\"" + escape(systemId(doc)) + "\" uri=\"" + uri + "\"/>\n");
+        }
+      }
+    }
+
+    w.write("</catalog>\n");
+
+  }
+
+  private void writeLayered(Writer w, Document doc, Document[][] layers, Document[] common) throws IOException {
+
+    int layer = doc.layer;
+    int index = doc.index;
+
+    w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    w.write("<xsd:schema xmlns:xsd=\"" + XSD_NS + "\" targetNamespace=\"" + doc.namespace + "\" elementFormDefault=\"qualified\">\n");
+
+    Map<String, Document> imports = new LinkedHashMap<>();
+    if (layer + 1 < depth) {
+      for (Document imported : targets(layers[layer + 1], index)) {
+        imports.put(imported.path, imported);
+      }
+    } else if (cycles && depth > 1) {
+      Document back = layers[0][index];
+      imports.put(back.path, back);
+    }
+    for (Document imported : imports.values()) {
+      w.write("  <xsd:import namespace=\"" + imported.namespace + "\" schemaLocation=\"" + escape(systemId(imported)) + "\"/>\n");
+    }
+
+    if (common.length > 0) {
+      w.write("  <xsd:include schemaLocation=\"" + escape(systemId(common[(layer * width + index) % common.length])) + "\"/>\n");
+    }
+
+    w.write("  <xsd:complexType name=\"T" + layer + '_' + index + "\">\n");
+    w.write("    <xsd:sequence>\n");
+    w.write("      <xsd:element name=\"id\" type=\"xsd:string\"/>\n");
+    w.write("    </xsd:sequence>\n");
+    w.write("  </xsd:complexType>\n");
+    w.write("</xsd:schema>\n");
+
+  }
+
+  private void writeChameleon(Writer w, Document doc) throws IOException {
+    w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    w.write("<xsd:schema xmlns:xsd=\"" + XSD_NS + "\" elementFormDefault=\"qualified\">\n");
+    w.write("  <xsd:simpleType name=\"Common" + doc.index + "\">\n");
+    w.write("    <xsd:restriction base=\"xsd:string\"/>\n");
+    w.write("  </xsd:simpleType>\n");
+    w.write("</xsd:schema>\n");
+  }
+
+  private void writeService(Writer w, int index, Document[] firstLayer) throws IOException {
+    String tns = "urn:corpus:service:" + index;
+    w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    w.write("<definitions xmlns=\"" + WSDL_NS + "\" xmlns:xsd=\"" + XSD_NS + "\" targetNamespace=\"" + tns + "\">\n");
+    w.write("  <types>\n");
+    w.write("    <xsd:schema targetNamespace=\"" + tns + "\">\n");
+    for (Document imported : targets(firstLayer, index)) {
+      w.write("      <xsd:import namespace=\"" + imported.namespace + "\" schemaLocation=\"" + escape(systemId(imported)) + "\"/>\n");
+    }
+    w.write("    </xsd:schema>\n");
+    w.write("  </types>\n");
+    w.write("</definitions>\n");
+  }
+
+  /**
+   * The documents of a layer imported by the document at <code>index</code> of the previous layer.
+   */
+  private List<Document> targets(Document[] layer, int index) {
+    List<Document> targets = new ArrayList<>();
+    int n = Math.min(fanOut, layer.length);
+    for (int k = 0; k < n; k++) {
+      int target = diamonds ? index + k : index * n + k;
+      Document doc = layer[target % layer.length];
+      if (!targets.contains(doc)) {
+        targets.add(doc);
+      }
+    }
+    return targets;
+  }
+
+  private String systemId(Document doc) {
+    if (serviceUrls) {
+      return BASE_URL + "services/" + artifactId(doc.artifact) + "?wsdl&type=XSD&file=" + suffix(doc);
+    }
+    return BASE_URL + doc.path;
+  }
+
+  private String suffix(Document doc) {
+    if (serviceUrls) {
+      return "schema:" + UUID.nameUUIDFromBytes(doc.path.getBytes(StandardCharsets.UTF_8));
+    }
+    return doc.path;
+  }
+
+  private static String escape(String value) {
+    StringBuilder sb = new StringBuilder(value.length() + 16);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          sb.append("&amp;");
+          break;
+        case '<':
+          sb.append("&lt;");
+          break;
+        case '"':
+          sb.append("&quot;");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * A generated schema.
+   */
+  static final class Document {
+
+    final int artifact;
+
+    final String path;
+
+    /**
+     * the target namespace, null for chameleon schemas
+     */
+    final String namespace;
+
+    /**
+     * the layer of the schema, -1 for chameleon schemas
+     */
+    final int layer;
+
+    final int index;
+
+    Document(int artifact, String path, String namespace, int layer, int index) {
+      this.artifact = artifact;
+      this.path = path;
+      this.namespace = namespace;
+      this.layer = layer;
+      this.index = index;
+    }
+
+  }
+
+}
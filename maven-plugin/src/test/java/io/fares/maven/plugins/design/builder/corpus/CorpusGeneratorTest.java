@@ -0,0 +1,167 @@
+package io.fares.maven.plugins.design.builder.corpus;
+
+import io.fares.design.builder.CompiledCatalog;
+import io.fares.design.builder.JlibsResolverBridge;
+import io.fares.maven.plugins.design.builder.catalog.CatalogFormat;
+import io.fares.maven.plugins.design.builder.flattener.ResourceEntry;
+import io.fares.maven.plugins.design.builder.scanner.CatalogFileScanner;
+import org.apache.xml.resolver.CatalogManager;
+import org.apache.xml.resolver.tools.CatalogResolver;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+public class CorpusGeneratorTest {
+
+  private static final Logger log = LoggerFactory.getLogger(CorpusGeneratorTest.class);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testEveryReferenceResolvesInEveryFormat() throws Exception {
+    assertResolvable(false);
+  }
+
+  @Test
+  public void testServiceUrlsResolveInEveryFormat() throws Exception {
+    assertResolvable(true);
+  }
+
+  /**
+   * Scans the catalogs of a large corpus, run with <code>-Dcorpus.documents=10000</code>.
+   */
+  @Test
+  public void testScanLargeCorpus() throws Exception {
+
+    int documents = Integer.getInteger("corpus.documents", 0);
+    Assume.assumeTrue("large corpus test disabled", documents > 0);
+
+    Corpus corpus = new CorpusGenerator()
+      .withWidth(Math.max(1, documents / 10))
+      .withDepth(10)
+      .withFanOut(3)
+      .withArtifacts(20)
+      .withChameleons(10)
+      .generate(folder.getRoot().toPath());
+
+    long start = System.nanoTime();
+    List<URL> catalogs = newScanner(corpus).scan(Pattern.compile("^(.*/)?catalog\\.xml"));
+    long millis = (System.nanoTime() - start) / 1000000;
+
+    Assert.assertEquals(corpus.getArtifactFiles().size() * CatalogFormat.values().length, catalogs.size());
+    log.info("Scanned {} catalogs of {} documents in {} ms", catalogs.size(), corpus.getDocumentCount(), millis);
+
+  }
+
+  private void assertResolvable(boolean serviceUrls) throws Exception {
+
+    Corpus corpus = new CorpusGenerator()
+      .withServices(2)
+      .withWidth(4)
+      .withDepth(3)
+      .withFanOut(2)
+      .withChameleons(2)
+      .withCycles(true)
+      .withServiceUrls(serviceUrls)
+      .withArtifacts(2)
+      .generate(folder.newFolder().toPath());
+
+    Assert.assertEquals(2 + 4 * 3 + 2, corpus.getDocumentCount());
+    Assert.assertEquals(corpus.getArtifactFiles().size() * CatalogFormat.values().length,
+      newScanner(corpus).scan(Pattern.compile("^(.*/)?catalog\\.xml")).size());
+
+    List<String[]> references = new ArrayList<>();
+    for (Path service : corpus.getServiceFiles()) {
+      collectReferences(service.toUri().toURL(), references);
+    }
+    for (Path jar : corpus.getArtifactFiles()) {
+      try (JarFile jarFile = new JarFile(jar.toFile())) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+          String name = entries.nextElement().getName();
+          if (name.endsWith(".xsd")) {
+            collectReferences(new URL("jar:" + jar.toUri().toURL() + "!/" + name), references);
+          }
+        }
+      }
+    }
+    Assert.assertFalse(references.isEmpty());
+
+    for (CatalogFormat format : corpus.getFormats()) {
+      JlibsResolverBridge bridge = new JlibsResolverBridge(new CatalogResolver(catalogManager(corpus.getCatalogs(format))));
+      for (String[] reference : references) {
+        String resolved = bridge.resolve(reference[0], null, reference[1]);
+        Assert.assertNotNull(format + " does not resolve " + reference[1], resolved);
+        try (InputStream in = new URL(resolved).openStream()) {
+          Assert.assertTrue(in.read() != -1);
+        }
+      }
+    }
+
+  }
+
+  private static void collectReferences(URL document, List<String[]> references) throws Exception {
+    try (InputStream in = document.openStream()) {
+      XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+          && ("import".equals(reader.getLocalName()) || "include".equals(reader.getLocalName()))) {
+          references.add(new String[]{
+            reader.getAttributeValue(null, "namespace"),
+            reader.getAttributeValue(null, "schemaLocation")});
+        }
+      }
+      reader.close();
+    }
+  }
+
+  private static CatalogManager catalogManager(List<URL> catalogs) {
+    CatalogManager catalogManager = new CatalogManager();
+    catalogManager.setIgnoreMissingProperties(true);
+    catalogManager.setUseStaticCatalog(false);
+    catalogManager.setCatalogClassName(CompiledCatalog.class.getName());
+    StringBuilder files = new StringBuilder();
+    for (URL catalog : catalogs) {
+      files.append(files.length() > 0 ? ";" : "").append(catalog.toExternalForm());
+    }
+    catalogManager.setCatalogFiles(files.toString());
+    return catalogManager;
+  }
+
+  private CatalogFileScanner newScanner(Corpus corpus) throws Exception {
+    List<String> elements = new ArrayList<>();
+    for (Path jar : corpus.getArtifactFiles()) {
+      elements.add(jar.toAbsolutePath().toString());
+    }
+    CatalogFileScanner scanner = new CatalogFileScanner();
+    scanner.setCompileClasspathElements(elements);
+    scanner.setResources(Collections.emptyList());
+    scanner.setCatalogs(new ResourceEntry[0]);
+    scanner.setSourceDirectory(Files.createDirectories(corpus.getSourceDirectory()).toFile());
+    scanner.setIncludes(new HashSet<>());
+    scanner.setExcludes(new HashSet<>());
+    return scanner;
+  }
+
+}
@@ -19,8 +19,10 @@
 
 package io.fares.maven.plugins.design.builder.flattener;
 
+import io.fares.design.builder.BuildMetrics;
 import io.fares.maven.plugins.utils.AetherUtil;
 import org.apache.maven.execution.*;
+import org.apache.maven.execution.scope.internal.MojoExecutionScope;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.testing.MojoRule;
 import org.apache.maven.plugin.testing.resources.TestResources;
@@ -34,14 +36,21 @@ import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.internal.impl.DefaultRepositorySystem;
 import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -55,6 +64,8 @@ public class FlattenImportPathMojoTest {
   @Rule
   public TestResources resources = new TestResources("src/test/resources/unit", "target/ut/");
 
+  private int scopes;
+
   /**
    * @throws Exception if any
    */
@@ -109,4 +120,99 @@ public class FlattenImportPathMojoTest {
 
   }
 
+
+  @Test
+  public void testParallelMatchesSequential() throws Exception {
+
+    File baseDir = resources.getBasedir("flatten/test-flatten-incremental");
+    File sequential = new File(baseDir, "target/sequential");
+    File parallel = new File(baseDir, "target/parallel");
+
+    FlattenImportPathMojo mojo = configuredMojo(baseDir, sequential);
+    rule.setVariableValueToObject(mojo, "threads", 1);
+    rule.setVariableValueToObject(mojo, "incremental", false);
+    mojo.execute();
+
+    mojo = configuredMojo(baseDir, parallel);
+    rule.setVariableValueToObject(mojo, "threads", 4);
+    rule.setVariableValueToObject(mojo, "incremental", false);
+    mojo.execute();
+
+    Map<String, String> expected = contents(sequential);
+    assertEquals(Arrays.asList("A.xsd", "B.xsd", "Service.wsdl", "Types.xsd"), new ArrayList<>(expected.keySet()));
+    assertEquals(expected, contents(parallel));
+
+  }
+
+  @Test
+  public void testSkipUnchangedRoots() throws Exception {
+
+    File baseDir = resources.getBasedir("flatten/test-flatten-incremental");
+    File out = new File(baseDir, "target/flat");
+
+    configuredMojo(baseDir, out).execute();
+    Map<String, String> first = contents(out);
+
+    FlattenImportPathMojo mojo = configuredMojo(baseDir, out);
+    mojo.execute();
+
+    BuildMetrics metrics = (BuildMetrics) rule.getVariableValueFromObject(mojo, "buildMetrics");
+    assertEquals(4, metrics.getCount("roots.total"));
+    assertEquals(4, metrics.getCount("roots.skipped"));
+    assertEquals(first, contents(out));
+
+  }
+
+  @Test
+  public void testRemoveOutputsOfDeletedRoot() throws Exception {
+
+    File baseDir = resources.getBasedir("flatten/test-flatten-incremental");
+    File out = new File(baseDir, "target/flat");
+
+    configuredMojo(baseDir, out).execute();
+    assertTrue(new File(out, "Service.wsdl").isFile());
+
+    assertTrue(new File(baseDir, "src/Service.wsdl").delete());
+    configuredMojo(baseDir, out).execute();
+
+    // documents still pulled in by other roots stay
+    assertEquals(Arrays.asList("A.xsd", "B.xsd", "Types.xsd"), new ArrayList<>(contents(out).keySet()));
+
+  }
+
+  @After
+  public void exitScopes() throws Exception {
+    for (; scopes > 0; scopes--) {
+      rule.lookup(MojoExecutionScope.class).exit();
+    }
+  }
+
+  private FlattenImportPathMojo configuredMojo(File baseDir, File outputDirectory) throws Exception {
+    MavenProject project = rule.readMavenProject(baseDir);
+    // the catalog scanner is bound to the project of the running mojo
+    MojoExecutionScope scope = rule.lookup(MojoExecutionScope.class);
+    scope.enter();
+    scopes++;
+    scope.seed(MavenProject.class, project);
+    FlattenImportPathMojo mojo = (FlattenImportPathMojo) rule.lookupConfiguredMojo(project, "flatten");
+    rule.setVariableValueToObject(mojo, "outputDirectory", outputDirectory);
+    rule.setVariableValueToObject(mojo, "manifestFile",
+      new File(outputDirectory.getParentFile(), outputDirectory.getName() + "-manifest.txt"));
+    rule.setVariableValueToObject(mojo, "metricsFile", null);
+    return mojo;
+  }
+
+  /**
+   * @return the name of every file in the directory mapped to its content
+   */
+  private static Map<String, String> contents(File dir) throws Exception {
+    Map<String, String> contents = new TreeMap<>();
+    File[] files = dir.listFiles(File::isFile);
+    assertNotNull(files);
+    for (File file : files) {
+      contents.put(file.getName(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+    return contents;
+  }
+
 }
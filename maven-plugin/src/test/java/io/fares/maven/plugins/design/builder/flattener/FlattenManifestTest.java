@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.fares.maven.plugins.design.builder.flattener;
+
+import io.fares.design.builder.ContentHashes;
+import io.fares.design.builder.JarFileCache;
+import io.fares.design.builder.StreamingCrawler;
+import jlibs.xml.sax.crawl.CrawlerListener;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class FlattenManifestTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testStoreAndLoad() throws Exception {
+
+    File input = write(folder.newFile("types.xsd"), "<schema/>");
+    File manifestFile = new File(folder.getRoot(), "target/manifest.txt");
+
+    FlattenManifest manifest = new FlattenManifest("abc");
+    manifest.record(manifest.add("file:/root.xsd"), input.toURI().toString(), "types.xsd");
+    manifest.store(manifestFile);
+
+    FlattenManifest loaded = FlattenManifest.load(manifestFile);
+
+    Assert.assertNotNull(loaded);
+    Assert.assertEquals("abc", loaded.getFingerprint());
+    Assert.assertEquals(1, loaded.get("file:/root.xsd").getDocuments().size());
+    Assert.assertEquals(input.toURI().toString(), loaded.get("file:/root.xsd").getDocuments().get(0).getUrl());
+    Assert.assertTrue(loaded.getOutputs().contains("types.xsd"));
+
+  }
+
+  @Test
+  public void testUpToDate() throws Exception {
+
+    File input = write(folder.newFile("types.xsd"), "<schema/>");
+    File out = folder.newFolder("out");
+
+    FlattenManifest manifest = new FlattenManifest("abc");
+    manifest.record(manifest.add("file:/root.xsd"), input.toURI().toString(), "types.xsd");
+
+    // output missing
+    Assert.assertNull(manifest.upToDate("file:/root.xsd", out));
+
+    write(new File(out, "types.xsd"), "<schema/>");
+    Assert.assertNotNull(manifest.upToDate("file:/root.xsd", out));
+
+    // touched but same content
+    Assert.assertTrue(input.setLastModified(input.lastModified() - 10000));
+    FlattenManifest.Root root = manifest.upToDate("file:/root.xsd", out);
+    Assert.assertNotNull(root);
+
+    // stamped again, so the next build does not have to read it
+    Assert.assertEquals(input.lastModified(), root.getDocuments().get(0).getLastModified());
+
+    write(input, "<schema version='2'/>");
+    Assert.assertNull(manifest.upToDate("file:/root.xsd", out));
+
+  }
+
+  @Test
+  public void testUpToDateInsideJar() throws Exception {
+
+    File jar = folder.newFile("types.jar");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new JarEntry("types.xsd"));
+      out.write("<schema/>".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+    String url = "jar:" + jar.toURI().toURL().toExternalForm() + "!/types.xsd";
+    File out = folder.newFolder("out");
+    write(new File(out, "types.xsd"), "<schema/>");
+
+    FlattenManifest manifest = new FlattenManifest("abc");
+    manifest.record(manifest.add("file:/root.xsd"), url, "types.xsd");
+
+    try (JarFileCache jarFileCache = new JarFileCache()) {
+
+      // touched archive, the entry is read through the cache to prove it unchanged
+      Assert.assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+      Assert.assertNotNull(manifest.withJarFileCache(jarFileCache).upToDate("file:/root.xsd", out));
+      Assert.assertEquals(1, jarFileCache.size());
+
+    }
+
+  }
+
+  @Test
+  public void testRecordWithoutReadingAgain() throws Exception {
+
+    File input = write(folder.newFile("types.xsd"), "<schema/>");
+    File out = folder.newFolder("out");
+
+    ContentHashes hashes = new ContentHashes();
+    StreamingCrawler crawler = new StreamingCrawler();
+    crawler.setContentHashes(hashes);
+    crawler.crawl(input.toURI().toURL(), new CrawlerListener() {
+      @Override
+      public boolean doCrawl(URL url) {
+        return true;
+      }
+
+      @Override
+      public File toFile(URL url, String extension) {
+        return new File(out, "types.xsd");
+      }
+    });
+
+    FlattenManifest manifest = new FlattenManifest("abc").withContentHashes(hashes);
+    FlattenManifest.Root root = manifest.add("file:/root.xsd");
+
+    // both would fail if they were read again
+    Assert.assertTrue(input.delete());
+    manifest.record(root, input.toURI().toString(), "types.xsd");
+    manifest.record(root, "http://localhost:1/remote.xsd", "remote.xsd");
+
+    Assert.assertEquals(2, root.getDocuments().size());
+    Assert.assertNull(manifest.upToDate("file:/root.xsd", out));
+
+  }
+
+  @Test
+  public void testLoadCorrupt() throws Exception {
+    Assert.assertNull(FlattenManifest.load(write(folder.newFile("manifest.txt"), "garbage")));
+    Assert.assertNull(FlattenManifest.load(new File(folder.getRoot(), "missing.txt")));
+  }
+
+  private static File write(File file, String content) throws Exception {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.fares.maven.plugins.design.builder.flattener;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class OutputNameRegistryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameSourceSameName() {
+
+    OutputNameRegistry r = new OutputNameRegistry(folder.getRoot(), true);
+
+    Assert.assertEquals("types.xsd", r.allocate("file:/a/types.xsd", "types.xsd"));
+    Assert.assertEquals("types.xsd", r.allocate("file:/a/types.xsd", "types.xsd"));
+
+  }
+
+  @Test
+  public void testDifferentSourceSameName() {
+
+    OutputNameRegistry r = new OutputNameRegistry(folder.getRoot(), true);
+
+    Assert.assertEquals("types.xsd", r.allocate("file:/a/types.xsd", "types.xsd"));
+    Assert.assertEquals("types1.xsd", r.allocate("file:/b/types.xsd", "types.xsd"));
+    Assert.assertEquals("types2.xsd", r.allocate("file:/c/types.xsd", "types.xsd"));
+
+  }
+
+  @Test
+  public void testKeepExistingFile() throws Exception {
+
+    folder.newFile("types.xsd");
+
+    Assert.assertEquals("types.xsd", new OutputNameRegistry(folder.getRoot(), true)
+      .allocate("file:/a/types.xsd", "types.xsd"));
+    Assert.assertEquals("types1.xsd", new OutputNameRegistry(folder.getRoot(), false)
+      .allocate("file:/a/types.xsd", "types.xsd"));
+
+  }
+
+  @Test
+  public void testNumberAfterExistingAndReservedFiles() throws Exception {
+
+    folder.newFile("types.xsd");
+    folder.newFile("types1.xsd");
+
+    OutputNameRegistry r = new OutputNameRegistry(folder.getRoot(), false);
+    Assert.assertTrue(r.reserve("file:/r/types.xsd", "types3.xsd"));
+
+    Assert.assertEquals("types2.xsd", r.allocate("file:/a/types.xsd", "types.xsd"));
+    // created after the directory was listed, the registry does not look again
+    folder.newFile("types4.xsd");
+    Assert.assertEquals("types4.xsd", r.allocate("file:/b/types.xsd", "types.xsd"));
+    Assert.assertEquals("types5.xsd", r.allocate("file:/c/types.xsd", "types.xsd"));
+
+  }
+
+  @Test
+  public void testSameNamesInAnyOrder() throws Exception {
+
+    folder.newFile("types.xsd");
+
+    List<String> sources = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      sources.add("file:/lib" + i + "/" + (i % 3 == 0 ? "common.xsd" : "types.xsd"));
+    }
+
+    Map<String, String> expected = null;
+    Random random = new Random(42);
+    for (int run = 0; run < 5; run++) {
+
+      List<String> shuffled = new ArrayList<>(sources);
+      Collections.shuffle(shuffled, random);
+
+      OutputNameRegistry r = new OutputNameRegistry(folder.getRoot(), false);
+      Assert.assertTrue(r.reserve("file:/previous/types.xsd", "types7.xsd"));
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (String source : shuffled) {
+          tasks.add(executor.submit(() -> r.allocate(source, source.substring(source.lastIndexOf('/') + 1))));
+        }
+        for (Future<?> task : tasks) {
+          task.get(30, TimeUnit.SECONDS);
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      Map<String, String> provisional = r.getNames();
+      Map<String, String> renamed = r.settle();
+      Map<String, String> names = r.getNames();
+      for (Map.Entry<String, String> source : provisional.entrySet()) {
+        Assert.assertEquals(names.get(source.getKey()), renamed.getOrDefault(source.getValue(), source.getValue()));
+      }
+      if (expected == null) {
+        expected = names;
+      }
+      Assert.assertEquals(expected, names);
+      Assert.assertEquals(new HashSet<>(names.values()).size(), names.size());
+      Assert.assertEquals("types7.xsd", names.get("file:/previous/types.xsd"));
+      Assert.assertFalse(names.containsValue("types.xsd"));
+
+    }
+
+    // the first source in order gets the suggested name
+    Assert.assertEquals("common.xsd", expected.get("file:/lib0/common.xsd"));
+    Assert.assertEquals("types1.xsd", expected.get("file:/lib1/types.xsd"));
+
+  }
+
+}
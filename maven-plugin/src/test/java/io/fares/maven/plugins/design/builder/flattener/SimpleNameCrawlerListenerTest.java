@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.net.URL;
 
 public class SimpleNameCrawlerListenerTest {
 
@@ -110,4 +111,16 @@ public class SimpleNameCrawlerListenerTest {
 
   }
 
+  @Test
+  public void testOfflineRefusesRemoteDocuments() throws Exception {
+
+    SimpleNameCrawlerListener l = new SimpleNameCrawlerListener(new File("/tmp")).withOffline(true);
+
+    Assert.assertTrue(l.doCrawl(new URL("file:/tmp/a.xsd")));
+    Assert.assertFalse(l.doCrawl(new URL("http://acme.com/b.xsd")));
+    Assert.assertEquals(1, l.getMissing().size());
+    Assert.assertTrue(l.getMissing().contains("http://acme.com/b.xsd"));
+
+  }
+
 }
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package io.fares.maven.plugins.design.builder.scanner;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.fares.maven.plugins.design.builder.flattener.ResourceEntry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class CatalogFileScannerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testIndexedArchiveIsNotScannedAgain() throws Exception {
+
+    File jar = folder.newFile("catalogs.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("META-INF/catalog.xml"));
+      out.write("<catalog/>".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+
+    File indexDir = new File(folder.getRoot(), "index");
+    Pattern filter = Pattern.compile("^(.*/)?catalog\\.xml");
+
+    List<URL> scanned = newScanner(jar, indexDir).scan(filter);
+    Assert.assertEquals(1, scanned.size());
+    Assert.assertEquals("<catalog/>", new String(
+      newScanner(jar, indexDir).scanCatalogFiles(filter).get(0).getContent(), StandardCharsets.UTF_8));
+
+    // the index now answers for the unchanged archive
+    Assert.assertEquals(Collections.singletonList("META-INF/catalog.xml"),
+      CatalogIndex.of(null, indexDir, filter.pattern()).get(jar));
+    Assert.assertEquals(scanned, newScanner(jar, indexDir).scan(filter));
+
+    // a changed archive is scanned again
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+    Assert.assertNull(CatalogIndex.of(null, indexDir, filter.pattern()).get(jar));
+
+  }
+
+  private CatalogFileScanner newScanner(File jar, File indexDir) {
+    CatalogFileScanner scanner = new CatalogFileScanner();
+    scanner.setCompileClasspathElements(Collections.singletonList(jar.getAbsolutePath()));
+    scanner.setResources(Collections.emptyList());
+    scanner.setCatalogs(new ResourceEntry[0]);
+    scanner.setSourceDirectory(folder.getRoot());
+    scanner.setIncludes(new HashSet<>());
+    scanner.setExcludes(new HashSet<>());
+    scanner.setCatalogIndexDirectory(indexDir);
+    return scanner;
+  }
+
+}